@@ -0,0 +1,478 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Measures what a single evaluation of a gate or arithmetic component costs,
+ * apart from the rest of the simulator. propagate() is called directly,
+ * through a minimal InstanceState that just holds the port values, so the
+ * propagator's event queue plays no part. Inputs cycle through a small fixed
+ * set (-pool), and a steady-state evaluation should allocate nothing. The
+ * exception is a multi-bit result that was pushed out of Value's small,
+ * direct-mapped cache by another result, which is created again; with
+ * -pool 1 every result stays cached. Reported per component:
+ *
+ *   ns/call   time per propagate()
+ *   B/call    bytes allocated by the calling thread per propagate()
+ *
+ * With -verify, the components are instead checked on randomized inputs,
+ * at every width from 1 to 32 and in both signed and unsigned modes,
+ * against reference models written the straightforward way (per-bit Value
+ * arrays and BigInteger, as the components themselves once were). Any
+ * mismatch is printed and the exit status is 1.
+ *
+ * Usage: PropagateBenchmark [-calls n] [-pool n] [-verify] [-trials n]
+ *            [-seed n]
+ */
+public class PropagateBenchmark {
+
+  private int calls = 2000000;
+  private int trials = 20000;
+  private long seed = 1;
+  private int pool = 8; // distinct input vectors, a power of two
+
+  public static void main(String[] args) throws Exception {
+    Main.headless = true;
+    PropagateBenchmark bench = new PropagateBenchmark();
+    boolean verify = false;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-calls") && i + 1 < args.length)
+        bench.calls = Math.max(1, Integer.parseInt(args[++i]));
+      else if (arg.equals("-trials") && i + 1 < args.length)
+        bench.trials = Math.max(1, Integer.parseInt(args[++i]));
+      else if (arg.equals("-pool") && i + 1 < args.length)
+        bench.pool = Integer.highestOneBit(Math.max(1, Integer.parseInt(args[++i])));
+      else if (arg.equals("-seed") && i + 1 < args.length)
+        bench.seed = Long.parseLong(args[++i]);
+      else if (arg.equals("-verify"))
+        verify = true;
+      else {
+        System.err.println("usage: PropagateBenchmark [-calls n] [-pool n] "
+            + "[-verify] [-trials n] [-seed n]");
+        System.exit(1);
+      }
+    }
+    try {
+      System.exit(verify ? bench.verify() : bench.measure());
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      System.exit(1); // the simulator thread would otherwise keep us alive
+    }
+  }
+
+  // Just enough of an InstanceState to drive one component in isolation.
+  private static class ProbeState implements InstanceState {
+    final Project proj;
+    final Component comp;
+    final Instance instance;
+    final Value[] ports;
+    InstanceData data;
+
+    ProbeState(Project proj, Component comp) {
+      this.proj = proj;
+      this.comp = comp;
+      this.instance = Instance.getInstanceFor(comp);
+      this.ports = new Value[comp.getEnds().size()];
+    }
+
+    public void fireInvalidated() { }
+    public AttributeSet getAttributeSet() { return comp.getAttributeSet(); }
+    public <E> E getAttributeValue(Attribute<E> attr) {
+      return comp.getAttributeSet().getValue(attr);
+    }
+    public InstanceData getData() { return data; }
+    public InstanceFactory getFactory() { return (InstanceFactory) comp.getFactory(); }
+    public Instance getInstance() { return instance; }
+    public Value getPortValue(int portIndex) { return ports[portIndex]; }
+    public Project getProject() { return proj; }
+    public int getTickCount() { return 0; }
+    public boolean isCircuitRoot() { return true; }
+    public boolean isPortConnected(int portIndex) { return true; }
+    public CircuitState createCircuitSubstateFor(Circuit circ) {
+      throw new UnsupportedOperationException();
+    }
+    public void setData(InstanceData value) { data = value; }
+    public void setPort(int portIndex, Value value, int delay) {
+      ports[portIndex] = value;
+    }
+
+    void propagate() {
+      getFactory().propagate(this);
+    }
+  }
+
+  private final Loader loader = new Loader(null);
+  private final Project proj =
+      new Project(new LogisimFile.FileWithSimulations(LogisimFile.createNew(loader)));
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  private ProbeState probe(String lib, String name, String... attrs) {
+    Library l = loader.getBuiltin().getLibrary(lib);
+    ComponentFactory factory = ((AddTool) l.getTool(name)).getFactory();
+    AttributeSet a = factory.createAttributeSet();
+    for (int i = 0; i < attrs.length; i += 2)
+      setParsed(a, a.getAttribute(attrs[i]), attrs[i + 1]);
+    return new ProbeState(proj, factory.createComponent(Location.create(0, 0), a));
+  }
+
+  private static <V> void setParsed(AttributeSet attrs, Attribute<V> attr,
+      String value) {
+    attrs.setAttr(attr, attr.parse(value));
+  }
+
+  // Bytes allocated so far by the current thread, or -1 if the JVM can't
+  // tell us.
+  private long allocatedBytes() {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean t =
+          (com.sun.management.ThreadMXBean) threads;
+      if (t.isThreadAllocatedMemorySupported()
+          && t.isThreadAllocatedMemoryEnabled())
+        return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  //
+  // Allocation and time per call
+  //
+
+
+  private int measure() {
+    System.out.printf("%-32s %10s %10s%n", "Component", "ns/call", "B/call");
+    String[][] specs = {
+      { "Gates", "AND Gate" },
+      { "Gates", "AND Gate", "width", "8" },
+      { "Gates", "OR Gate", "inputs", "5" },
+      { "Gates", "XOR Gate", "width", "8" },
+      { "Gates", "NAND Gate" },
+      { "Gates", "NOT Gate", "width", "8" },
+      { "Gates", "Buffer", "width", "8" },
+      { "Arithmetic", "Adder", "width", "8" },
+      { "Arithmetic", "Adder", "width", "32" },
+      { "Arithmetic", "Subtractor", "width", "16" },
+      { "Arithmetic", "Multiplier", "width", "16" },
+      { "Arithmetic", "Divider", "width", "16", "mode", "unsigned" },
+      { "Arithmetic", "Comparator", "width", "32" },
+    };
+    Random rnd = new Random(seed);
+    for (String[] spec : specs) {
+      String[] attrs = new String[spec.length - 2];
+      System.arraycopy(spec, 2, attrs, 0, attrs.length);
+      ProbeState s = probe(spec[0], spec[1], attrs);
+      Value[][] inputs = new Value[pool][];
+      for (int i = 0; i < pool; i++)
+        inputs[i] = randomInputs(s, rnd, false);
+      run(s, inputs, calls); // warm up, and fill the Value cache
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      run(s, inputs, calls);
+      long nanos = System.nanoTime() - start;
+      long bytesAfter = allocatedBytes();
+      StringBuilder label = new StringBuilder(spec[1]);
+      for (int i = 0; i < attrs.length; i += 2)
+        label.append(' ').append(attrs[i]).append('=').append(attrs[i + 1]);
+      String perCall = bytes >= 0 && bytesAfter >= 0
+          ? String.format("%.2f", (bytesAfter - bytes) / (double) calls) : "n/a";
+      System.out.printf("%-32s %10.1f %10s%n", label, nanos / (double) calls, perCall);
+    }
+    return 0;
+  }
+
+  private static void run(ProbeState s, Value[][] inputs, int n) {
+    for (int i = 0; i < n; i++) {
+      Value[] in = inputs[i & (inputs.length - 1)];
+      for (int p = 0; p < in.length; p++) {
+        if (in[p] != null)
+          s.ports[p] = in[p];
+      }
+      s.propagate();
+    }
+  }
+
+  // Random values for every input port, and null for the outputs. With
+  // partial set, some bits are occasionally unknown or errors.
+  private static Value[] randomInputs(ProbeState s, Random rnd, boolean partial) {
+    List<EndData> ends = s.comp.getEnds();
+    Value[] in = new Value[ends.size()];
+    for (int p = 0; p < in.length; p++) {
+      EndData end = ends.get(p);
+      if (end.isInput() && !end.isOutput())
+        in[p] = randomValue(end.getWidth().getWidth(), rnd, partial);
+    }
+    return in;
+  }
+
+  private static Value randomValue(int w, Random rnd, boolean partial) {
+    Value[] bits = new Value[w];
+    boolean odd = partial && rnd.nextInt(4) == 0;
+    for (int i = 0; i < w; i++) {
+      int r = odd ? rnd.nextInt(8) : 2 + rnd.nextInt(2);
+      bits[i] = r == 0 ? Value.UNKNOWN : r == 1 ? Value.ERROR
+          : r % 2 == 0 ? Value.FALSE : Value.TRUE;
+    }
+    return Value.create(bits);
+  }
+
+  //
+  // Equivalence with reference models
+  //
+
+  private int mismatches;
+
+  private int verify() {
+    Random rnd = new Random(seed);
+    String[] modes = { "twosComplement", "unsigned" };
+    String[] gates = { "AND Gate", "OR Gate", "XOR Gate", "NAND Gate",
+      "NOR Gate", "XNOR Gate", "NOT Gate" };
+    int checked = 0;
+    for (int w = 1; w <= 32; w++) {
+      String width = "" + w;
+      ProbeState add = probe("Arithmetic", "Adder", "width", width);
+      ProbeState sub = probe("Arithmetic", "Subtractor", "width", width);
+      for (int t = 0; t < trials; t++) {
+        check(add, randomInputs(add, rnd, true), PropagateBenchmark::refAdder);
+        check(sub, randomInputs(sub, rnd, true), PropagateBenchmark::refSubtractor);
+        checked += 2;
+      }
+      for (String mode : modes) {
+        boolean unsigned = mode.equals("unsigned");
+        ProbeState mul = probe("Arithmetic", "Multiplier", "width", width, "mode", mode);
+        ProbeState div = probe("Arithmetic", "Divider", "width", width, "mode", mode);
+        ProbeState cmp = probe("Arithmetic", "Comparator", "width", width, "mode", mode);
+        for (int t = 0; t < trials; t++) {
+          check(mul, randomInputs(mul, rnd, false), (in, out) -> refMultiplier(in, out, unsigned));
+          check(div, randomInputs(div, rnd, false), (in, out) -> refDivider(in, out, unsigned));
+          check(cmp, randomInputs(cmp, rnd, true), (in, out) -> refComparator(in, out, unsigned));
+          checked += 3;
+        }
+      }
+      for (String g : gates) {
+        ProbeState gate = probe("Gates", g, "width", width);
+        for (int t = 0; t < trials / 4; t++) {
+          check(gate, randomInputs(gate, rnd, false), (in, out) -> refGate(g, in, out));
+          checked++;
+        }
+      }
+    }
+    System.out.printf("%d evaluations checked, %d mismatches%n", checked, mismatches);
+    return mismatches == 0 ? 0 : 1;
+  }
+
+  private interface Reference {
+    void compute(Value[] in, Value[] out);
+  }
+
+  private void check(ProbeState s, Value[] in, Reference ref) {
+    Value[] expect = new Value[in.length];
+    ref.compute(in, expect);
+    System.arraycopy(in, 0, s.ports, 0, in.length);
+    s.propagate();
+    for (int p = 0; p < in.length; p++) {
+      if (expect[p] != null && !expect[p].equals(s.ports[p])) {
+        if (++mismatches <= 20) {
+          StringBuilder msg = new StringBuilder(s.comp.getFactory().getName());
+          msg.append(" width=").append(s.getAttributeValue(com.cburch.logisim.instance.StdAttr.WIDTH));
+          for (int i = 0; i < in.length; i++) {
+            if (in[i] != null)
+              msg.append(" in").append(i).append('=').append(in[i]);
+          }
+          msg.append(": port ").append(p).append(" expected ").append(expect[p])
+            .append(" got ").append(s.ports[p]);
+          System.out.println(msg);
+        }
+      }
+    }
+  }
+
+  // Ports: 0, 1 operands, 2 sum, 3 carry in, 4 carry out.
+  private static void refAdder(Value[] in, Value[] out) {
+    Value[] r = refSum(in[0], in[1], in[3]);
+    out[2] = r[0];
+    out[4] = r[1];
+  }
+
+  // Ports: 0, 1 operands, 2 difference, 3 borrow in, 4 borrow out.
+  private static void refSubtractor(Value[] in, Value[] out) {
+    Value bin = in[3];
+    if (bin == Value.UNKNOWN || bin == Value.NIL)
+      bin = Value.FALSE;
+    Value[] r = refSum(in[0], in[1].not(), bin.not());
+    out[2] = r[0];
+    out[4] = r[1].not();
+  }
+
+  private static Value[] refSum(Value a, Value b, Value cin) {
+    int w = a.getWidth();
+    if (cin == Value.UNKNOWN || cin == Value.NIL)
+      cin = Value.FALSE;
+    Value[] bits = new Value[w];
+    Value carry = cin;
+    for (int i = 0; i < w; i++) {
+      if (carry == Value.ERROR || carry == Value.UNKNOWN) {
+        bits[i] = carry;
+      } else {
+        Value ab = a.get(i);
+        Value bb = b.get(i);
+        if (ab == Value.ERROR || bb == Value.ERROR) {
+          bits[i] = carry = Value.ERROR;
+        } else if (ab == Value.UNKNOWN || bb == Value.UNKNOWN) {
+          bits[i] = carry = Value.UNKNOWN;
+        } else {
+          int sum = (ab == Value.TRUE ? 1 : 0) + (bb == Value.TRUE ? 1 : 0)
+              + (carry == Value.TRUE ? 1 : 0);
+          bits[i] = (sum & 1) == 1 ? Value.TRUE : Value.FALSE;
+          carry = sum >= 2 ? Value.TRUE : Value.FALSE;
+        }
+      }
+    }
+    return new Value[] { Value.create(bits), carry };
+  }
+
+  private static BigInteger extend(int w, Value v, boolean unsigned) {
+    BigInteger x = BigInteger.valueOf(v.toIntValue() & 0xffffffffL);
+    if (!unsigned && x.testBit(w - 1))
+      x = x.subtract(BigInteger.ONE.shiftLeft(w));
+    return x;
+  }
+
+  private static Value low(int w, BigInteger x) {
+    return Value.createKnown(BitWidth.create(w),
+        x.and(BigInteger.ONE.shiftLeft(w).subtract(BigInteger.ONE)).intValue());
+  }
+
+  // Ports: 0, 1 operands, 2 product, 3 carry in, 4 carry out (high half).
+  // Only fully defined operands; a floating carry in counts as zero.
+  private static void refMultiplier(Value[] in, Value[] out, boolean unsigned) {
+    int w = in[0].getWidth();
+    BigInteger c = in[3].isFullyDefined() ? extend(w, in[3], unsigned) : BigInteger.ZERO;
+    BigInteger r = extend(w, in[0], unsigned).multiply(extend(w, in[1], unsigned)).add(c);
+    out[2] = low(w, r);
+    out[4] = low(w, r.shiftRight(w));
+  }
+
+  // Ports: 0 dividend (low half), 1 divisor, 2 quotient, 3 upper half of the
+  // dividend, 4 remainder. Division by zero divides by one.
+  private static void refDivider(Value[] in, Value[] out, boolean unsigned) {
+    int w = in[0].getWidth();
+    BigInteger upper = extend(w, in[3], unsigned);
+    BigInteger num = upper.shiftLeft(w).or(extend(w, in[0], true));
+    BigInteger den = extend(w, in[1], unsigned);
+    if (den.signum() == 0)
+      den = BigInteger.ONE;
+    BigInteger[] qr = num.divideAndRemainder(den);
+    out[2] = low(w, qr[0]);
+    out[4] = low(w, qr[1]);
+  }
+
+  // Ports: 0, 1 operands, 2 greater, 3 equal, 4 less.
+  private static void refComparator(Value[] in, Value[] out, boolean unsigned) {
+    Value gt = Value.FALSE, eq = Value.TRUE, lt = Value.FALSE;
+    Value[] ax = in[0].getAll();
+    Value[] bx = in[1].getAll();
+    for (int pos = ax.length - 1; pos >= 0; pos--) {
+      Value ab = ax[pos];
+      Value bb = bx[pos];
+      if (pos == ax.length - 1 && ab != bb && !unsigned) {
+        Value t = ab;
+        ab = bb;
+        bb = t;
+      }
+      if (ab == Value.ERROR || bb == Value.ERROR) {
+        gt = eq = lt = Value.ERROR;
+        break;
+      } else if (ab == Value.UNKNOWN || bb == Value.UNKNOWN) {
+        gt = eq = lt = Value.UNKNOWN;
+        break;
+      } else if (ab != bb) {
+        eq = Value.FALSE;
+        if (ab == Value.TRUE)
+          gt = Value.TRUE;
+        else
+          lt = Value.TRUE;
+        break;
+      }
+    }
+    out[2] = gt;
+    out[3] = eq;
+    out[4] = lt;
+  }
+
+  // Ports: 0 output, then the inputs. Only fully defined inputs.
+  private static void refGate(String name, Value[] in, Value[] out) {
+    int w = in[1].getWidth();
+    int x = in[1].toIntValue();
+    int r;
+    if (name.equals("NOT Gate")) {
+      r = ~x;
+    } else {
+      int y = in[2].toIntValue();
+      switch (name) {
+      case "AND Gate": r = x & y; break;
+      case "OR Gate": r = x | y; break;
+      case "XOR Gate": r = x ^ y; break;
+      case "NAND Gate": r = ~(x & y); break;
+      case "NOR Gate": r = ~(x | y); break;
+      default: r = ~(x ^ y); break;
+      }
+    }
+    out[0] = Value.createKnown(BitWidth.create(w), r);
+  }
+}
@@ -0,0 +1,377 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Generates the reference workloads used by SimulationBenchmark. The circuits
+ * are built through the normal component factories and saved as ordinary
+ * .circ files, so they can also be opened in the editor or run with -tty.
+ * Rather than routing wires, every connection is made by placing a tunnel
+ * on each port of a net, which keeps the generator independent of component
+ * geometry.
+ *
+ * Usage: ReferenceCircuits [output-directory]
+ */
+public class ReferenceCircuits {
+
+  public static void main(String[] args) throws Exception {
+    Main.headless = true;
+    File dir = new File(args.length > 0 ? args[0] : "benchmarks/circuits");
+    dir.mkdirs();
+    ReferenceCircuits gen = new ReferenceCircuits();
+    gen.write(dir, "ripple-adder", gen.rippleAdder(32, 4));
+    gen.write(dir, "deep-hierarchy", gen.deepHierarchy(6));
+    gen.write(dir, "wide-bus", gen.wideBus(32, 16));
+    gen.write(dir, "clock-tree", gen.clockTree(64));
+    gen.write(dir, "ram-cpu", gen.ramCpu(4));
+    System.exit(0);
+  }
+
+  static final int SIM_LIMIT = 100000;
+
+  private final Loader loader = new Loader(null);
+  private final Library wiring = lib("Wiring");
+  private final Library gates = lib("Gates");
+  private final Library arith = lib("Arithmetic");
+  private final Library memory = lib("Memory");
+
+  private Library lib(String name) {
+    return loader.getBuiltin().getLibrary(name);
+  }
+
+  private LogisimFile newFile() {
+    LogisimFile file = LogisimFile.createNew(loader);
+    file.addLibrary(lib("Base"));
+    file.addLibrary(wiring);
+    file.addLibrary(gates);
+    file.addLibrary(arith);
+    file.addLibrary(memory);
+    // Deep combinational chains legitimately need many steps per tick.
+    file.getOptions().getAttributeSet().setAttr(Options.ATTR_SIM_LIMIT,
+        SIM_LIMIT);
+    return file;
+  }
+
+  private void write(File dir, String name, LogisimFile file) {
+    File dest = new File(dir, name + ".circ");
+    dest.delete();
+    Project proj = new Project(new LogisimFile.FileWithSimulations(file));
+    if (!file.save(dest, proj))
+      throw new IllegalStateException("could not write " + dest);
+    System.out.println("wrote " + dest);
+  }
+
+  // Accumulator updated each clock by a chain of ripple-carry adders built
+  // from 1-bit full adders, stresses long combinational event chains.
+  LogisimFile rippleAdder(int width, int stages) {
+    LogisimFile file = newFile();
+    Sheet s = new Sheet(file.getMainCircuit());
+    clock(s, "clk");
+    constant(s, 1, 0, "zero");
+    constant(s, 1, 1, "one");
+    Component acc = s.add(memory, "Register", "width", "" + width);
+    s.connect(acc, 0, "acc", width);
+    s.connect(acc, 2, "clk", 1);
+    split(s, "acc", "a0_", width);
+    for (int k = 0; k < stages; k++) {
+      String carry = "zero";
+      for (int i = 0; i < width; i++) {
+        Component fa = s.add(arith, "Adder", "width", "1");
+        s.connect(fa, 0, "a" + k + "_" + i, 1);
+        s.connect(fa, 1, (i + k) % 2 == 0 ? "one" : "zero", 1);
+        s.connect(fa, 2, "a" + (k + 1) + "_" + i, 1);
+        s.connect(fa, 3, carry, 1);
+        carry = "c" + k + "_" + i;
+        s.connect(fa, 4, carry, 1);
+      }
+    }
+    split(s, "next", "a" + stages + "_", width);
+    s.connect(acc, 1, "next", width);
+    output(s, "q", "acc", width);
+    s.done();
+    return file;
+  }
+
+  // A chain of 2^depth inverters, nested depth levels deep, each level
+  // holding two instances of the level below; stresses substate handling.
+  LogisimFile deepHierarchy(int depth) {
+    LogisimFile file = newFile();
+    Circuit prev = new Circuit("cell", file);
+    file.addCircuit(prev);
+    Sheet cell = new Sheet(prev);
+    input(cell, "in", "a", 1);
+    Component not = cell.add(gates, "NOT Gate");
+    cell.connect(not, 1, "a", 1);
+    cell.connect(not, 0, "b", 1);
+    output(cell, "out", "b", 1);
+    cell.done();
+    for (int level = 1; level <= depth; level++) {
+      Circuit circ = level == depth ? file.getMainCircuit()
+          : new Circuit("level" + level, file);
+      if (level < depth)
+        file.addCircuit(circ);
+      Sheet s = new Sheet(circ);
+      if (level == depth)
+        clock(s, "n0");
+      else
+        input(s, "in", "n0", 1);
+      for (int i = 0; i < 2; i++)
+        s.subcircuit(prev, "n" + i, "n" + (i + 1));
+      output(s, level == depth ? "q" : "out", "n2", 1);
+      s.done();
+      prev = circ;
+    }
+    return file;
+  }
+
+  // A register feeding a chain of wide adders, a wide XOR of two of the
+  // partial sums, and then split into single bits that are inverted and
+  // recombined, exercising wide bus bundles and splitters.
+  LogisimFile wideBus(int width, int adders) {
+    LogisimFile file = newFile();
+    Sheet s = new Sheet(file.getMainCircuit());
+    clock(s, "clk");
+    Component reg = s.add(memory, "Register", "width", "" + width);
+    s.connect(reg, 0, "r", width);
+    s.connect(reg, 2, "clk", 1);
+    String prev = "r";
+    for (int k = 0; k < adders; k++) {
+      constant(s, width, 0x01010101L * (k + 1) + 0x1000 * k, "k" + k);
+      Component add = s.add(arith, "Adder", "width", "" + width);
+      s.connect(add, 0, prev, width);
+      s.connect(add, 1, "k" + k, width);
+      prev = "s" + k;
+      s.connect(add, 2, prev, width);
+    }
+    Component xor = s.add(gates, "XOR Gate", "width", "" + width);
+    s.connect(xor, 1, prev, width);
+    s.connect(xor, 2, "s" + (adders / 2), width);
+    s.connect(xor, 0, "x", width);
+    split(s, "x", "x_", width);
+    for (int i = 0; i < width; i++) {
+      Component not = s.add(gates, "NOT Gate");
+      s.connect(not, 1, "x_" + i, 1);
+      s.connect(not, 0, "y_" + i, 1);
+    }
+    split(s, "y", "y_", width);
+    s.connect(reg, 1, "y", width);
+    output(s, "q", "r", width);
+    s.done();
+    return file;
+  }
+
+  // One clock fanned out to many counters, each sampled by a register:
+  // lots of clocked components and no combinational depth.
+  LogisimFile clockTree(int leaves) {
+    LogisimFile file = newFile();
+    Sheet s = new Sheet(file.getMainCircuit());
+    clock(s, "clk");
+    for (int i = 0; i < leaves; i++) {
+      Component ctr = s.add(memory, "Counter", "width", "8",
+          "max", "0x" + Integer.toHexString(0x80 + i));
+      s.connect(ctr, 0, "q" + i, 8);
+      s.connect(ctr, 2, "clk", 1);
+      Component reg = s.add(memory, "Register", "width", "8");
+      s.connect(reg, 1, "q" + i, 8);
+      s.connect(reg, 2, "clk", 1);
+      s.connect(reg, 0, "r" + i, 8);
+    }
+    output(s, "q", "r0", 8);
+    s.done();
+    return file;
+  }
+
+  // A program counter addressing several RAM banks, each read, accumulated
+  // and written back every cycle: memory state dominates. A halt pin goes
+  // high at the last address, so that -tty runs stop after one pass.
+  LogisimFile ramCpu(int banks) {
+    LogisimFile file = newFile();
+    Sheet s = new Sheet(file.getMainCircuit());
+    clock(s, "clk");
+    constant(s, 1, 1, "one");
+    Component pc = s.add(memory, "Counter", "width", "8", "max", "0xff");
+    s.connect(pc, 0, "pc", 8);
+    s.connect(pc, 2, "clk", 1);
+    for (int b = 0; b < banks; b++) {
+      constant(s, 8, 0x35L * b, "m" + b);
+      Component xor = s.add(gates, "XOR Gate", "width", "8");
+      s.connect(xor, 1, "pc", 8);
+      s.connect(xor, 2, "m" + b, 8);
+      s.connect(xor, 0, "addr" + b, 8);
+      Component ram = s.add(memory, "RAM", "addrWidth", "8",
+          "dataWidth", "32", "databus", "bibus");
+      s.connect(ram, 0, "dout" + b, 32); // data out
+      s.connect(ram, 1, "addr" + b, 8); // address
+      s.connect(ram, 2, "din" + b, 32); // data in
+      s.connect(ram, 3, "clk", 1); // clock
+      s.connect(ram, 4, "one", 1); // write enable
+      Component acc = s.add(memory, "Register", "width", "32");
+      s.connect(acc, 0, "acc" + b, 32);
+      s.connect(acc, 2, "clk", 1);
+      Component add = s.add(arith, "Adder", "width", "32");
+      s.connect(add, 0, "dout" + b, 32);
+      s.connect(add, 1, "acc" + b, 32);
+      s.connect(add, 3, "one", 1);
+      s.connect(add, 2, "din" + b, 32);
+      s.connect(acc, 1, "din" + b, 32);
+    }
+    output(s, "q", "acc0", 32);
+    constant(s, 8, 0xff, "last");
+    Component cmp = s.add(arith, "Comparator", "width", "8",
+        "mode", "unsigned");
+    s.connect(cmp, 0, "pc", 8);
+    s.connect(cmp, 1, "last", 8);
+    s.connect(cmp, 3, "done", 1); // equal
+    output(s, "halt", "done", 1);
+    s.done();
+    return file;
+  }
+
+  private void clock(Sheet s, String net) {
+    s.connect(s.add(wiring, "Clock"), 0, net, 1);
+  }
+
+  private void constant(Sheet s, int width, long value, String net) {
+    Component c = s.add(wiring, "Constant", "width", "" + width,
+        "value", "0x" + Long.toHexString(value & ((1L << width) - 1)));
+    s.connect(c, 0, net, width);
+  }
+
+  private void input(Sheet s, String label, String net, int width) {
+    Component pin = s.add(wiring, "Pin", "label", label,
+        "width", "" + width);
+    s.connect(pin, 0, net, width);
+  }
+
+  private void output(Sheet s, String label, String net, int width) {
+    Component pin = s.add(wiring, "Pin", "facing", "west", "type", "output",
+        "label", label, "width", "" + width);
+    s.connect(pin, 0, net, width);
+  }
+
+  // Joins (or splits) a bus and its individual bits, named prefix0, ...
+  private void split(Sheet s, String bus, String prefix, int width) {
+    Component sp = s.add(wiring, "Splitter", "fanout", "" + width,
+        "incoming", "" + width);
+    s.connect(sp, 0, bus, width);
+    for (int i = 0; i < width; i++)
+      s.connect(sp, i + 1, prefix + i, 1);
+  }
+
+  private static <V> void setParsed(AttributeSet attrs, Attribute<V> attr,
+      String value) {
+    attrs.setAttr(attr, attr.parse(value));
+  }
+
+  // Places components on a coarse grid, far enough apart that no two
+  // components share a port location, and wires them up with tunnels.
+  private static class Sheet {
+    static final int COLUMNS = 16;
+    static final int SPACING = 400;
+
+    final Circuit circ;
+    final ArrayList<Component> comps = new ArrayList<>();
+    final ComponentFactory tunnel;
+    int cells; // grid cells used so far
+
+    Sheet(Circuit circ) {
+      this.circ = circ;
+      Library lib = circ.getLogisimFile().getLibrary("Wiring");
+      this.tunnel = ((AddTool) lib.getTool("Tunnel")).getFactory();
+    }
+
+    Component add(Library lib, String name, String... attrs) {
+      return add(((AddTool) lib.getTool(name)).getFactory(), attrs);
+    }
+
+    Component add(ComponentFactory factory, String... attrs) {
+      int n = cells++;
+      Location loc = Location.create(200 + SPACING * (n % COLUMNS),
+          200 + SPACING * (n / COLUMNS));
+      return place(factory, loc, attrs);
+    }
+
+    Component place(ComponentFactory factory, Location loc,
+        String... attrs) {
+      AttributeSet a = factory.createAttributeSet();
+      for (int i = 0; i < attrs.length; i += 2) {
+        Attribute<?> attr = a.getAttribute(attrs[i]);
+        if (attr == null)
+          throw new IllegalArgumentException(factory.getName()
+              + " has no attribute " + attrs[i]);
+        setParsed(a, attr, attrs[i + 1]);
+      }
+      Component c = factory.createComponent(loc, a);
+      comps.add(c);
+      return c;
+    }
+
+    void connect(Component c, int end, String net, int width) {
+      Location loc = c.getEnd(end).getLocation();
+      place(tunnel, loc, "label", net, "width", "" + width);
+    }
+
+    // Adds an instance of sub, whose single input and single output are
+    // connected to the nets in and out.
+    void subcircuit(Circuit sub, String in, String out) {
+      Component c = add(sub.getSubcircuitFactory());
+      for (int i = 0; i < c.getEnds().size(); i++) {
+        EndData end = c.getEnd(i);
+        connect(c, i, end.isOutput() ? out : in, 1);
+      }
+    }
+
+    void done() {
+      CircuitMutation m = new CircuitMutation(circ);
+      m.addAll(comps);
+      m.execute();
+    }
+  }
+}
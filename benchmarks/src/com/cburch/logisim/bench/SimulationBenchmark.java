@@ -0,0 +1,208 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+
+/**
+ * Measures simulation throughput of the reference workloads generated by
+ * ReferenceCircuits (or any other .circ files), so that regressions in
+ * Propagator, CircuitState and CircuitWires show up as numbers. For each
+ * file the main circuit is clocked headlessly, first for some warm-up
+ * iterations and then for timed iterations, in the manner of a JMH
+ * benchmark. Reported per workload:
+ *
+ *   ticks/s   half clock cycles propagated per second (mean and std dev)
+ *   events/s  simulator events processed per second
+ *   B/tick    bytes allocated by the simulating thread per half cycle
+ *   clone us  time to duplicate the whole state tree (cloneAsNewRootState)
+ *   reset us  time to reset the state tree and propagate it back to stable,
+ *             which includes rebuilding the wire bundle state
+ *
+ * Usage: SimulationBenchmark [-warmup n] [-iterations n] [-ticks n]
+ *            [-clones n] [file.circ | directory] ...
+ * With no files, every .circ file in benchmarks/circuits is measured.
+ */
+public class SimulationBenchmark {
+
+  private int warmup = 3;
+  private int iterations = 5;
+  private int ticks = 2000;
+  private int clones = 20;
+
+  public static void main(String[] args) throws Exception {
+    Main.headless = true;
+    SimulationBenchmark bench = new SimulationBenchmark();
+    ArrayList<File> files = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-warmup") && i + 1 < args.length)
+        bench.warmup = Integer.parseInt(args[++i]);
+      else if (arg.equals("-iterations") && i + 1 < args.length)
+        bench.iterations = Math.max(1, Integer.parseInt(args[++i]));
+      else if (arg.equals("-ticks") && i + 1 < args.length)
+        bench.ticks = Math.max(1, Integer.parseInt(args[++i]));
+      else if (arg.equals("-clones") && i + 1 < args.length)
+        bench.clones = Integer.parseInt(args[++i]);
+      else if (arg.startsWith("-")) {
+        System.err.println("usage: SimulationBenchmark [-warmup n] "
+            + "[-iterations n] [-ticks n] [-clones n] [file.circ ...]");
+        System.exit(1);
+      } else
+        addFiles(files, new File(arg));
+    }
+    if (files.isEmpty())
+      addFiles(files, new File("benchmarks/circuits"));
+    if (files.isEmpty()) {
+      System.err.println("no .circ files found");
+      System.exit(1);
+    }
+
+    System.out.printf("%-20s %12s %10s %12s %10s %10s %10s%n", "Benchmark",
+        "ticks/s", "+-", "events/s", "B/tick", "clone us", "reset us");
+    for (File f : files)
+      bench.run(f);
+    System.exit(0);
+  }
+
+  private static void addFiles(ArrayList<File> files, File f) {
+    if (f.isDirectory()) {
+      File[] list = f.listFiles((dir, name) -> name.endsWith(".circ"));
+      if (list != null) {
+        Arrays.sort(list);
+        files.addAll(Arrays.asList(list));
+      }
+    } else {
+      files.add(f);
+    }
+  }
+
+  private final Loader loader = new Loader(null);
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  // Bytes allocated so far by the current thread, or -1 if the JVM can't
+  // tell us.
+  private long allocatedBytes() {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean t =
+          (com.sun.management.ThreadMXBean) threads;
+      if (t.isThreadAllocatedMemorySupported()
+          && t.isThreadAllocatedMemoryEnabled())
+        return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private void run(File f) throws Exception {
+    String name = f.getName().replaceFirst("\\.circ$", "");
+    LogisimFile.FileWithSimulations file
+        = loader.openLogisimFile(f, new HashMap<>());
+    Project proj = new Project(file);
+    CircuitState state = CircuitState.createRootState(proj,
+        file.file.getMainCircuit());
+    Propagator prop = state.getPropagator();
+    prop.propagate();
+
+    for (int i = 0; i < warmup; i++)
+      tick(prop);
+
+    double[] rates = new double[iterations];
+    long totalNanos = 0, totalEvents = 0, totalBytes = 0;
+    boolean haveBytes = true;
+    for (int i = 0; i < iterations; i++) {
+      long events = prop.getEventsProcessed();
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      tick(prop);
+      long nanos = System.nanoTime() - start;
+      long bytesAfter = allocatedBytes();
+      haveBytes &= bytes >= 0 && bytesAfter >= 0;
+      totalBytes += bytesAfter - bytes;
+      totalEvents += prop.getEventsProcessed() - events;
+      totalNanos += nanos;
+      rates[i] = ticks * 1e9 / nanos;
+    }
+    if (prop.isOscillating())
+      System.out.printf("%-20s (oscillating, results unreliable)%n", name);
+
+    double mean = 0;
+    for (double r : rates)
+      mean += r;
+    mean /= iterations;
+    double var = 0;
+    for (double r : rates)
+      var += (r - mean) * (r - mean);
+    double sd = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+    double eventRate = totalEvents * 1e9 / totalNanos;
+    String bytesPerTick = haveBytes
+        ? String.format("%d", totalBytes / ((long) ticks * iterations))
+        : "n/a";
+
+    double cloneMicros = 0;
+    if (clones > 0) {
+      state.cloneAsNewRootState(); // warm up
+      long start = System.nanoTime();
+      for (int i = 0; i < clones; i++)
+        state.cloneAsNewRootState();
+      cloneMicros = (System.nanoTime() - start) / 1e3 / clones;
+    }
+
+    long start = System.nanoTime();
+    int resets = Math.max(1, clones);
+    for (int i = 0; i < resets; i++) {
+      state.reset();
+      prop.propagate();
+    }
+    double resetMicros = (System.nanoTime() - start) / 1e3 / resets;
+
+    System.out.printf("%-20s %12.1f %10.1f %12.0f %10s %10.1f %10.1f%n",
+        name, mean, sd, eventRate, bytesPerTick, cloneMicros, resetMicros);
+  }
+
+  private void tick(Propagator prop) {
+    for (int i = 0; i < ticks; i++) {
+      prop.toggleClocks();
+      prop.propagate();
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Measures how long a headless "-tty" run takes from JVM launch to exit, with
+ * and without the class data sharing archive made by "ant cds". Each run is a
+ * separate JVM started on the jar, as a script or CI job would start it.
+ * Configurations are run round-robin, after one untimed round, so that drift
+ * in machine load affects them all alike. Reported per configuration:
+ *
+ *   min, median, mean   wall-clock milliseconds per run
+ *   vs default          median relative to the JVM's default settings
+ *
+ * The configurations are "no sharing" (-Xshare:off), "default" (only the
+ * JDK's own archive) and "app archive" (-XX:SharedArchiveFile), the last
+ * only if the archive exists. With -record, a line with the medians is
+ * appended to the given file, so results can be compared over time.
+ *
+ * The circuit should have a "halt" output pin, as ram-cpu does. Without one,
+ * -tty table only evaluates the inputs and never ticks a clock, so the run
+ * measures little more than loading the file.
+ *
+ * Usage: StartupBenchmark [-runs n] [-jar file] [-archive file]
+ *            [-record file] [-tty format] [file.circ]
+ */
+public class StartupBenchmark {
+
+  private static class Config {
+    final String name;
+    final String[] jvmArgs;
+    final long[] millis;
+
+    Config(String name, int runs, String... jvmArgs) {
+      this.name = name;
+      this.jvmArgs = jvmArgs;
+      this.millis = new long[runs];
+    }
+
+    long median() {
+      long[] sorted = millis.clone();
+      Arrays.sort(sorted);
+      int n = sorted.length;
+      return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+  }
+
+  private int runs = 10;
+  private File jar = new File("logisim-evolution.jar");
+  private File archive = new File("logisim-evolution.jsa");
+  private File record = null;
+  private String ttyFormat = "table,stats";
+  private File circuit = new File("benchmarks/circuits/ram-cpu.circ");
+
+  public static void main(String[] args) throws Exception {
+    StartupBenchmark bench = new StartupBenchmark();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-runs") && i + 1 < args.length)
+        bench.runs = Math.max(1, Integer.parseInt(args[++i]));
+      else if (arg.equals("-jar") && i + 1 < args.length)
+        bench.jar = new File(args[++i]);
+      else if (arg.equals("-archive") && i + 1 < args.length)
+        bench.archive = new File(args[++i]);
+      else if (arg.equals("-record") && i + 1 < args.length)
+        bench.record = new File(args[++i]);
+      else if (arg.equals("-tty") && i + 1 < args.length)
+        bench.ttyFormat = args[++i];
+      else if (arg.startsWith("-")) {
+        System.err.println("usage: StartupBenchmark [-runs n] [-jar file] "
+            + "[-archive file] [-record file] [-tty format] [file.circ]");
+        System.exit(1);
+      } else
+        bench.circuit = new File(arg);
+    }
+    if (!bench.jar.isFile()) {
+      System.err.println(bench.jar + ": not found, run \"ant jar\" first");
+      System.exit(1);
+    }
+    System.exit(bench.run());
+  }
+
+  private int run() throws Exception {
+    ArrayList<Config> configs = new ArrayList<>();
+    configs.add(new Config("no sharing", runs, "-Xshare:off"));
+    configs.add(new Config("default", runs));
+    if (archive.isFile())
+      configs.add(new Config("app archive", runs,
+            "-XX:SharedArchiveFile=" + archive.getPath()));
+    else
+      System.out.println(archive + ": not found, run \"ant cds\" to make it");
+
+    for (Config c : configs)
+      launch(c); // warm up the file system cache
+    for (int i = 0; i < runs; i++) {
+      for (Config c : configs)
+        c.millis[i] = launch(c);
+    }
+
+    long base = configs.get(1).median();
+    System.out.printf("%s, %d runs of -tty %s%n", circuit, runs, ttyFormat);
+    System.out.printf("%-12s %8s %8s %8s %10s%n", "Config", "min", "median",
+        "mean", "vs default");
+    for (Config c : configs) {
+      long min = Long.MAX_VALUE, sum = 0;
+      for (long t : c.millis) {
+        min = Math.min(min, t);
+        sum += t;
+      }
+      System.out.printf("%-12s %8d %8d %8d %9.1f%%%n", c.name, min,
+          c.median(), sum / runs, 100.0 * (c.median() - base) / base);
+    }
+    if (record != null)
+      record(configs);
+    return 0;
+  }
+
+  // Runs the jar once in a new JVM, returning the wall-clock time in ms.
+  private long launch(Config c) throws IOException, InterruptedException {
+    ArrayList<String> cmd = new ArrayList<>();
+    cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    cmd.addAll(Arrays.asList(c.jvmArgs));
+    cmd.add("-Djava.awt.headless=true");
+    cmd.add("-jar");
+    cmd.add(jar.getPath());
+    cmd.add("-tty");
+    cmd.add(ttyFormat);
+    cmd.add(circuit.getPath());
+    ProcessBuilder pb = new ProcessBuilder(cmd);
+    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+    long start = System.nanoTime();
+    int code = pb.start().waitFor();
+    long millis = (System.nanoTime() - start) / 1000000;
+    if (code != 0)
+      throw new IOException(c.name + ": exit code " + code + " from " + cmd);
+    return millis;
+  }
+
+  private void record(ArrayList<Config> configs) throws IOException {
+    try (PrintWriter out = new PrintWriter(new FileWriter(record, true))) {
+      StringBuilder line = new StringBuilder();
+      line.append(new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date()));
+      line.append("\tjava ").append(System.getProperty("java.version"));
+      line.append("\t").append(circuit.getName());
+      for (Config c : configs)
+        line.append("\t").append(c.name).append(" ").append(c.median()).append(" ms");
+      out.println(line);
+    }
+    System.out.println("results appended to " + record);
+  }
+}
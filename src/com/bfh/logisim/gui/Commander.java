@@ -68,6 +68,7 @@ import com.bfh.logisim.fpga.Board;
 import com.bfh.logisim.fpga.BoardReader;
 import com.bfh.logisim.fpga.Chipset;
 import com.bfh.logisim.fpga.PinBindings;
+import com.bfh.logisim.hdlgenerator.FileWriter;
 import com.bfh.logisim.hdlgenerator.ToplevelHDLGenerator;
 import com.bfh.logisim.netlist.Netlist;
 import com.bfh.logisim.settings.Settings;
@@ -1276,11 +1277,33 @@ public class Commander extends JFrame
 
   private boolean writeHDL(Netlist.Context ctx, PinBindings pinBindings, FPGADownload tools) {
     String circdir = circuitWorkspace();
-    if (!cleanDirectory(circdir))
+    // HDL sources from a previous export are kept, so that files whose
+    // contents do not change also keep their timestamps. Everything else in
+    // the workspace is cleared and regenerated.
+    String hdldir = circdir + lang.toLowerCase();
+    FileWriter.ExportSession session = FileWriter.beginIncremental(circdir);
+    if (session == null) {
+      err.AddFatalError("Another HDL export into %s is still in progress.", circdir);
       return false;
-    for (String subdir : HDL_PATHS)
-      if (!mkdirs(circdir + subdir))
+    }
+    File[] old = new File(circdir).listFiles();
+    if (old != null) {
+      for (File f : old) {
+        if (f.getPath().equals(new File(hdldir).getPath()))
+          continue;
+        if (f.isDirectory() ? !cleanDirectory(f.getPath()) : !f.delete()) {
+          err.AddFatalError("Unable to remove old project file: %s", f.getPath());
+          FileWriter.finishIncremental(session, err);
+          return false;
+        }
+      }
+    }
+    for (String subdir : HDL_PATHS) {
+      if (!mkdirs(circdir + subdir)) {
+        FileWriter.finishIncremental(session, err);
         return false;
+      }
+    }
 
     // Generate HDL for top-level module and everything it contains, including
     // the root circuit (and all its subcircuits and components), the top-level
@@ -1289,12 +1312,20 @@ public class Commander extends JFrame
 
     g.notifyNetlistReady();
     Circuit root = circuitsList.getSelectedValue();
-    if (g.hdlDependsOnCircuitState()) { // for NVRAM
-      CircuitState cs = getCircuitState(root);
-      if (!g.writeAllHDLThatDependsOn(cs, null, null, circdir))
-        return false;
+    long start = System.nanoTime();
+    boolean ok = false;
+    try {
+      if (g.hdlDependsOnCircuitState()) { // for NVRAM
+        CircuitState cs = getCircuitState(root);
+        if (!g.writeAllHDLThatDependsOn(cs, null, null, circdir))
+          return false;
+      }
+      ok = g.writeAllHDLFiles(circdir);
+    } finally {
+      ok &= FileWriter.finishIncremental(session, err, hdldir);
     }
-    return g.writeAllHDLFiles(circdir);
+    iprintf("HDL generation took %d ms", (System.nanoTime() - start) / 1000000);
+    return ok;
   }
 
   private CircuitState getCircuitState(Circuit circ) {
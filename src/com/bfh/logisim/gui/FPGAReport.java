@@ -41,31 +41,31 @@ public class FPGAReport {
 		dlg = parent;
 	}
 
-	public void AddInfo(String msg, Object ...args) {
+	public synchronized void AddInfo(String msg, Object ...args) {
 		dlg.messages.printf(Console.INFO, msg, args);
 	}
 
-	public void AddWarning(String msg, Object ...args) {
+	public synchronized void AddWarning(String msg, Object ...args) {
     dlg.warns++;
 		dlg.messages.printf(Console.WARNING, msg, args);
 	}
 
-	public void AddSevereWarning(String msg, Object ...args) {
+	public synchronized void AddSevereWarning(String msg, Object ...args) {
     dlg.warns++;
 		dlg.messages.printf(Console.WARNING, "**SEVERE** " + msg, args);
 	}
 
-	public void AddSevereError(String msg, Object ...args) {
+	public synchronized void AddSevereError(String msg, Object ...args) {
     dlg.errors++;
 		dlg.messages.printf(Console.SEVERE, "**SEVERE** " + msg, args);
 	}
 
-	public void AddError(String msg, Object ...args) {
+	public synchronized void AddError(String msg, Object ...args) {
     dlg.errors++;
 		dlg.messages.printf(Console.ERROR, msg, args);
 	}
 
-	public void AddFatalError(String msg, Object ...args) {
+	public synchronized void AddFatalError(String msg, Object ...args) {
     dlg.fatals++;
 		dlg.messages.printf(Console.ERROR, "***FATAL*** " + msg, args);
 	}
@@ -34,6 +34,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.bfh.logisim.hdlgenerator.ToplevelHDLGenerator;
 import com.bfh.logisim.library.DynamicClock;
@@ -235,60 +239,115 @@ public class CircuitHDLGenerator extends HDLGenerator {
     return map;
 	}
 
+  // A module that needs its HDL files written, with a message for failures.
+  private static class Job {
+    final HDLSupport g;
+    final String failure;
+    Job(HDLSupport g, String failure) {
+      this.g = g;
+      this.failure = failure;
+    }
+  }
+
   // Second-level entry point: recursively write all HDL files for the project.
+  // The hierarchy is walked sequentially to decide which modules are needed
+  // and under which path each is generated, then the files themselves are
+  // generated and written in parallel, since once the netlists are validated
+  // each module is independent of the others.
   public boolean writeAllHDLFiles(String rootDir) {
 		if (!rootDir.endsWith(File.separator))
 			rootDir += File.separator;
-    return writeAllHDLFiles(rootDir, new HashSet<String>(), new Path(circ));
-  }
-
-	private boolean writeAllHDLFiles(String rootDir, HashSet<String> writtenComponents, Path path) {
-		_circNets.currentPath = path;
+    ArrayList<Job> jobs = new ArrayList<>();
+    ArrayList<Netlist> visited = new ArrayList<>();
     try {
-      // Generate this circuit first
-      String name = getHDLModuleName();
-      if (writtenComponents.contains(name))
-        return true;
-      if (!writeHDLFiles(rootDir)) {
-        _err.AddError("Error writing HDL files for " + name);
+      if (!collectHDLJobs(new HashSet<String>(), new Path(circ), jobs, visited))
         return false;
+      return writeHDLFiles(rootDir, jobs);
+    } finally {
+      for (Netlist n : visited)
+        n.currentPath = null;
+    }
+  }
+
+	private boolean collectHDLJobs(HashSet<String> writtenComponents, Path path,
+      ArrayList<Job> jobs, ArrayList<Netlist> visited) {
+    // Generate this circuit first
+    String name = getHDLModuleName();
+    if (writtenComponents.contains(name))
+      return true;
+    // Each circuit is generated once, using the first path that reaches it.
+    // The path stays set until all jobs are done, since generation uses it.
+    _circNets.currentPath = path;
+    visited.add(_circNets);
+    jobs.add(new Job(this, "Error writing HDL files for " + name));
+    writtenComponents.add(name);
+
+    // Generate this circuit's normal (non-subcircuit, non-inlined) components next
+    for (NetlistComponent comp : _circNets.components) {
+      if (comp.original.getFactory() instanceof SubcircuitFactory)
+        continue;
+      HDLSupport g = comp.hdlSupport;
+      if (g == null || g.inlined)
+        continue;
+      String moduleName = g.getHDLModuleName();
+      if (!writtenComponents.contains(moduleName)) {
+        jobs.add(new Job(g, name+": error writing HDL files for " + comp.original.getFactory()));
+        writtenComponents.add(moduleName);
       }
-      writtenComponents.add(name);
-
-      // Generate this circuit's normal (non-subcircuit, non-inlined) components next
-      for (NetlistComponent comp : _circNets.components) {
-        if (comp.original.getFactory() instanceof SubcircuitFactory)
-          continue;
-        HDLSupport g = comp.hdlSupport;
-        if (g == null || g.inlined)
-          continue;
-        String moduleName = g.getHDLModuleName();
-        if (!writtenComponents.contains(moduleName)) {
-          if (!g.writeHDLFiles(rootDir)) {
-            _err.AddError(name+": error writing HDL files for " + comp.original.getFactory());
-            return false;
-          }
-          writtenComponents.add(moduleName);
-        }
+    }
+
+    // Recurse for subcircuits last
+    for (NetlistComponent subcirc : _circNets.subcircuits) {
+      CircuitHDLGenerator g = (CircuitHDLGenerator)subcirc.hdlSupport;
+      if (g == null) {
+        _err.AddError(name+": missing subcircuit HDL support for " + subcirc.original);
+        return false;
       }
+      Path subpath = path.extend(subcirc);
+      if (!g.collectHDLJobs(writtenComponents, subpath, jobs, visited))
+        return false;
+    }
+
+    return true;
+	}
 
-      // Recurse for subcircuits last
-      for (NetlistComponent subcirc : _circNets.subcircuits) {
-        CircuitHDLGenerator g = (CircuitHDLGenerator)subcirc.hdlSupport;
-        if (g == null) {
-          _err.AddError(name+": missing subcircuit HDL support for " + subcirc.original);
+  private boolean writeHDLFiles(String rootDir, ArrayList<Job> jobs) {
+    int n = Math.min(jobs.size(), Runtime.getRuntime().availableProcessors());
+    if (n <= 1) {
+      for (Job job : jobs) {
+        if (!job.g.writeHDLFiles(rootDir)) {
+          _err.AddError(job.failure);
           return false;
         }
-        Path subpath = path.extend(subcirc);
-        if (!g.writeAllHDLFiles(rootDir, writtenComponents, subpath))
-          return false;
       }
-
       return true;
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(n);
+    try {
+      final String dir = rootDir;
+      ArrayList<Future<Boolean>> results = new ArrayList<>();
+      for (Job job : jobs)
+        results.add(pool.submit(() -> job.g.writeHDLFiles(dir)));
+      boolean ok = true;
+      for (int i = 0; i < jobs.size(); i++) {
+        try {
+          if (!results.get(i).get()) {
+            _err.AddError(jobs.get(i).failure);
+            ok = false;
+          }
+        } catch (ExecutionException e) {
+          _err.AddFatalError("%s: %s", jobs.get(i).failure, e.getCause());
+          ok = false;
+        }
+      }
+      return ok;
+    } catch (InterruptedException e) {
+      _err.AddFatalError("HDL generation was interrupted.");
+      return false;
     } finally {
-      _circNets.currentPath = null;
+      pool.shutdownNow();
     }
-	}
+  }
 
   @Override
   public boolean writeArchitecture(String rootDir) {
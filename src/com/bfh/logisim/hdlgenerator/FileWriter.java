@@ -30,18 +30,114 @@
 
 package com.bfh.logisim.hdlgenerator;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.bfh.logisim.gui.FPGAReport;
 import com.bfh.logisim.settings.Settings;
+import com.cburch.logisim.hdl.Hdl;
 
 public class FileWriter {
 
+  // An incremental export into one directory tree. Files left over from a
+  // previous export there may be overwritten (or left untouched if
+  // unchanged), but each file may still only be produced once per export.
+  public static class ExportSession {
+    private final String dir;
+    private final Set<String> produced = ConcurrentHashMap.newKeySet();
+
+    private ExportSession(String dir) {
+      this.dir = dir;
+    }
+
+    private boolean contains(String path) {
+      return path.equals(dir) || path.startsWith(dir + File.separator);
+    }
+  }
+
+  // The exports in progress, each in its own directory tree.
+  private static final ArrayList<ExportSession> sessions = new ArrayList<>();
+
+  // Start an incremental export into the given directory. Until
+  // finishIncremental() is called, existing files within it are reused rather
+  // than rejected, and files whose contents have not changed are not
+  // rewritten, so their timestamps stay stable. Returns null if another
+  // export into the same directory, or one enclosing or within it, is still
+  // in progress.
+  public static synchronized ExportSession beginIncremental(String dir) {
+    ExportSession session = new ExportSession(new File(dir).getAbsolutePath());
+    for (ExportSession other : sessions) {
+      if (other.contains(session.dir) || session.contains(other.dir))
+        return null;
+    }
+    sessions.add(session);
+    return session;
+  }
+
+  // Finish an incremental export, deleting any files within the given
+  // directories that were not produced during this export.
+  public static boolean finishIncremental(ExportSession session,
+      FPGAReport MyReporter, String... dirs) {
+    synchronized (FileWriter.class) {
+      sessions.remove(session);
+    }
+    boolean ok = true;
+    for (String dir : dirs)
+      ok &= removeStale(new File(dir), session.produced, MyReporter);
+    return ok;
+  }
+
+  private static boolean removeStale(File dir, Set<String> produced, FPGAReport MyReporter) {
+    File[] files = dir.listFiles();
+    if (files == null)
+      return true;
+    boolean ok = true;
+    for (File f : files) {
+      if (f.isDirectory()) {
+        ok &= removeStale(f, produced, MyReporter);
+      } else if (!produced.contains(f.getAbsolutePath())) {
+        MyReporter.AddInfo("Removing stale file : " + f.getPath());
+        if (!f.delete()) {
+          MyReporter.AddFatalError("Unable to remove old project file: %s", f.getPath());
+          ok = false;
+        }
+      }
+    }
+    return ok;
+  }
+
+  // Returns true if the file may be (re)written: either it does not exist, or
+  // it is left over from a previous export and this export has not yet
+  // produced it.
+  private static boolean claim(File OutFile) {
+    String path = OutFile.getAbsolutePath();
+    ExportSession session = null;
+    synchronized (FileWriter.class) {
+      for (ExportSession s : sessions) {
+        if (s.contains(path))
+          session = s;
+      }
+    }
+    if (session == null)
+      return !OutFile.exists();
+    return session.produced.add(path);
+  }
+
 	public static boolean CopyArchitecture(String source, String dest,
 			String componentName, FPGAReport reporter, String HDLType) {
 		try {
@@ -57,15 +153,15 @@ public class FileWriter {
 			// copy file
 			String destPath = dest + componentName + ArchitectureExtension + ".vhd";
 			File outFile = new File(destPath);
-			InputStream in = new FileInputStream(inFile);
-			OutputStream out = new FileOutputStream(outFile);
-			byte[] buf = new byte[1024];
-			int len;
-			while ((len = in.read(buf)) > 0) {
-				out.write(buf, 0, len);
+			if (!claim(outFile)) {
+				reporter.AddFatalError("HDL file \"" + destPath + "\" already exists");
+				return false;
 			}
-			in.close();
-			out.close();
+			if (sameContents(inFile, outFile)) {
+				reporter.AddInfo("\"" + destPath + "\" is unchanged");
+				return true; // keep the old timestamp
+			}
+			Files.copy(inFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 			reporter.AddInfo("\"" + source + "\" successfully copied to \""
 					+ destPath + "\"");
 			return true;
@@ -107,7 +203,7 @@ public class FileWriter {
 			}
 			File OutFile = new File(FileName);
 			MyReporter.AddInfo("Creating HDL file : " + FileName);
-			if (OutFile.exists()) {
+			if (!claim(OutFile)) {
 				MyReporter.AddWarning("HDL file \"" + FileName
 						+ "\" already exists");
 				return null;
@@ -135,7 +231,7 @@ public class FileWriter {
 			FileName += Name;
 			File OutFile = new File(FileName);
 			MyReporter.AddInfo("Creating file : " + FileName);
-			if (OutFile.exists()) {
+			if (!claim(OutFile)) {
 				MyReporter.AddWarning("File \"" + FileName
 						+ "\" already exists");
 				return null;
@@ -149,24 +245,105 @@ public class FileWriter {
 
 	public static boolean WriteContents(File outfile,
 			ArrayList<String> Contents, FPGAReport MyReporter) {
-		try {
-			FileOutputStream output = new FileOutputStream(outfile);
-			for (String ThisLine : Contents) {
-				if (!ThisLine.isEmpty()) {
-					output.write(ThisLine.getBytes());
-				}
-				output.write("\n".getBytes());
-			}
-			output.flush();
-			output.close();
-			return true;
-		} catch (Exception e) {
-			MyReporter.AddFatalError("Could not write to file \""
-					+ outfile.getAbsolutePath() + "\"");
-			return false;
-		}
+		LineWriter out = new LineWriter(outfile, MyReporter);
+		out.lines(Contents);
+		return out.close();
 	}
 
+  // Character set used for all generated files.
+  public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // Buffered, line-oriented output for a generated file. Generators can emit
+  // into this directly (it is an Hdl.Sink), so memory use stays flat no matter
+  // how large the file is. Output goes to a temporary file next to the
+  // destination, and close() moves it into place only if the contents differ
+  // from what is already there, so unchanged files keep their timestamps.
+  public static class LineWriter implements Hdl.Sink {
+    private final File dest, tmp;
+    private final FPGAReport err;
+    private Writer out;
+    private boolean failed;
+
+    public LineWriter(File dest, FPGAReport err) {
+      this.dest = dest;
+      this.tmp = new File(dest.getPath() + ".tmp");
+      this.err = err;
+      try {
+        out = new BufferedWriter(new OutputStreamWriter(
+              new FileOutputStream(tmp), CHARSET), BUFFER_SIZE);
+      } catch (IOException e) {
+        fail();
+      }
+    }
+
+    private void fail() {
+      if (!failed)
+        err.AddFatalError("Could not write to file \"" + dest.getAbsolutePath() + "\"");
+      failed = true;
+    }
+
+    public void line(String s) {
+      if (failed)
+        return;
+      try {
+        out.write(s);
+        out.write('\n');
+      } catch (IOException e) {
+        fail();
+      }
+    }
+
+    public void lines(Iterable<String> lines) {
+      for (String s : lines)
+        line(s);
+    }
+
+    // Abandon the output, leaving any existing destination file as it was.
+    public void discard() {
+      try {
+        if (out != null)
+          out.close();
+      } catch (IOException e) {
+      }
+      tmp.delete();
+    }
+
+    public boolean close() {
+      if (!failed) {
+        try {
+          out.close();
+          if (sameContents(tmp, dest))
+            tmp.delete(); // unchanged since previous export, keep the old timestamp
+          else
+            Files.move(tmp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+          fail();
+        }
+      }
+      if (failed)
+        discard();
+      return !failed;
+    }
+  }
+
+  private static boolean sameContents(File a, File b) throws IOException {
+    if (!b.exists() || a.length() != b.length())
+      return false;
+    try (InputStream ina = new BufferedInputStream(new FileInputStream(a), BUFFER_SIZE);
+        InputStream inb = new BufferedInputStream(new FileInputStream(b), BUFFER_SIZE)) {
+      byte[] bufa = new byte[BUFFER_SIZE];
+      byte[] bufb = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = ina.readNBytes(bufa, 0, BUFFER_SIZE)) > 0) {
+        if (inb.readNBytes(bufb, 0, n) != n || !Arrays.equals(bufa, 0, n, bufb, 0, n))
+          return false;
+      }
+      return true;
+    }
+  }
+
 	public static final String EntityExtension = "_entity";
 	public static final String ArchitectureExtension = "_behavior";
 }
@@ -242,25 +242,41 @@ public class HDLGenerator extends HDLSupport {
 
   // Generate and write an "architecture" file for this component, using the
   // given root directory.
+  // The architecture is streamed straight to the file as it is generated,
+  // rather than being built up in memory first.
   protected boolean writeArchitecture(String rootDir) {
-    Hdl hdl = getArchitecture();
-		if (hdl == null || hdl.isEmpty()) {
-			_err.AddFatalError("INTERNAL ERROR: Generated empty architecture for HDL `%s'.", hdlModuleName);
-			return false;
-		}
 		File f = openFile(rootDir, false, false);
 		if (f == null)
 			return false;
-		return FileWriter.WriteContents(f, hdl, _err);
+    FileWriter.LineWriter w = new FileWriter.LineWriter(f, _err);
+    boolean closed = false;
+    architectureSink = w;
+    try {
+      Hdl hdl = getArchitecture();
+      if (hdl == null || hdl.isEmpty()) {
+        _err.AddFatalError("INTERNAL ERROR: Generated empty architecture for HDL `%s'.", hdlModuleName);
+        return false;
+      }
+      w.lines(hdl); // anything not already streamed, e.g. from subclasses
+      closed = true;
+      return w.close();
+    } finally {
+      architectureSink = null;
+      if (!closed)
+        w.discard(); // don't leave a partial temp file behind
+    }
 	}
 
+  // Destination for architecture lines while writeArchitecture() is running.
+  private Hdl.Sink architectureSink;
+
   // Generate the full HDL code for the "architecture" file.
 	protected Hdl getArchitecture() {
     return getArchitecture(false);
   }
 
 	protected Hdl getArchitecture(boolean useTristates) {
-    Hdl out = new Hdl(_lang, _err);
+    Hdl out = new Hdl(_lang, _err, architectureSink);
     generateFileHeader(out);
 
 		if (out.isVhdl) {
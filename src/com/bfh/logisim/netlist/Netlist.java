@@ -31,10 +31,12 @@
 package com.bfh.logisim.netlist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.WeakHashMap;
 
 import com.bfh.logisim.gui.FPGAReport;
 import com.bfh.logisim.hdlgenerator.CircuitHDLGenerator;
@@ -317,8 +319,13 @@ public class Netlist {
 
     // DRC Step 3: Check connectivity (e.g. splitters, tunnels, wires) and build nets.
 		ctx.err.AddInfo("Checking wire, tunnel, and splitter connectivity in circuit '%s'.", circName);
-		if (!buildNets())
+    long start = System.nanoTime();
+    boolean reused = reuseCachedNets();
+		if (!reused && !buildNets())
 			return false;
+    long ms = (System.nanoTime() - start) / 1000000;
+    ctx.err.AddInfo("%s nets for circuit '%s' in %d ms.",
+        reused ? "Reused unchanged" : "Built", circName, ms);
     printNetlistStats();
 
     // DRC Step 4: Create NetlistComponent shadow objects for each Component,
@@ -504,7 +511,69 @@ public class Netlist {
     }
   }
 
+  // Nets depend only on the layout of a circuit, not on the Context, and are
+  // never modified once built, so they are cached across runs of the FPGA
+  // commander. An entry is reused only if the circuit has not been modified
+  // since, and if the labels and splitter mappings (changes to which don't
+  // produce circuit events) are also unchanged.
+  private static class CachedNets {
+    final int modCount;
+    final String fingerprint;
+    final ArrayList<Net> nets;
+    final HashMap<Location, Net> netAt;
+    CachedNets(int m, String f, ArrayList<Net> n, HashMap<Location, Net> a) {
+      modCount = m;
+      fingerprint = f;
+      nets = n;
+      netAt = a;
+    }
+  }
+
+  private static final WeakHashMap<Circuit, CachedNets> netCache = new WeakHashMap<>();
+
+  private String fingerprint() {
+    StringBuilder s = new StringBuilder();
+    for (Component comp : circ.getNonWires()) {
+      if (comp.getFactory() instanceof Tunnel)
+        s.append("T:").append(comp.getAttributeSet().getValue(StdAttr.LABEL));
+      else if (comp.getFactory() instanceof Pin)
+        s.append("P:").append(HDLSupport.deriveHdlPathName(comp));
+      else if (comp.getFactory() instanceof SplitterFactory)
+        s.append("S:").append(Arrays.toString(((Splitter)comp).getEndpoints()));
+      else
+        continue;
+      s.append('\n');
+    }
+    return s.toString();
+  }
+
+  private boolean reuseCachedNets() {
+    CachedNets c;
+    synchronized (netCache) {
+      c = netCache.get(circ);
+    }
+    if (c == null || c.modCount != circ.getModificationCount()
+        || !c.fingerprint.equals(fingerprint()))
+      return false;
+    nets.addAll(c.nets);
+    netAt.putAll(c.netAt);
+    return true;
+  }
+
 	private boolean buildNets() {
+    int modCount = circ.getModificationCount();
+    String fingerprint = fingerprint();
+    if (!buildNetsUncached())
+      return false;
+    CachedNets c = new CachedNets(modCount, fingerprint,
+        new ArrayList<>(nets), new HashMap<>(netAt));
+    synchronized (netCache) {
+      netCache.put(circ, c);
+    }
+    return true;
+  }
+
+	private boolean buildNetsUncached() {
 		LinkedList<CopperTrace> traces = new LinkedList<>();
    
     // Make a CopperTrace for every wire.
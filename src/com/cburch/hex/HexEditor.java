@@ -42,18 +42,65 @@ import java.awt.RenderingHints;
 import javax.swing.JComponent;
 import javax.swing.Scrollable;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 public class HexEditor extends JComponent implements Scrollable {
-	private class Listener implements HexModelListener {
-		public void bytesChanged(HexModel source, long start, long numBytes,
-				int[] oldValues) {
-			repaint(0, measures.toY(start), getWidth(),
-					measures.toY(start + numBytes) + measures.getCellHeight());
+	private class Listener implements HexModelListener, Runnable {
+		// Changes can arrive from the simulator thread far faster than the
+		// screen refreshes, so they are merged into one dirty address range
+		// and repainted together on the next pass through the event queue.
+		private long dirtyStart = -1;
+		private long dirtyEnd = -1;
+		private boolean metainfoDirty = false;
+		private boolean pending = false;
+
+		public synchronized void bytesChanged(HexModel source, long start,
+				long numBytes, int[] oldValues) {
+			if (numBytes <= 0)
+				return;
+			long end = start + numBytes - 1;
+			if (dirtyStart < 0) {
+				dirtyStart = start;
+				dirtyEnd = end;
+			} else {
+				dirtyStart = Math.min(dirtyStart, start);
+				dirtyEnd = Math.max(dirtyEnd, end);
+			}
+			schedule();
+		}
+
+		public synchronized void metainfoChanged(HexModel source) {
+			metainfoDirty = true;
+			schedule();
 		}
 
-		public void metainfoChanged(HexModel source) {
-			measures.recompute();
-			repaint();
+		private void schedule() {
+			if (!pending) {
+				pending = true;
+				SwingUtilities.invokeLater(this);
+			}
+		}
+
+		public void run() {
+			long start, end;
+			boolean meta;
+			synchronized (this) {
+				start = dirtyStart;
+				end = dirtyEnd;
+				meta = metainfoDirty;
+				dirtyStart = -1;
+				dirtyEnd = -1;
+				metainfoDirty = false;
+				pending = false;
+			}
+			if (meta) {
+				measures.recompute();
+				repaint();
+			} else if (start >= 0) {
+				int y0 = measures.toY(start);
+				int y1 = measures.toY(end) + measures.getCellHeight();
+				repaint(0, y0, getWidth(), y1 - y0);
+			}
 		}
 	}
 
@@ -100,6 +147,27 @@ public class HexEditor extends JComponent implements Scrollable {
 		model.fill(p0, p1 - p0 + 1, 0);
 	}
 
+	/**
+	 * Moves the caret to the next address after the caret holding the given
+	 * value, wrapping around to the start of the model if needed. Returns the
+	 * address found, or -1 if the value does not occur.
+	 */
+	public long find(int value) {
+		if (model == null)
+			return -1;
+		long first = model.getFirstOffset();
+		long last = model.getLastOffset();
+		long dot = caret.getDot();
+		long addr = -1;
+		if (dot >= first && dot < last)
+			addr = model.find(dot + 1, last, value);
+		if (addr < 0)
+			addr = model.find(first, dot >= first ? dot : last, value);
+		if (addr >= 0)
+			caret.setDot(addr, false);
+		return addr;
+	}
+
 	public Caret getCaret() {
 		return caret;
 	}
@@ -116,6 +184,11 @@ public class HexEditor extends JComponent implements Scrollable {
 		return model;
 	}
 
+	/** Moves the caret to the given address and scrolls it into view. */
+	public void goTo(long addr) {
+		caret.setDot(addr, false);
+	}
+
 	//
 	// Scrollable methods
 	//
@@ -206,6 +279,7 @@ public class HexEditor extends JComponent implements Scrollable {
 		int cellWidth = measures.getCellWidth();
 		int cellChars = measures.getCellChars();
     g.drawLine(baseX, clip.y, baseX, clip.y + clip.height);
+		int[] row = new int[cols];
 		for (long a = xaddr0; a < xaddr1; a += cols, baseY += dy) {
 			String label = toHex(a, labelChars);
       g.setColor(Color.BLUE);
@@ -217,14 +291,21 @@ public class HexEditor extends JComponent implements Scrollable {
 					baseY);
 			g.setFont(baseFont);
       g.setColor(getForeground());
-			long b = a;
-			for (int j = 0; j < cols; j++, b++) {
-				if (b >= addr0 && b <= addr1) {
-					String val = toHex(model.get(b), cellChars);
-					int x = measures.toX(b)
-							+ (cellWidth - baseFm.stringWidth(val)) / 2;
-					g.drawString(val, x, baseY);
-				}
+			// fetch only the visible part of this row, in one call
+			long lo = Math.max(a, addr0);
+			long hi = Math.min(a + cols - 1, addr1);
+			if (lo > hi)
+				continue;
+			int n = (int) (hi - lo + 1);
+			if (row.length != n)
+				row = new int[n];
+			model.get(lo, row);
+			for (int j = 0; j < n; j++) {
+				long b = lo + j;
+				String val = toHex(row[j], cellChars);
+				int x = measures.toX(b)
+						+ (cellWidth - baseFm.stringWidth(val)) / 2;
+				g.drawString(val, x, baseY);
 			}
 		}
 
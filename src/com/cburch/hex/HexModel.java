@@ -40,6 +40,29 @@ public interface HexModel {
 	/** Returns the value at the given address. */
 	public int get(long address);
 
+	/**
+	 * Copies dest.length consecutive values, starting at the given address,
+	 * into dest. Models with sparse storage should override this to avoid a
+	 * per-address lookup.
+	 */
+	public default void get(long start, int[] dest) {
+		for (int i = 0; i < dest.length; i++)
+			dest[i] = get(start + i);
+	}
+
+	/**
+	 * Returns the first address in the range [start, end] holding the given
+	 * value, or -1 if there is none. Models with sparse storage should
+	 * override this to skip over unallocated regions.
+	 */
+	public default long find(long start, long end, int value) {
+		for (long a = start; a <= end; a++) {
+			if (get(a) == value)
+				return a;
+		}
+		return -1;
+	}
+
 	/** Returns the offset of the initial value to be displayed. */
 	public long getFirstOffset();
 
@@ -116,7 +116,7 @@ class Measures {
 		} else {
 			long addr0 = getBaseAddress(model);
 			long addr1 = model.getLastOffset();
-			long rows = (int) (((addr1 - addr0 + 1) + cols - 1) / cols);
+			long rows = ((addr1 - addr0 + 1) + cols - 1) / cols;
 			height = rows * cellHeight;
 			if (height > Integer.MAX_VALUE)
 				height = Integer.MAX_VALUE;
@@ -31,8 +31,8 @@
 package com.cburch.logisim.circuit;
 import static com.cburch.logisim.circuit.Strings.S;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -47,6 +47,7 @@ import com.cburch.logisim.analyze.model.Expressions;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
@@ -55,6 +56,7 @@ import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
 import com.cburch.logisim.std.base.Text;
 import com.cburch.logisim.std.base.Image;
 
@@ -106,18 +108,112 @@ public class Analyze {
     }
   }
 
-  /**
-   * Checks whether any of the recently placed expressions in the expression
-   * map are self-referential; if so, return it.
-   */
-  private static Expression checkForCircularExpressions(ExpressionMap expressionMap)
-      throws AnalyzeException {
-    for (LocationBit point : expressionMap.dirtyPoints) {
-      Expression expr = expressionMap.get(point);
-      if (expr.isCircular())
-        return expr;
+  // The components of a circuit, ordered so that each comes after all of
+  // the components driving its inputs, by a topological sort of the graph in
+  // which each component leads to those its outputs drive. A net is a
+  // WireThread, so nets joined by splitters and tunnels are one net, or
+  // else the location and bit of an end with no wire attached. Pins,
+  // splitters and tunnels are not part of the graph: pins only start or end
+  // paths, and the other two are already accounted for by the threads.
+  // Components, not bits, are the nodes, so a cycle here need not be a cycle
+  // of any single bit.
+  private static class Graph {
+    final ArrayList<Component> order = new ArrayList<>();
+    final boolean acyclic;
+
+    Graph(Circuit circuit) {
+      ArrayList<Component> nodes = new ArrayList<>();
+      HashMap<Component, ArrayList<Object>> outputs = new HashMap<>();
+      HashMap<Object, ArrayList<Component>> readers = new HashMap<>();
+      HashMap<Object, Integer> drivers = new HashMap<>();
+      for (Component comp : circuit.getNonWires()) {
+        Object factory = comp.getFactory();
+        if (factory instanceof Pin || factory instanceof SplitterFactory
+            || factory instanceof Tunnel)
+          continue;
+        nodes.add(comp);
+        ArrayList<Object> outs = new ArrayList<>();
+        for (EndData end : comp.getEnds()) {
+          int width = end.getWidth().getWidth();
+          for (int b = 0; b < width; b++) {
+            Object net = net(circuit, end.getLocation(), b);
+            if (end.isInput())
+              readers.computeIfAbsent(net, k -> new ArrayList<>()).add(comp);
+            if (end.isOutput()) {
+              outs.add(net);
+              drivers.merge(net, 1, Integer::sum);
+            }
+          }
+        }
+        outputs.put(comp, outs);
+      }
+
+      // each component waits for every driver of every net it reads
+      HashMap<Component, Integer> waiting = new HashMap<>();
+      for (Map.Entry<Object, ArrayList<Component>> e : readers.entrySet()) {
+        Integer n = drivers.get(e.getKey());
+        if (n != null) {
+          for (Component comp : e.getValue())
+            waiting.merge(comp, n, Integer::sum);
+        }
+      }
+      ArrayDeque<Component> ready = new ArrayDeque<>();
+      for (Component comp : nodes) {
+        if (!waiting.containsKey(comp))
+          ready.add(comp);
+      }
+      while (!ready.isEmpty()) {
+        Component comp = ready.remove();
+        order.add(comp);
+        for (Object net : outputs.get(comp)) {
+          ArrayList<Component> rs = readers.get(net);
+          if (rs == null)
+            continue;
+          for (Component r : rs) {
+            if (waiting.merge(r, -1, Integer::sum) == 0)
+              ready.add(r);
+          }
+        }
+      }
+      // whatever was never ready is on, or downstream of, a cycle
+      acyclic = order.size() == nodes.size();
+    }
+
+    private static Object net(Circuit circuit, Location loc, int bit) {
+      WireBundle bundle = circuit.wires.getWireBundle(loc);
+      if (bundle != null && bundle.isValid() && bundle.threads != null
+          && bit < bundle.threads.length)
+        return bundle.threads[bit];
+      return new LocationBit(loc, bit);
     }
-    return null;
+  }
+
+  // Whether the circuit, and every subcircuit within it, is acyclic and
+  // made only of components whose outputs depend on nothing but their
+  // present inputs. If so, the outputs for any inputs don't depend on what
+  // the circuit was showing before. A cycle that no bit actually follows
+  // still counts against it, which only costs a fresh state per row.
+  private static boolean isCombinational(Circuit circuit,
+      HashMap<Circuit, Boolean> known) {
+    Boolean ret = known.get(circuit);
+    if (ret != null)
+      return ret;
+    known.put(circuit, Boolean.FALSE); // in case of recursion
+    boolean ok = new Graph(circuit).acyclic;
+    for (Component comp : circuit.getNonWires()) {
+      if (!ok)
+        break;
+      Object factory = comp.getFactory();
+      if (factory instanceof SubcircuitFactory)
+        ok = isCombinational(((SubcircuitFactory) factory).getSubcircuit(), known);
+      else
+        ok = comp.getFeature(ExpressionComputer.class) != null
+            || factory instanceof Pin || factory instanceof SplitterFactory
+            || factory instanceof Tunnel || factory instanceof Text
+            || factory instanceof Image;
+    }
+    known.put(circuit, ok);
+    return ok;
   }
 
   //
@@ -151,24 +247,41 @@ public class Analyze {
       }
     }
 
-    propagateComponents(expressionMap, circuit.getNonWires());
-
-    for (int iterations = 0; !expressionMap.dirtyPoints.isEmpty(); iterations++) {
-      if (iterations > MAX_ITERATIONS) {
-        throw new AnalyzeException.Circular();
-      }
-
-      propagateWires(expressionMap, new HashSet<>(
-            expressionMap.dirtyPoints));
-
-      HashSet<Component> dirtyComponents = getDirtyComponents(circuit,
-          expressionMap.dirtyPoints);
+    for (Component comp : circuit.getNonWires())
+      getComputer(comp); // fail early on anything unsupported
+    Graph graph = new Graph(circuit);
+    if (graph.acyclic) {
+      // Each component is visited once, after everything driving it, so one
+      // pass leaves every net with its final expression.
+      propagateWires(expressionMap, new HashSet<>(expressionMap.dirtyPoints));
       expressionMap.dirtyPoints.clear();
-      propagateComponents(expressionMap, dirtyComponents);
-
-      Expression expr = checkForCircularExpressions(expressionMap);
-      if (expr != null)
-        throw new AnalyzeException.Circular();
+      for (Component comp : graph.order) {
+        propagateComponent(expressionMap, comp);
+        propagateWires(expressionMap, new HashSet<>(expressionMap.dirtyPoints));
+        expressionMap.dirtyPoints.clear();
+      }
+    } else {
+      // The graph only knows that a component's outputs depend on its
+      // inputs, not which bit on which. So a multi-bit component feeding one
+      // of its output bits back into another of its input bits looks like a
+      // cycle without being one. Iterate bit by bit until nothing changes,
+      // which only fails when some bit really does depend on itself.
+      for (Component comp : circuit.getNonWires())
+        propagateComponent(expressionMap, comp);
+      for (int iterations = 0; !expressionMap.dirtyPoints.isEmpty(); iterations++) {
+        if (iterations > MAX_ITERATIONS)
+          throw new AnalyzeException.Circular();
+        propagateWires(expressionMap, new HashSet<>(expressionMap.dirtyPoints));
+        HashSet<Component> dirtyComponents = getDirtyComponents(circuit,
+            expressionMap.dirtyPoints);
+        expressionMap.dirtyPoints.clear();
+        for (Component comp : dirtyComponents)
+          propagateComponent(expressionMap, comp);
+        for (LocationBit point : expressionMap.dirtyPoints) {
+          if (expressionMap.get(point).isCircular())
+            throw new AnalyzeException.Circular();
+        }
+      }
     }
 
     model.setVariables(inputVars, outputVars);
@@ -217,8 +330,13 @@ public class Analyze {
     int rowCount = 1 << inputCount;
     Entry[][] columns = new Entry[outputNames.size()][rowCount];
 
+    // A combinational circuit can be driven row after row in one state;
+    // anything else gets a fresh state for each row.
+    boolean reuseState = isCombinational(circuit, new HashMap<>());
+    CircuitState circuitState = null;
     for (int i = 0; i < rowCount; i++) {
-      CircuitState circuitState = CircuitState.createRootState(proj, circuit);
+      if (circuitState == null || !reuseState)
+        circuitState = CircuitState.createRootState(proj, circuit);
       int incol = 0;
       for (int j = 0; j < inputPins.size(); j++) {
         Instance pin = inputPins.get(j);
@@ -230,6 +348,8 @@ public class Analyze {
         }
         InstanceState pinState = circuitState.getInstanceState(pin);
         Pin.FACTORY.driveInputPin(pinState, Value.create(v));
+        if (reuseState)
+          circuitState.markComponentAsDirty(Instance.getComponentFor(pin));
       }
 
       Propagator prop = circuitState.getPropagator();
@@ -273,18 +393,6 @@ public class Analyze {
     }
   }
 
-  // computes outputs of affected components
-  private static HashSet<Component> getDirtyComponents(Circuit circuit,
-      Set<LocationBit> pointsToProcess) throws AnalyzeException {
-    HashSet<Component> dirtyComponents = new HashSet<>();
-    for (LocationBit point : pointsToProcess) {
-      for (Component comp : circuit.getNonWires(point.loc)) {
-        dirtyComponents.add(comp);
-      }
-    }
-    return dirtyComponents;
-  }
-
   // Returns a sorted map from Pin objects to String objects, listed in
   // canonical order (top-down order, with ties broken left-right).
   public static SortedMap<Instance, String> getPinLabels(Circuit circuit) {
@@ -357,30 +465,50 @@ public class Analyze {
     return ret;
   }
 
-  private static void propagateComponents(ExpressionMap expressionMap,
-      Collection<Component> components) throws AnalyzeException {
-    for (Component comp : components) {
-      ExpressionComputer computer = (ExpressionComputer) comp.getFeature(ExpressionComputer.class);
-      if (computer != null) {
-        try {
-          expressionMap.currentCause = comp;
-          computer.computeExpression(expressionMap);
-        } catch (UnsupportedOperationException e) {
-          throw new AnalyzeException.CannotHandle(comp.getFactory()
-              .getDisplayName());
-        }
-      } else if (comp.getFactory() instanceof Pin) {
-        ; // pins are handled elsewhere
-      } else if (comp.getFactory() instanceof SplitterFactory) {
-        ; // splitters are handled elsewhere
-      } else if (comp.getFactory() instanceof Text) {
-        ; // ignore
-      } else if (comp.getFactory() instanceof Image) {
-        ; // ignore
-      } else {
-        throw new AnalyzeException.CannotHandle(comp.getFactory().getDisplayName());
+  // Returns the component's ExpressionComputer, or null for components that
+  // have no part in the expressions.
+  private static ExpressionComputer getComputer(Component comp)
+      throws AnalyzeException {
+    ExpressionComputer computer = (ExpressionComputer) comp.getFeature(ExpressionComputer.class);
+    if (computer != null) {
+      return computer;
+    } else if (comp.getFactory() instanceof Pin) {
+      return null; // pins are handled elsewhere
+    } else if (comp.getFactory() instanceof SplitterFactory) {
+      return null; // splitters are handled elsewhere
+    } else if (comp.getFactory() instanceof Text) {
+      return null; // ignore
+    } else if (comp.getFactory() instanceof Image) {
+      return null; // ignore
+    } else {
+      throw new AnalyzeException.CannotHandle(comp.getFactory().getDisplayName());
+    }
+  }
+
+  private static void propagateComponent(ExpressionMap expressionMap,
+      Component comp) throws AnalyzeException {
+    ExpressionComputer computer = getComputer(comp);
+    if (computer == null)
+      return;
+    try {
+      expressionMap.currentCause = comp;
+      computer.computeExpression(expressionMap);
+    } catch (UnsupportedOperationException e) {
+      throw new AnalyzeException.CannotHandle(comp.getFactory()
+          .getDisplayName());
+    }
+  }
+
+  // computes outputs of affected components
+  private static HashSet<Component> getDirtyComponents(Circuit circuit,
+      Set<LocationBit> pointsToProcess) throws AnalyzeException {
+    HashSet<Component> dirtyComponents = new HashSet<>();
+    for (LocationBit point : pointsToProcess) {
+      for (Component comp : circuit.getNonWires(point.loc)) {
+        dirtyComponents.add(comp);
       }
     }
+    return dirtyComponents;
   }
 
   // propagates expressions down wires
@@ -416,6 +544,8 @@ public class Analyze {
     }
   }
 
+  private static final int MAX_ITERATIONS = 100;
+
   private static String toValidLabel(String label) {
     if (label == null)
       return null;
@@ -455,8 +585,6 @@ public class Analyze {
     return ret.toString();
   }
 
-  private static final int MAX_ITERATIONS = 100;
-
   private Analyze() {
   }
 }
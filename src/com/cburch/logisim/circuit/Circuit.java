@@ -32,6 +32,7 @@ package com.cburch.logisim.circuit;
 
 import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -158,6 +159,7 @@ public class Circuit implements AttributeDefaultProvider {
   private SubcircuitFactory subcircuitFactory;
   private EventSourceWeakSupport<CircuitListener> listeners = new EventSourceWeakSupport<CircuitListener>();
   private HashSet<Component> comps = new HashSet<Component>(); // doesn't include wires
+  private BitSet compIndices = new BitSet(); // see Component.getCircuitIndex()
   CircuitWires wires = new CircuitWires();
   // wires is package-protected for CircuitState and Analyze only.
   private ArrayList<Component> clocks = new ArrayList<Component>();
@@ -334,6 +336,8 @@ public class Circuit implements AttributeDefaultProvider {
   }
 
   private void fireEvent(CircuitEvent event) {
+    if (event.getAction() != CircuitEvent.ACTION_DISPLAY_CHANGE)
+      modCount++;
     for (CircuitListener l : listeners)
       l.circuitChanged(event);
   }
@@ -342,6 +346,14 @@ public class Circuit implements AttributeDefaultProvider {
     fireEvent(new CircuitEvent(action, this, data));
   }
 
+  // Count of changes to the circuit contents, so that data derived from the
+  // layout (e.g. FPGA netlists) can be cached and checked for staleness.
+  private volatile int modCount = 0;
+
+  public int getModificationCount() {
+    return modCount;
+  }
+
   public void displayChanged() {
     fireEvent(CircuitEvent.ACTION_DISPLAY_CHANGE, null);
   }
@@ -579,6 +591,9 @@ public class Circuit implements AttributeDefaultProvider {
       boolean added = comps.add(c);
       if (!added)
         return;
+      int index = compIndices.nextClearBit(0);
+      compIndices.set(index);
+      c.setCircuitIndex(index);
 
       wires.add(c);
       ComponentFactory factory = c.getFactory();
@@ -602,6 +617,9 @@ public class Circuit implements AttributeDefaultProvider {
 
     Set<Component> oldComps = comps;
     comps = new HashSet<Component>();
+    compIndices.clear();
+    for (Component comp : oldComps)
+      comp.setCircuitIndex(-1);
     wires = new CircuitWires();
     clocks.clear();
     for (Component comp : oldComps) {
@@ -722,6 +740,13 @@ public class Circuit implements AttributeDefaultProvider {
       c.removeComponentWeakListener(null, myComponentListener);
     }
     fireEvent(CircuitEvent.ACTION_REMOVE, c);
+    // Index is released only after listeners have seen the removal, so
+    // CircuitState can still clear its table entry for it.
+    int index = c.getCircuitIndex();
+    if (index >= 0 && !(c instanceof Wire)) {
+      compIndices.clear(index);
+      c.setCircuitIndex(-1);
+    }
   }
 
   // Note: caller must have validated name already
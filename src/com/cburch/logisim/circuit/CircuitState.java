@@ -31,6 +31,7 @@
 package com.cburch.logisim.circuit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,6 +74,11 @@ public class CircuitState implements InstanceData {
     public void circuitChanged(CircuitEvent event) {
       int action = event.getAction();
 
+      // Edits may void the wire map, which is only rebuilt when this state is
+      // next visited, so make sure the next step visits it.
+      if (action != CircuitEvent.ACTION_DISPLAY_CHANGE)
+        markActive();
+
       /* Component was added */
       if (action == CircuitEvent.ACTION_ADD) {
         // Nothing to do: CircuitWires.BundleMap will be voided, causing
@@ -104,8 +110,9 @@ public class CircuitState implements InstanceData {
           if (substate != null && substate.parentComp == comp) {
             synchronized (dirtyLock) {
               substates.remove(substate);
-              substatesDirty = true;
+              deactivateSubstate(substate);
             }
+            base.unregisterStates(substate);
             substate.parentState = null;
             substate.parentComp = null;
           }
@@ -127,6 +134,10 @@ public class CircuitState implements InstanceData {
             // dirtyComponents.remove(comp);
             while (dirtyComponents.remove(comp))
               ;
+            // comp still holds its index here; free the stamp for reuse
+            int index = comp.getCircuitIndex();
+            if (index >= 0 && index < dirtyStamps.length)
+              dirtyStamps[index] = 0;
           }
         }
       }
@@ -143,11 +154,15 @@ public class CircuitState implements InstanceData {
         }
         synchronized (dirtyLock) {
           dirtyComponents.clear();
+          nextDirtyEpoch();
           dirtyPoints.clear();
           // dirtyPointVals.clear();
+          for (CircuitState sub : substates)
+            base.unregisterStates(sub);
           substates.clear();
-          substatesWorking = new CircuitState[0];
-          substatesDirty = true;
+          for (CircuitState sub : activeSubstates)
+            sub.activeInParent = false;
+          activeSubstates.clear();
         }
         // slowpath_drivers.clear();
       }
@@ -185,8 +200,9 @@ public class CircuitState implements InstanceData {
             sub.parentState = null;
             synchronized (dirtyLock) {
               substates.remove(sub);
-              substatesDirty = true;
+              deactivateSubstate(sub);
             }
+            base.unregisterStates(sub);
           }
         }
       }
@@ -215,7 +231,8 @@ public class CircuitState implements InstanceData {
   // these data structures. These are the values you would see if you stick a
   // probe at some location on the circuit sheet.
   Map<Location, Value> slowpath_values = new HashMap<>(); // protected by valuesLock
-  Value[][] fastpath_values = new Value[FASTPATH_GRID_HEIGHT][FASTPATH_GRID_WIDTH]; // protected by valuesLock
+  // fastpath_values is a flat grid indexed by slot, see getFastpathSlot().
+  Value[] fastpath_values = new Value[FASTPATH_GRID_HEIGHT*FASTPATH_GRID_WIDTH]; // protected by valuesLock
 
   // slowpath_drivers and fastpass_drivers store {component,value} pairs for each
   // component that is currently emitting a value *into* this circuit, i.e.
@@ -239,6 +256,13 @@ public class CircuitState implements InstanceData {
   // private CopyOnWriteArraySet<Component> dirtyComponents = new CopyOnWriteArraySet<>();
   // private HashSet<Component> dirtyComponents = new HashSet<>(); // protected by dirtyLock
   private ArrayList<Component> dirtyComponents = new ArrayList<>(); // protected by dirtyLock
+  // dirtyStamps[comp.getCircuitIndex()] == dirtyEpoch exactly when comp is
+  // already in dirtyComponents, so repeated marks (e.g. a gate whose inputs
+  // all change in the same step) are dropped without searching or hashing.
+  // Swapping out the list bumps the epoch, which empties the set in O(1).
+  private int[] dirtyStamps = new int[0]; // protected by dirtyLock
+  private int dirtyEpoch = 1; // protected by dirtyLock
+  private long duplicateDirtyMarks; // protected by dirtyLock
   // private CopyOnWriteArraySet<Location> dirtyPoints = new CopyOnWriteArraySet<>();
   // private HashSet<Location> dirtyPoints = new HashSet<>();
   // private ArrayList<Location> dirtyPoints = new ArrayList<>(); // protected by dirtyLock
@@ -247,6 +271,18 @@ public class CircuitState implements InstanceData {
   private HashSet<CircuitState> substates = new HashSet<>(); // protected by dirtyLock
   private Object dirtyLock = new Object();
 
+  // activeSubstates holds those substates which have (or have descendants
+  // with) pending dirty points or components, so each propagation step need
+  // only visit the part of the tree that has work, rather than every substate.
+  // A substate adds itself, and any unregistered ancestors, via markActive().
+  // The activeInParent flag belongs to the substate but is protected by the
+  // parent's dirtyLock.
+  private ArrayList<CircuitState> activeSubstates = new ArrayList<>(); // protected by dirtyLock
+  private ArrayList<CircuitState> activeSubstatesWorking = new ArrayList<>();
+  private boolean activeInParent; // protected by parentState.dirtyLock
+
+  SimulationProfile.Counter profile; // created when first profiled
+
 
   private static int lastId = 0;
   private int id = lastId++;
@@ -255,6 +291,7 @@ public class CircuitState implements InstanceData {
     this.proj = proj;
     this.circuit = circuit;
     this.base = prop != null ? prop : new Propagator(this);
+    base.registerState(this);
     circuit.addCircuitWeakListener(null, myCircuitListener);
     markAllComponentsDirty();
   }
@@ -295,7 +332,8 @@ public class CircuitState implements InstanceData {
         newSub.copyFrom(oldSub);
         newSub.parentState = this;
         this.substates.add(newSub);
-        this.substatesDirty = true;
+        newSub.activeInParent = true;
+        this.activeSubstates.add(newSub);
         substateData.put(oldSub, newSub);
       }
     }
@@ -325,10 +363,8 @@ public class CircuitState implements InstanceData {
     this.slowpath_values.clear(); // slow path
     synchronized (src.valuesLock) {
       this.slowpath_values.putAll(src.slowpath_values); // slow path
-      for(int y = 0; y < FASTPATH_GRID_HEIGHT; y++) { // fast path
-        System.arraycopy(src.fastpath_values[y], 0,
-            this.fastpath_values[y], 0, FASTPATH_GRID_WIDTH);
-      }
+      System.arraycopy(src.fastpath_values, 0, // fast path
+          this.fastpath_values, 0, this.fastpath_values.length);
     }
     synchronized(src.dirtyLock) {
       // note: we don't bother with our this.dirtyLock here: it isn't needed
@@ -336,6 +372,8 @@ public class CircuitState implements InstanceData {
       // possibility of deadlock (though that shouldn't happen either since no
       // other threads have references to this yet).
       this.dirtyComponents.addAll(src.dirtyComponents);
+      this.dirtyStamps = src.dirtyStamps.clone();
+      this.dirtyEpoch = src.dirtyEpoch;
       this.dirtyPoints.addAll(src.dirtyPoints);
       // this.dirtyPointVals.addAll(src.dirtyPointVals);
     }
@@ -420,17 +458,49 @@ public class CircuitState implements InstanceData {
     return substates;
   }
 
-  public Value getValue(Location p) {
-    Value v = null;
+  CircuitState[] getSubstatesSnapshot() {
+    synchronized (dirtyLock) {
+      return substates.toArray(new CircuitState[substates.size()]);
+    }
+  }
+
+  // Returns the index of p within the fast path grid, or -1 if values at p
+  // are kept on the slow path. Components can compute this once per port,
+  // since their port locations only change when their ends do.
+  public static int getFastpathSlot(Location p) {
     if (p.x >= 0 && p.y >= 0
         && p.x % 10 == 0 && p.y % 10 == 0
         && p.x < FASTPATH_GRID_WIDTH*10
-        && p.y < FASTPATH_GRID_HEIGHT*10) {
+        && p.y < FASTPATH_GRID_HEIGHT*10)
+      return (p.y/10) * FASTPATH_GRID_WIDTH + (p.x/10);
+    else
+      return -1;
+  }
+
+  // Equivalent to getValue(p), where slot is getFastpathSlot(p), but without
+  // locking or hashing on the fast path. This is safe without valuesLock: the
+  // grid only holds references to immutable Values, so a racing reader sees
+  // either the old or the new value, and the grid is written by the simulator
+  // thread, which is also the thread that propagates components.
+  public Value getValueAtSlot(int slot, Location p) {
+    if (slot < 0)
+      return getValue(p);
+    Value v = fastpath_values[slot];
+    if (v != null)
+      return v;
+    v = CircuitWires.getBusValue(this, p);
+    if (v != null)
+      return v;
+    return Value.createUnknown(circuit.getWidth(p));
+  }
+
+  public Value getValue(Location p) {
+    Value v = null;
+    int slot = getFastpathSlot(p);
+    if (slot >= 0) {
       // fast path
-      int x = p.x/10;
-      int y = p.y/10;
       synchronized (valuesLock) {
-        v = fastpath_values[y][x];
+        v = fastpath_values[slot];
       }
     } else {
       // slow path
@@ -456,19 +526,63 @@ public class CircuitState implements InstanceData {
 
   private void markAllComponentsDirty() {
     synchronized (dirtyLock) {
-      dirtyComponents.addAll(circuit.getNonWires());
+      for (Component comp : circuit.getNonWires())
+        addDirtyComponent(comp);
     }
+    markActive();
   }
 
   public void markComponentAsDirty(Component comp) {
     synchronized (dirtyLock) {
-      dirtyComponents.add(comp);
+      addDirtyComponent(comp);
     }
+    markActive();
   }
 
   public void markComponentsDirty(Collection<Component> comps) {
     synchronized (dirtyLock) {
-      dirtyComponents.addAll(comps);
+      for (Component comp : comps)
+        addDirtyComponent(comp);
+    }
+    markActive();
+  }
+
+  // precondition: dirtyLock held
+  private void addDirtyComponent(Component comp) {
+    int index = comp.getCircuitIndex();
+    if (index < 0) {
+      // not indexed (e.g. not yet added to circuit), fall back to a search
+      if (dirtyComponents.contains(comp))
+        duplicateDirtyMarks++;
+      else
+        dirtyComponents.add(comp);
+      return;
+    }
+    if (index >= dirtyStamps.length)
+      dirtyStamps = Arrays.copyOf(dirtyStamps,
+          Math.max(index + 1, 2 * dirtyStamps.length));
+    if (dirtyStamps[index] == dirtyEpoch) {
+      duplicateDirtyMarks++;
+      return;
+    }
+    dirtyStamps[index] = dirtyEpoch;
+    dirtyComponents.add(comp);
+  }
+
+  // precondition: dirtyLock held, and dirtyComponents was just emptied
+  private void nextDirtyEpoch() {
+    if (++dirtyEpoch == 0) {
+      // wrapped around, so old stamps could collide with new epochs
+      Arrays.fill(dirtyStamps, 0);
+      dirtyEpoch = 1;
+    }
+  }
+
+  // Number of times a component was marked dirty while it was already
+  // pending, and so was not queued (and propagated) a second time.
+  public long getDuplicateDirtyMarks() {
+    synchronized (dirtyLock) {
+      return duplicateDirtyMarks;
     }
   }
 
@@ -476,6 +590,31 @@ public class CircuitState implements InstanceData {
     synchronized(dirtyLock) {
       dirtyPoints.add(ev);
     }
+    markActive();
+  }
+
+  // Registers this state with its parent's active set, and likewise up the
+  // tree until reaching an ancestor that is already registered. Only one lock
+  // is held at a time, so this can't deadlock against reset(), which locks
+  // from the root downwards.
+  private void markActive() {
+    CircuitState s = this;
+    for (CircuitState p = s.parentState; p != null; s = p, p = p.parentState) {
+      synchronized (p.dirtyLock) {
+        if (s.activeInParent)
+          return;
+        s.activeInParent = true;
+        p.activeSubstates.add(s);
+      }
+    }
+  }
+
+  // precondition: dirtyLock held
+  private void deactivateSubstate(CircuitState sub) {
+    if (sub.activeInParent) {
+      sub.activeInParent = false;
+      activeSubstates.remove(sub);
+    }
   }
 
   // DEBUG: private void dumpDirty() {
@@ -508,22 +647,29 @@ public class CircuitState implements InstanceData {
       ArrayList<Component> other = dirtyComponents;
       dirtyComponents = dirtyComponentsWorking; // dirtyComponents is now empty
       dirtyComponentsWorking = other; // working set is now ready to process
-      if (substatesDirty) {
-        substatesDirty = false;
-        substatesWorking = substates.toArray(substatesWorking);
-			}
+      nextDirtyEpoch();
       // DEBUG: dumpDirty();
     }
 
     // DEBUG: boolean finished = false, progress = false;
+    SimulationProfile.Counter counter = SimulationProfile.enabled && !dirtyComponentsWorking.isEmpty()
+        ? SimulationProfile.forState(this) : null;
     try { // comp.propagate() can fail if external (or std) library is buggy
       for (Component comp : dirtyComponentsWorking) {
         // DEBUG: progress = true;
 				// DEBUG: System.out.printf("Propagating (from %s) for dirty component %s\n", this, comp);
-        comp.propagate(this);
+        if (counter == null)
+          comp.propagate(this);
+        else
+          SimulationProfile.propagate(counter, comp, this);
         // pin values also get propagated to parent state
-        if (comp.getFactory() instanceof Pin && parentState != null)
-          parentComp.propagate(parentState);
+        if (comp.getFactory() instanceof Pin && parentState != null) {
+          if (counter == null)
+            parentComp.propagate(parentState);
+          else
+            SimulationProfile.propagate(SimulationProfile.forState(parentState),
+                parentComp, parentState);
+        }
       }
       // DEBUG: finished = true;
     } finally {
@@ -535,15 +681,36 @@ public class CircuitState implements InstanceData {
     // DEBUG: if (progress)
     // DEBUG:   dumpDirty();
 
+    // The active set is taken only now, after our own components have
+    // propagated, so substates dirtied by those (e.g. subcircuit input pins)
+    // are still handled during this pass. Any substate dirtied after this
+    // point re-registers itself for the next pass.
+    synchronized (dirtyLock) {
+      ArrayList<CircuitState> other = activeSubstates;
+      activeSubstates = activeSubstatesWorking; // activeSubstates is now empty
+      activeSubstatesWorking = other;
+      for (CircuitState substate : activeSubstatesWorking)
+        substate.activeInParent = false;
+    }
+
     // DEBUG: boolean moreprogress = false;
-    for (CircuitState substate : substatesWorking) {
-      // DEBUG: moreprogress = true;
-			// DEBUG: System.out.printf("Recurse down for substate %s\n", substate);
-      if (substate == null)
-        break;
-      // DEBUG: substate.processDirtyComponents(tab+"==");
-      substate.processDirtyComponents();
-			// DEBUG: System.out.printf("Done recurse for substate %s\n", substate);
+    int n = activeSubstatesWorking.size();
+    int i = 0;
+    try {
+      for (; i < n; i++) {
+        // DEBUG: moreprogress = true;
+        CircuitState substate = activeSubstatesWorking.get(i);
+        // DEBUG: System.out.printf("Recurse down for substate %s\n", substate);
+        // DEBUG: substate.processDirtyComponents(tab+"==");
+        substate.processDirtyComponents();
+        // DEBUG: System.out.printf("Done recurse for substate %s\n", substate);
+      }
+    } finally {
+      // if a substate failed, keep the unvisited ones (including the failed
+      // one) registered, so their pending work isn't forgotten
+      for (; i < n; i++)
+        activeSubstatesWorking.get(i).markActive();
+      activeSubstatesWorking.clear();
     }
 
     // DEBUG: if (moreprogress)
@@ -555,8 +722,6 @@ public class CircuitState implements InstanceData {
   // private ArrayList<Location> dirtyPointsWorking = new ArrayList<>();
   // private ArrayList<Value> dirtyPointValsWorking = new ArrayList<>();
   private ArrayList<Propagator.SimulatorEvent> dirtyPointsWorking = new ArrayList<>();
-  private CircuitState[] substatesWorking = new CircuitState[0];
-  private boolean substatesDirty = true;
   void processDirtyPoints() {
     if (!dirtyPointsWorking.isEmpty())
       throw new IllegalStateException("INTERNAL ERROR: dirtyPointsWorking not empty");
@@ -567,10 +732,6 @@ public class CircuitState implements InstanceData {
       // dirtyPointVals = dirtyPointValsWorking; // dirtyPointVals is now empty
       dirtyPointsWorking = other; // working set is now ready to process
       // dirtyPointValsWorking = otherVals; // working set is now ready to process
-      if (substatesDirty) {
-        substatesDirty = false;
-        substatesWorking = substates.toArray(substatesWorking);
-      }
     }
     // Note: When a new wire map is created (because wires or splitters have
     // changed, for example), we need to mark all the splitter locations as
@@ -613,10 +774,16 @@ public class CircuitState implements InstanceData {
       // dirtyPointValsWorking.clear();
     // }
 
-    for (CircuitState substate : substatesWorking) {
-      if (substate == null)
-        break;
-      substate.processDirtyPoints();
+    // Substates stay registered here: their dirty components, if any, are
+    // handled (and the active set drained) by processDirtyComponents().
+    synchronized (dirtyLock) {
+      activeSubstatesWorking.addAll(activeSubstates);
+    }
+    try {
+      for (CircuitState substate : activeSubstatesWorking)
+        substate.processDirtyPoints();
+    } finally {
+      activeSubstatesWorking.clear();
     }
   }
 
@@ -640,6 +807,7 @@ public class CircuitState implements InstanceData {
     }
     synchronized (dirtyLock) {
       dirtyComponents.clear();
+      nextDirtyEpoch();
       dirtyPoints.clear();
       // dirtyPointVals.clear();
       for (CircuitState sub : substates)
@@ -661,18 +829,19 @@ public class CircuitState implements InstanceData {
         Thread.dumpStack();
         synchronized(dirtyLock) {
           substates.remove(oldState);
-          substatesDirty = true;
+          deactivateSubstate(oldState);
         }
+        base.unregisterStates(oldState);
         oldState.parentState = null;
         oldState.parentComp = null;
       }
       CircuitState newState = new CircuitState(proj, circ, base);
       synchronized(dirtyLock) {
         substates.add(newState);
-        substatesDirty = true;
       }
       newState.parentState = this;
       newState.parentComp = comp;
+      newState.markActive(); // components were marked dirty before linking
       componentData.put(comp, newState);
       return newState;
   }
@@ -702,13 +871,19 @@ public class CircuitState implements InstanceData {
 				if (old != null) {
 					substates.remove(old);
           old.parentState = null;
+          deactivateSubstate(old);
         }
 				// DEBUG: System.out.println("adding new substate " + sub);
         sub.parentState = this;
 				substates.add(sub);
-				substatesDirty = true;
-				dirtyComponents.add(comp);
+				addDirtyComponent(comp);
 			}
+      if (old != null && old != sub)
+        base.unregisterStates(old);
+      // the remove that detached sub also unregistered its subtree
+      base.registerStates(sub);
+      markActive();
+      sub.markActive();
     } else {
 			componentData.put(comp, data);
 		}
@@ -728,21 +903,26 @@ public class CircuitState implements InstanceData {
     base.setValue(this, pt, val, cause, delay);
   }
 
+  // Like setValue(), for a value emitted by end port of cause, which is at
+  // pt. Knowing the port lets the wires find the bus connection it drives
+  // without searching for it.
+  public void setPortValue(Location pt, int port, Value val, Component cause,
+      int delay) {
+    base.setValue(this, pt, val, cause, port, delay);
+  }
+
   private void clearFastpathGrid() { // precondition: valuesLock held
-    for (int y = 0; y < FASTPATH_GRID_HEIGHT; y++)
-      for (int x = 0; x < FASTPATH_GRID_WIDTH; x++)
-        fastpath_values[y][x] = null;
+    Arrays.fill(fastpath_values, null);
   }
 
   // for CircuitWires - to set value at point
-  void setValueByWire(Value v, Location[] points, CircuitWires.BusConnection[] connections) {
+  void setValueByWire(Value v, Location[] points, CircuitWires.BusConnection[] connections,
+      Value[] drivenValues) {
     for (Location p : points) {
-      if (p.x >= 0 && p.y >= 0
-          && p.x % 10 == 0 && p.y % 10 == 0
-          && p.x < FASTPATH_GRID_WIDTH*10
-          && p.y < FASTPATH_GRID_HEIGHT*10) {
+      int slot = getFastpathSlot(p);
+      if (slot >= 0) {
         synchronized (valuesLock) {
-          fastpath(p, v);
+          fastpath(slot, v);
         }
       } else {
         synchronized (valuesLock) {
@@ -752,7 +932,7 @@ public class CircuitState implements InstanceData {
       base.locationTouched(this, p);
     }
     for (CircuitWires.BusConnection bc : connections) {
-      if (bc.isSink || (bc.isBidirectional && !Value.equal(v, bc.drivenValue)))
+      if (bc.isSink || (bc.isBidirectional && !Value.equal(v, drivenValues[bc.index])))
         markComponentAsDirty(bc.component);
     }
   }
@@ -784,19 +964,17 @@ public class CircuitState implements InstanceData {
   //     markDirtyComponentsAt(p);
   // }
 
-  private boolean fastpath(Location p, Value v) { // precondition: valuesLock held
-    int x = p.x/10;
-    int y = p.y/10;
+  private boolean fastpath(int slot, Value v) { // precondition: valuesLock held
     if (v == Value.NIL) {
-      if (fastpath_values[y][x] != null) {
-        fastpath_values[y][x] = null;
+      if (fastpath_values[slot] != null) {
+        fastpath_values[slot] = null;
         return true;
       } else {
         return false;
       }
     } else {
-      if (!v.equals(fastpath_values[y][x])) {
-        fastpath_values[y][x] = v;
+      if (!v.equals(fastpath_values[slot])) {
+        fastpath_values[slot] = v;
         return true;
       } else {
         return false;
@@ -843,12 +1021,10 @@ public class CircuitState implements InstanceData {
     wireData = data;
   }
 
-  boolean toggleClocks(int ticks) {
+  // Ticks the clocks in this circuit only, not in substates. The Propagator
+  // keeps a registry of states to call this on.
+  boolean tickClocks(int ticks) {
     boolean hasClocks = false;
-
-    if (temporaryClock != null)
-      hasClocks |= temporaryClockValidateOrTick(ticks);
-
     for (Component clock : circuit.getClocks()) {
       hasClocks = true;
       boolean dirty = Clock.tick(this, ticks, clock);
@@ -860,20 +1036,15 @@ public class CircuitState implements InstanceData {
         proj.getSimulator().addPendingInput(this, clock);
       }
     }
+    return hasClocks;
+  }
 
-    synchronized (dirtyLock) {
-      if (substatesDirty) {
-        substatesDirty = false;
-        substatesWorking = substates.toArray(substatesWorking);
-      }
-    }
-    for (CircuitState substate : substatesWorking) {
-      if (substate == null)
-        break;
-      hasClocks |= substate.toggleClocks(ticks);
+  boolean tickTemporaryClock(int ticks) {
+    if (temporaryClock == null) {
+      base.setTemporaryClockState(this, false);
+      return false;
     }
-
-    return hasClocks;
+    return temporaryClockValidateOrTick(ticks);
   }
 
   private boolean temporaryClockValidateOrTick(int ticks) {
@@ -883,11 +1054,13 @@ public class CircuitState implements InstanceData {
       pin = (Pin)temporaryClock.getFactory();
     } catch (ClassCastException e) {
       temporaryClock = null;
+      base.setTemporaryClockState(this, false);
       return false;
     }
     Instance i = Instance.getInstanceFor(temporaryClock);
     if (i == null || !pin.isInputPin(i) || pin.getWidth(i).getWidth() != 1) {
       temporaryClock = null;
+      base.setTemporaryClockState(this, false);
       return false;
     }
     if (ticks >= 0) {
@@ -920,6 +1093,7 @@ public class CircuitState implements InstanceData {
 
   public boolean setTemporaryClock(Component clk) {
     temporaryClock = clk;
+    base.setTemporaryClockState(this, clk != null);
     return clk == null ? true : temporaryClockValidateOrTick(-1);
   }
   
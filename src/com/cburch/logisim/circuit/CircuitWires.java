@@ -135,6 +135,15 @@ public class CircuitWires {
 
     HashSet<WidthIncompatibilityData> getWidthIncompatibilityData() { return incompatibilityData; }
 
+    // Built on first use, by whichever thread first needs a State.
+    private Topology topology;
+
+    synchronized Topology getTopology() {
+      if (topology == null)
+        topology = new Topology(this);
+      return topology;
+    }
+
     void invalidate() { isValid = false; }
     boolean isValid() { return isValid; }
   }
@@ -147,54 +156,51 @@ public class CircuitWires {
     }
   }
 
-  // ValuedThread is similar to WireThread, but also holds the
-  // dynamically-computed 1-bit simulation Value carried on the thread as well.
+  // ValuedThread is similar to WireThread, but refers to ValuedBuses. Like
+  // ValuedBus, it is part of the Topology shared by all States, and the
+  // dynamically-computed 1-bit simulation Value carried on the thread is
+  // held separately for each State, in State.threadVal[id].
   static class ValuedThread {
 
-    int steps; // length of the thread (# of buses it traverses)
-    ValuedBus[] bus; // buses traversed by this thread
-    int[] position; // position of this thread within each of those buses
-    boolean pullUp, pullDown, pullError; // whether this thread is being pulled up, or down, or error, or neither
-    Value threadVal; // cached, resolved value carried by this thread (or error for conflicts, etc.)
-    // val is set to null when thread is dirty and should be recalculated
+    final int id; // index into State.threadVal[]
+    final int steps; // length of the thread (# of buses it traverses)
+    final ValuedBus[] bus; // buses traversed by this thread
+    final int[] position; // position of this thread within each of those buses
+    final boolean pullUp, pullDown, pullError; // whether this thread is being pulled up, or down, or error, or neither
 
-    ValuedThread(WireThread t, HashMap<WireBundle, ValuedBus> allBuses) {
+    ValuedThread(int id, WireThread t, HashMap<WireBundle, ValuedBus> allBuses) {
+      this.id = id;
       steps = t.steps;
       position = t.position;
       bus = new ValuedBus[steps];
+      boolean up = false, down = false, error = false;
       for (int i = 0; i < steps; i++) {
         WireBundle b = t.bundle[i];
         bus[i] = allBuses.get(b);
         Value pullHere = b.getPullValue();
-        pullUp |= (pullHere == Value.TRUE);
-        pullDown |= (pullHere == Value.FALSE);
-        pullError |= (pullHere == Value.ERROR);
+        up |= (pullHere == Value.TRUE);
+        down |= (pullHere == Value.FALSE);
+        error |= (pullHere == Value.ERROR);
       }
-      if (pullUp && pullDown) {
-        pullUp = pullDown = false;
-        pullError = true;
+      if (up && down) {
+        up = down = false;
+        error = true;
       }
+      pullUp = up;
+      pullDown = down;
+      pullError = error;
     }
 
-    // ValuedThread(ValuedThread t, HashMap<ValuedBus, ValuedBus> xBus) { // for cloning
-    //   steps = t.steps;
-    //   bus = new ValuedBus[steps];
-    //   for (int i = 0; i < steps; i++)
-    //     bus[i] = xBus.get(t.bus[i]);
-    //   position = t.position;
-    //   pullUp = t.pullUp;
-    //   pullDown = t.pullDown;
-    //   val = t.val;
-    // }
-
-    Value threadValue() {
+    // Returns the cached, resolved value carried by this thread in s (or
+    // error for conflicts, etc.), recomputing it if the thread is dirty.
+    Value threadValue(State s) {
+      Value threadVal = s.threadVal[id];
       if (threadVal != null)
         return threadVal;
       threadVal = Value.UNKNOWN;
       for (int i = 0; i < steps; i++) {
-        ValuedBus vb = bus[i];
         int pos = position[i];
-        Value v = vb.localDrivenValue;
+        Value v = s.localDrivenValue[bus[i].id];
         if (v != Value.NIL)
           threadVal = threadVal.combine(v.get(pos));
       }
@@ -206,13 +212,15 @@ public class CircuitWires {
         else if (pullError)
           threadVal = Value.ERROR;
       }
+      s.threadVal[id] = threadVal;
       return threadVal;
     }
 
   }
 
   // BusConnection represents a point at which a Component connects to a
-  // ValuedBus.
+  // ValuedBus. The value the component is driving onto the bus is kept for
+  // each State, in State.drivenValue[index].
   // FIXME: it might be best to hold a reference to some kind of
   // CircuitComponentInfo data structure instead here, where we can store a flag
   // about whether this component has been marked dirty yet or not.
@@ -220,12 +228,13 @@ public class CircuitWires {
     public final Component component;
     public final Location location;
     public final boolean isSink, isBidirectional;
-    public Value drivenValue; // value this component is driving onto the bus (null for sinks)
+    public final int index; // index into State.drivenValue[]
     // todo: maybe also keep point number, or EndData, etc.?
 
-    BusConnection(Component comp, Location loc) {
+    BusConnection(Component comp, Location loc, int idx) {
       component = comp;
       location = loc;
+      index = idx;
       EndData e = comp.getEnd(loc);
       if (e == null)
         System.out.printf("missing end for %s at %s\n", comp, loc);
@@ -234,53 +243,55 @@ public class CircuitWires {
       isSink = (e.getType() == EndData.INPUT_ONLY)
           || (comp.getFactory() instanceof Pin);
       isBidirectional = (e.getType() == EndData.INPUT_OUTPUT);
-      drivenValue = null;
     }
 
     @Override
     public String toString() {
-      return String.format("component %s at %s is %sdirectional %s val %s",
+      return String.format("component %s at %s is %sdirectional %s", 
           component, location, isBidirectional ? "bi" : "uni",
-          isSink ? "sink" : "source", drivenValue);
+          isSink ? "sink" : "source");
     }
   }
   
-  // ValuedBus is similar to WireBundle, but also holds the dynamically-computed
+  // ValuedBus is similar to WireBundle, but also knows how to compute the
   // n-bit simulation Value (formed from joining all n 1-bit values from the
-  // threads passing through this bus.
+  // threads passing through this bus). It is part of the Topology, so it is
+  // shared by all States, and the values themselves are kept in each State,
+  // in State.localDrivenValue[id] and State.busVal[id].
   // Degenerate case: If this bus isn't connected to any other buses (e.g. via
   // splitters), then all bits can be calculated together in one pass, rather
   // than calculating each thread separately then combining the results. This
   // case is detected by checking if there are dependent buses.
   static class ValuedBus {
 
-    int idx; // State.buses[idx] will hold this ValuedBus
-    int width; // negative for invalid width
+    final int id; // index into State arrays
+    final int width; // negative for invalid width
     ValuedThread[] threads; // threads passing through this bus (or null if dependentBuses is empty, or if invalid width)
 
     BusConnection[] connections; // sink and source components connected to this bus
     Location[] locations; // set of all locations for those connections
 
-    Value localDrivenValue; // sum of connections[i].drivenValue
-    Value busVal; // cached, resolved value carried by this bus (or error for conflicts, etc.)
-    boolean dirty; // whether localDrivenValue and busVal and valid
     ValuedBus[] dependentBuses; // other buses affected if this one's localDrivenValue changes
-    Value pullVal; // only used if dependentBuses is empty
-
-    // Location[] componentPoints; // subset of wire bundle xpoints that have components at them
-    // Component[][] componentsAffected; // components at each of those points
-    // Value[] valAtPoint;
-    // Value valAtPointSum; // cached sum of valAtPoint, or null if dirty
-
-    ValuedBus(int i, WireBundle wb, Connectivity cmap) {
-      idx = i;
-      filterComponents(cmap, wb.xpoints); // initializes locations[] and connections[]
+    final Value pullVal; // only used if dependentBuses is empty
+
+    // For buses with many connections, e.g. a shared tri-state data bus, each
+    // State keeps per-bit counts of the drivers driving 0, 1, and error, so
+    // that one driver changing costs O(1) instead of re-combining all of the
+    // connections. The counts are bit-sliced: count c of category k (ZEROS,
+    // ONES, ERRORS) for bit i is spread over countPlanes words, with bit j of
+    // c held in bit i of State.driverCounts[countBase + k*countPlanes + j].
+    int countBase = -1; // or -1 if driver counts are not kept for this bus
+    int countPlanes; // enough bits to count every connection
+
+    ValuedBus(int i, WireBundle wb, Connectivity cmap, ArrayList<BusConnection> allConnections) {
+      id = i;
+      filterComponents(cmap, wb.xpoints, allConnections); // initializes locations[] and connections[]
       width = wb.threads == null ? -1 : wb.getWidth().getWidth();
       pullVal = wb.getPullValue();
-      dirty = true;
     }
 
-    void filterComponents(Connectivity cmap, Location[] xpoints) {
+    void filterComponents(Connectivity cmap, Location[] xpoints,
+        ArrayList<BusConnection> allConnections) {
       ArrayList<Location> locs = new ArrayList<>();
       ArrayList<BusConnection> conns = new ArrayList<>();
       for (Location p : xpoints) {
@@ -288,23 +299,17 @@ public class CircuitWires {
         if (a == null)
           continue;
         locs.add(p);
-        for (Component c : a)
-          conns.add(new BusConnection(c, p));
+        for (Component c : a) {
+          BusConnection bc = new BusConnection(c, p, allConnections.size());
+          allConnections.add(bc);
+          conns.add(bc);
+        }
       }
       int n = locs.size();
       locations = n == xpoints.length ? xpoints : locs.toArray(new Location[n]);
       connections = conns.toArray(new BusConnection[conns.size()]);
     }
 
-    // ValuedBus(ValuedBus vb) { // for cloning
-    //   idx = vb.idx;
-    //   componentPoints = vb.componentPoints;
-    //   valAtPoint = vb.valAtPoint.clone();
-    //   valAtPointSum = vb.valAtPointSum;
-    //   width = vb.width;
-    //   dirty = vb.dirty;
-    // }
-
     void makeThreads(WireThread[] wbthreads, HashMap<WireBundle, ValuedBus> allBuses,
         HashMap<WireThread, ValuedThread> allThreads) {
       if (width <= 0)
@@ -323,121 +328,126 @@ public class CircuitWires {
         WireThread t = wbthreads[i];
         threads[i] = allThreads.get(t);
         if (threads[i] == null) {
-          threads[i] = new ValuedThread(t, allBuses);
+          threads[i] = new ValuedThread(allThreads.size(), t, allBuses);
           allThreads.put(t, threads[i]);
         }
       }
     }
 
-    // void makeThreads(ValuedThread[] oldThreads, HashMap<ValuedBus, ValuedBus> xBus,
-    //     HashMap<ValuedThread, ValuedThread> xThread) { // for cloning
-    //   if (width <= 0)
-    //     return;
-    //   threads = new ValuedThread[width];
-    //   for (int i = 0; i < width; i++) {
-    //     ValuedThread tOld = oldThreads[i];
-    //     ValuedThread tNew = xThread.get(tOld);
-    //     if (tNew == null) {
-    //       tNew = new ValuedThread(tOld, xBus);
-    //       xThread.put(tOld, tNew);
-    //     }
-    //     threads[i] = tNew;
-    //   }
-    // }
- 
-    Value recalculate() {
+    // Recomputes and caches the value of this bus in s, which must already
+    // have an up-to-date localDrivenValue for this bus and its dependents.
+    Value recalculate(State s) {
+      Value busVal;
       if (width <= 0) {
         busVal = Value.NIL;
-        dirty = false;
-        return busVal;
       } else if (dependentBuses.length == 0) {
         // degenerate case: threads are irrelevant
-        busVal = localDrivenValue;
+        busVal = s.localDrivenValue[id];
         if (pullVal != null)
           busVal = busVal.pullEachBitTowards(pullVal);
-        dirty = false;
-        return busVal;
       } else if (width == 1) {
-        busVal = threads[0].threadValue();
-        dirty = false;
-        return busVal;
-      }
-      int error = 0, unknown = 0, value = 0;
-      for (int i = 0; i < width; i++) {
-        int mask = 1 << i;
-        Value tv = threads[i].threadValue();
-        if (tv == Value.TRUE)
-          value |= mask;
-        else if (tv == Value.FALSE)
-          ;
-        else if (tv == Value.UNKNOWN)
-          unknown |= mask;
-        else
-          error |= mask;
+        busVal = threads[0].threadValue(s);
+      } else {
+        int error = 0, unknown = 0, value = 0;
+        for (int i = 0; i < width; i++) {
+          int mask = 1 << i;
+          Value tv = threads[i].threadValue(s);
+          if (tv == Value.TRUE)
+            value |= mask;
+          else if (tv == Value.FALSE)
+            ;
+          else if (tv == Value.UNKNOWN)
+            unknown |= mask;
+          else
+            error |= mask;
+        }
+        busVal = Value.create_unsafe(width, error, unknown, value);
       }
-      busVal = Value.create_unsafe(width, error, unknown, value);
-      dirty = false;
+      s.busVal[id] = busVal;
       return busVal;
     }
 
   }
 
-  State newState(CircuitState circState) { // for cloning CircuitState
-    return new State(getConnectivity(), circState.getWireData());
-  }
-
-  // DEBUG: void dump(String tab, State s) {
-  // DEBUG:   for (int i = 0; i < s.buses.length; i++) {
-  // DEBUG:     System.out.printf(tab+"bus %d of %d (%s):\n", i, s.buses.length,
-  // DEBUG:         i < s.numDirty ? "dirty" : "clean");
-  // DEBUG:     ValuedBus vb = s.buses[i];
-  // DEBUG:     System.out.printf(tab+"  idx %d (%s) width %s threads %s val %s %s\n", vb.idx, 
-  // DEBUG:         vb.dirty ? "dirty" : "clean",
-  // DEBUG:         vb.width, vb.threads,
-  // DEBUG:         vb.localDrivenValue, vb.busVal);
-  // DEBUG:     for (int j = 0; j < vb.connections.length; j++) {
-  // DEBUG:       System.out.printf(tab+"    connection at %s to %s\n",
-  // DEBUG:           vb.locations[j], vb.connections[j]);
-  // DEBUG:     }
-  // DEBUG:   }
-  // DEBUG: }
-
-  static class State {
-    private Connectivity connectivity; // original source of connectivity info
-    HashMap<Location, ValuedBus> busAt = new HashMap<>();
-    ValuedBus[] buses;
-    int numDirty;
-
-    State(Connectivity cm, State prev) {
-      connectivity = cm;
+  // Topology holds the ValuedBuses and ValuedThreads derived from one
+  // Connectivity. It never changes once built, and it is shared by the States
+  // of every instance of the circuit, so that a design with thousands of
+  // subcircuit instances builds it only once. Each State holds only the
+  // values, in flat arrays indexed by bus, thread, and connection id.
+  static class Topology {
+    final HashMap<Location, ValuedBus> busAt = new HashMap<>();
+    final ValuedBus[] buses;
+    final int numThreads;
+    final int numConnections;
+    final int numCountWords;
+    final ValuedBus[] busOfConnection; // indexed by BusConnection.index
+    // portConnections[c.getCircuitIndex()][i] is the connection through which
+    // end i of component c drives its bus, or null if that end is unwired.
+    final BusConnection[][] portConnections;
+
+    // Below this many connections, re-combining every driven value is about
+    // as cheap as maintaining counts.
+    static final int COUNTED_CONNECTIONS = 8;
+
+    Topology(Connectivity connectivity) {
       HashMap<WireBundle, ValuedBus> allBuses = new HashMap<>();
-      HashMap<ValuedBus, WireBundle> srcBuses = new HashMap<>();
+      ArrayList<BusConnection> allConnections = new ArrayList<>();
       // initialize buses[] and busAt<>
-      buses = new ValuedBus[connectivity.bundles.size()];
+      WireBundle[] src = new WireBundle[connectivity.bundles.size()];
+      buses = new ValuedBus[src.length];
       int idx = 0;
       for (WireBundle wb : connectivity.bundles) {
-        ValuedBus vb = new ValuedBus(idx++, wb, connectivity);
-        buses[vb.idx] = vb;
+        ValuedBus vb = new ValuedBus(idx, wb, connectivity, allConnections);
+        buses[idx] = vb;
+        src[idx] = wb;
+        idx++;
         for (Location loc : wb.xpoints) {
           ValuedBus old = busAt.put(loc, vb);
           if (old != null)
             throw new IllegalStateException("oops, two wires occupy same location");
         }
         allBuses.put(wb, vb);
-        srcBuses.put(vb, wb);
       }
       // create threads for all buses that need them
       HashMap<WireThread, ValuedThread> allThreads = new HashMap<>();
       for (ValuedBus vb : buses)
-        vb.makeThreads(srcBuses.get(vb).threads, allBuses, allThreads);
-      // initialize BusConnection driven values from previous State, if any,
-      // but only if they are not sinks (or pins, which always count as sinks)
-      if (prev != null) {
-        for (ValuedBus vb : buses)
-          for (BusConnection bc : vb.connections)
-            if (!bc.isSink)
-              bc.drivenValue = prev.getDrivenValue(bc.component, bc.location);
+        vb.makeThreads(src[vb.id].threads, allBuses, allThreads);
+      numThreads = allThreads.size();
+      numConnections = allConnections.size();
+      // index the connections by component and end, for connectionFor()
+      busOfConnection = new ValuedBus[numConnections];
+      int maxIndex = -1;
+      for (ValuedBus vb : buses) {
+        for (BusConnection bc : vb.connections) {
+          busOfConnection[bc.index] = vb;
+          maxIndex = Math.max(maxIndex, bc.component.getCircuitIndex());
+        }
+      }
+      portConnections = new BusConnection[maxIndex + 1][];
+      for (BusConnection bc : allConnections) {
+        int c = bc.component.getCircuitIndex();
+        if (c < 0)
+          continue;
+        List<EndData> ends = bc.component.getEnds();
+        if (portConnections[c] == null)
+          portConnections[c] = new BusConnection[ends.size()];
+        BusConnection[] ports = portConnections[c];
+        for (int i = 0; i < ends.size() && i < ports.length; i++) {
+          if (ends.get(i).getLocation().equals(bc.location))
+            ports[i] = bc;
+        }
+      }
+      // allocate driver counts for buses with many connections
+      int words = 0;
+      for (ValuedBus vb : buses) {
+        int n = vb.connections.length;
+        if (vb.width <= 0 || n < COUNTED_CONNECTIONS)
+          continue;
+        vb.countBase = words;
+        vb.countPlanes = 32 - Integer.numberOfLeadingZeros(n);
+        words += 3 * vb.countPlanes;
       }
+      numCountWords = words;
       // compute bus dependencies
       for (ValuedBus vb : buses) {
         if (vb.width <= 0)
@@ -455,89 +465,202 @@ public class CircuitWires {
           vb.dependentBuses = deps.toArray(new ValuedBus[n]);
         }
       }
-      // mark all dirty: recomputes values and triggers component propagation
-      numDirty = buses.length;
     }
     static final ValuedBus[] EMPTY_DEPENDENCIES = new ValuedBus[0];
 
+    // Returns the connection through which end port of comp, at loc, drives
+    // its bus, or null if there is none or it isn't known here, in which case
+    // the bus at loc must be searched instead.
+    BusConnection connectionFor(Component comp, int port, Location loc) {
+      int c = comp.getCircuitIndex();
+      if (port < 0 || c < 0 || c >= portConnections.length)
+        return null;
+      BusConnection[] ports = portConnections[c];
+      if (ports == null || port >= ports.length)
+        return null;
+      BusConnection bc = ports[port];
+      if (bc == null || bc.component != comp || !bc.location.equals(loc))
+        return null;
+      return bc;
+    }
+  }
+
+  State newState(CircuitState circState) { // for cloning CircuitState
+    return new State(getConnectivity(), circState.getWireData());
+  }
+
+  // DEBUG: void dump(String tab, State s) {
+  // DEBUG:   ValuedBus[] buses = s.topology.buses;
+  // DEBUG:   for (int i = 0; i < buses.length; i++) {
+  // DEBUG:     ValuedBus vb = buses[i];
+  // DEBUG:     System.out.printf(tab+"bus %d of %d (%s):\n", i, buses.length,
+  // DEBUG:         s.isDirty[i] ? "dirty" : "clean");
+  // DEBUG:     System.out.printf(tab+"  width %s threads %s val %s %s\n",
+  // DEBUG:         vb.width, vb.threads,
+  // DEBUG:         s.localDrivenValue[i], s.busVal[i]);
+  // DEBUG:     for (int j = 0; j < vb.connections.length; j++) {
+  // DEBUG:       System.out.printf(tab+"    connection at %s to %s val %s\n",
+  // DEBUG:           vb.locations[j], vb.connections[j],
+  // DEBUG:           s.drivenValue[vb.connections[j].index]);
+  // DEBUG:     }
+  // DEBUG:   }
+  // DEBUG: }
+
+  // State holds the simulation values for one instance of the circuit, i.e.
+  // for one CircuitState. The structure of the buses comes from the shared
+  // Topology.
+  static class State {
+    private Connectivity connectivity; // original source of connectivity info
+    final Topology topology;
+    final Value[] drivenValue; // by connection: value driven onto the bus (null for sinks)
+    final Value[] localDrivenValue; // by bus: sum of the driven values of its connections
+    final Value[] busVal; // by bus: cached, resolved value carried by the bus
+    final Value[] threadVal; // by thread: cached, resolved value, or null when dirty
+    final boolean[] isDirty; // by bus: whether localDrivenValue and busVal are invalid
+    final int[] driverCounts; // see ValuedBus.countBase
+    final ValuedBus[] dirty; // the dirty buses, in dirty[0..numDirty-1]
+    int numDirty;
+
+    State(Connectivity cm, State prev) {
+      connectivity = cm;
+      topology = cm.getTopology();
+      int n = topology.buses.length;
+      drivenValue = new Value[topology.numConnections];
+      localDrivenValue = new Value[n];
+      busVal = new Value[n];
+      threadVal = new Value[topology.numThreads];
+      isDirty = new boolean[n];
+      driverCounts = new int[topology.numCountWords];
+      dirty = new ValuedBus[n];
+      // initialize driven values from previous State, if any, but only if
+      // they are not sinks (or pins, which always count as sinks)
+      if (prev != null) {
+        for (ValuedBus vb : topology.buses)
+          for (BusConnection bc : vb.connections)
+            if (!bc.isSink)
+              drivenValue[bc.index] = prev.getDrivenValue(bc.component, bc.location);
+      }
+      for (ValuedBus vb : topology.buses)
+        if (vb.countBase >= 0)
+          for (BusConnection bc : vb.connections)
+            countDriver(vb, drivenValue[bc.index], true);
+      // mark all dirty: recomputes values and triggers component propagation
+      for (ValuedBus vb : topology.buses) {
+        isDirty[vb.id] = true;
+        dirty[numDirty++] = vb;
+      }
+    }
+
     Value getDrivenValue(Component c, Location loc) {
-      ValuedBus vb = busAt.get(loc);
+      ValuedBus vb = topology.busAt.get(loc);
       if (vb == null)
         return null;
       for (BusConnection bc : vb.connections) {
         if (bc.component.equals(c) && bc.location.equals(loc))
-          return bc.drivenValue;
+          return drivenValue[bc.index];
       }
       return null;
     }
 
-    // State(State s) { // for cloning
-    //   this.connectivity = s.connectivity;
-    //   this.buses = new ValuedBus[s.buses.length];
-    //   this.numDirty = s.numDirty;
-    //   HashMap<ValuedBus, ValuedBus> xBus = new HashMap<>();
-    //   for (int i = 0; i < buses.length; i++) {
-    //     ValuedBus vbOld = s.buses[i];
-    //     ValuedBus vbNew = new ValuedBus(vbOld);
-    //     buses[i] = vbNew;
-    //     xBus.put(vbOld, vbNew);
-    //   }
-    //   HashMap<ValuedThread, ValuedThread> xThread = new HashMap<>();
-    //   for (int i = 0; i < buses.length; i++) {
-    //     ValuedBus vbOld = s.buses[i];
-    //     ValuedBus vbNew = buses[i];
-    //     if (vbOld.dependentBuses != null) {
-    //       int n = vbOld.dependentBuses.length;
-    //       vbNew.dependentBuses = new ValuedBus[n];
-    //       for (int j = 0; j < n; j++)
-    //         vbNew.dependentBuses[j] = xBus.get(vbOld);
-    //     }
-    //     vbNew.makeThreads(vbOld.threads, xBus, xThread);
-    //   }
-    // }
+    static final int ZEROS = 0, ONES = 1, ERRORS = 2; // driver count categories
 
-    void markClean(ValuedBus vb) {
-      if (!vb.dirty)
-        throw new IllegalStateException("can't clean element that is not dirty");
-      if (vb.idx > numDirty-1)
-        throw new IllegalStateException("bad position for dirty element");
-      if (vb.idx < numDirty-1) { // swap toward end of dirty section of array
-        ValuedBus other = buses[numDirty-1];
-        other.idx = vb.idx;
-        buses[other.idx] = other;
-        vb.idx = numDirty - 1;
-        buses[vb.idx] = vb;
+    // Adds (or removes) v to the driver counts of counted bus vb.
+    void countDriver(ValuedBus vb, Value v, boolean add) {
+      if (v == null || v == Value.NIL)
+        return;
+      if (v.getWidth() != vb.width)
+        throw new IllegalArgumentException("INTERNAL ERROR: mismatched widths in driver counts");
+      int mask = vb.width == 32 ? -1 : ~(-1 << vb.width);
+      int error = v.getErrorMask();
+      int ones = v.getValueMask();
+      int zeros = ~ones & ~v.getUnknownMask() & ~error & mask;
+      int k = vb.countPlanes;
+      int base = vb.countBase;
+      if (add) {
+        increment(base + ZEROS*k, k, zeros);
+        increment(base + ONES*k, k, ones);
+        increment(base + ERRORS*k, k, error);
+      } else {
+        decrement(base + ZEROS*k, k, zeros);
+        decrement(base + ONES*k, k, ones);
+        decrement(base + ERRORS*k, k, error);
       }
-      vb.dirty = false;
-      numDirty--;
     }
 
-    void markDirty(ValuedBus vb) {
-      if (vb.dirty)
+    // Adds one to the bit-sliced count of each bit in mask.
+    private void increment(int start, int planes, int mask) {
+      int carry = mask;
+      for (int j = start; carry != 0 && j < start + planes; j++) {
+        int c = driverCounts[j];
+        driverCounts[j] = c ^ carry;
+        carry &= c;
+      }
+    }
+
+    // Subtracts one from the bit-sliced count of each bit in mask.
+    private void decrement(int start, int planes, int mask) {
+      int borrow = mask;
+      for (int j = start; borrow != 0 && j < start + planes; j++) {
+        int c = driverCounts[j];
+        driverCounts[j] = c ^ borrow;
+        borrow &= ~c;
+      }
+    }
+
+    // Bits for which the count in the given category is non-zero.
+    private int nonzero(ValuedBus vb, int category) {
+      int start = vb.countBase + category * vb.countPlanes;
+      int any = 0;
+      for (int j = start; j < start + vb.countPlanes; j++)
+        any |= driverCounts[j];
+      return any;
+    }
+
+    // Same result as Value.combineLikeWidths() over all the connections of
+    // counted bus vb, but computed from the driver counts.
+    Value combineCounted(ValuedBus vb) {
+      int zeros = nonzero(vb, ZEROS);
+      int ones = nonzero(vb, ONES);
+      int error = nonzero(vb, ERRORS) | (zeros & ones);
+      int unknown = ~(zeros | ones | error);
+      return Value.create(vb.width, error, unknown, ones);
+    }
+
+    // Records val as the value bc drives onto vb.
+    void drive(ValuedBus vb, BusConnection bc, Value val) {
+      Value old = drivenValue[bc.index];
+      if (Value.equal(old, val))
         return;
-      if (vb.idx < numDirty)
-        throw new IllegalStateException("bad position for clean element");
-      vb.localDrivenValue = null; // need to recompute based on connections[i].drivenValue
-      vb.busVal = null; // need to recompute based on threads[i].threadValue
-      if (vb.idx > numDirty) { // swap toward dirty section of array
-        ValuedBus other = buses[numDirty];
-        other.idx = vb.idx;
-        buses[other.idx] = other;
-        vb.idx = numDirty;
-        buses[vb.idx] = vb;
+      drivenValue[bc.index] = val;
+      if (vb.countBase >= 0) {
+        countDriver(vb, old, false);
+        countDriver(vb, val, true);
       }
+      markDirty(vb);
+      for (ValuedBus dep : vb.dependentBuses)
+        markDirty(dep);
+    }
+
+    void markDirty(ValuedBus vb) {
+      if (isDirty[vb.id])
+        return;
+      localDrivenValue[vb.id] = null; // need to recompute based on drivenValue[]
+      busVal[vb.id] = null; // need to recompute based on threadVal[]
       if (vb.threads != null) { // invalidate threads
         for (ValuedThread vt : vb.threads)
-          vt.threadVal = null;
+          threadVal[vt.id] = null;
       }
-      vb.dirty = true;
-      numDirty++;
+      isDirty[vb.id] = true;
+      dirty[numDirty++] = vb;
     }
 
-    // @Override
-    // public Object clone() {
-    //   return new State(this);
-    // }
+    void markAllClean() {
+      for (int i = 0; i < numDirty; i++) {
+        isDirty[dirty[i].id] = false;
+        dirty[i] = null;
+      }
+      numDirty = 0;
+    }
   }
 
   // Elements of the circuit, organized by type.
@@ -883,10 +1006,10 @@ public class CircuitWires {
     State s = state.getWireData();
     if (s == null)
       return Value.NIL; // return state.getValue(loc); // fallback, probably wrong, who cares
-    ValuedBus vb = s.busAt.get(loc);
+    ValuedBus vb = s.topology.busAt.get(loc);
     if (vb == null)
       return Value.NIL; // return state.getValue(loc); // fallback, probably wrong, who cares
-    Value v = vb.busVal;
+    Value v = s.busVal[vb.id];
     if (v == null)
       return Value.NIL; // return state.getValue(loc); // fallback, probably wrong, who cares
     return v;
@@ -1180,7 +1303,16 @@ public class CircuitWires {
       Component cause = ev.cause;
       Value val = ev.val;
 
-      ValuedBus vb = s.busAt.get(p);
+      // values set through a component's port go straight to its connection
+      BusConnection known = s.topology.connectionFor(cause, ev.port, p);
+      if (known != null) {
+        ValuedBus vb = s.topology.busOfConnection[known.index];
+        if (vb.width > 0)
+          s.drive(vb, known, val);
+        continue;
+      }
+
+      ValuedBus vb = s.topology.busAt.get(p);
       if (vb == null) {
         // DEBUG: System.out.printf("simulator event, but no bus: comp=%s loc=%s val=%s\n", cause, p, val);
         // point is not wired: just set that point's value and be done
@@ -1206,13 +1338,7 @@ public class CircuitWires {
         // fixme: sort the connections list, sources first, then bidir, then sinks
         for (BusConnection bc : vb.connections) {
           if (bc.location.equals(p) && bc.component.equals(cause)) {
-            Value old = bc.drivenValue;
-            if (Value.equal(old, val))
-              continue;
-            bc.drivenValue = val;
-            s.markDirty(vb);
-            for (ValuedBus dep : vb.dependentBuses)
-              s.markDirty(dep);
+            s.drive(vb, bc, val);
             break;
           }
         }
@@ -1224,12 +1350,14 @@ public class CircuitWires {
 
     // recompute localDrivenValue for each dirty bus
     for (int i = 0; i < s.numDirty; i++) {
-      ValuedBus vb = s.buses[i];
+      ValuedBus vb = s.dirty[i];
       if (vb.width <= 0) {
         // this bundle has inconsistent widths, or no width, hence no localDrivenValue
-        vb.localDrivenValue = Value.NIL;
+        s.localDrivenValue[vb.id] = Value.NIL;
+      } else if (vb.countBase >= 0) {
+        s.localDrivenValue[vb.id] = s.combineCounted(vb);
       } else {
-        vb.localDrivenValue = Value.combineLikeWidths(vb.width, vb.connections);
+        s.localDrivenValue[vb.id] = Value.combineLikeWidths(vb.width, vb.connections, s.drivenValue);
       }
     }
 
@@ -1237,12 +1365,12 @@ public class CircuitWires {
     // recompute aggregate busVal for all dirty buses,
     // and post those results to the circuit state
     for (int i = 0; i < s.numDirty; i++) {
-      ValuedBus vb = s.buses[i];
-      Value old = vb.busVal;
-      Value val = vb.recalculate();
+      ValuedBus vb = s.dirty[i];
+      Value old = s.busVal[vb.id];
+      Value val = vb.recalculate(s);
       if (Value.equal(old, val))
         continue;
-      circState.setValueByWire(val, vb.locations, vb.connections);
+      circState.setValueByWire(val, vb.locations, vb.connections, s.drivenValue);
       // int n = vb.componentPoints.length;
       // for (int j = 0; j < n; j++) {
       //   Location p = vb.componentPoints[j];
@@ -1251,7 +1379,7 @@ public class CircuitWires {
       //   circState.setValueByWire(p, val, affected);
       // }
     }
-    s.numDirty = 0;
+    s.markAllClean();
   }
 
   private Bounds recomputeBounds() {
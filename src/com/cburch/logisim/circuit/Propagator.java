@@ -30,6 +30,10 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 //import java.util.PriorityQueue;
 import java.util.Random;
 import java.lang.ref.WeakReference;
@@ -107,15 +111,17 @@ public class Propagator {
     CircuitState state; // state of circuit containing component
     Location loc; // the location at which value is emitted
     Component cause; // component emitting the value
+    int port; // index of the cause's end at loc, or -1 if not known
     Value val; // value being emitted
 
     private SimulatorEvent(int time, int serialNumber,
-        CircuitState state, Location loc, Component cause, Value val) {
+        CircuitState state, Location loc, Component cause, int port, Value val) {
       super(((long)time << 32) | (serialNumber & 0xFFFFFFFFL));
       this.time = time;
       this.serialNumber = serialNumber;
       this.state = state;
       this.cause = cause;
+      this.port = port;
       this.loc = loc;
       this.val = val;
       // System.out.printf("sim event: %s at %s by %s\n", val, loc, cause);
@@ -127,7 +133,7 @@ public class Propagator {
       Propagator newProp = newState.getPropagator();
       int dtime = newProp.clock - state.getPropagator().clock;
       SimulatorEvent ret = new SimulatorEvent(time + dtime,
-          newProp.eventSerialNumber++, newState, loc, cause, val);
+          newProp.eventSerialNumber++, newState, loc, cause, port, val);
       return ret;
     }
 
@@ -146,6 +152,67 @@ public class Propagator {
     }
   }
 
+  // CycleDetector recognizes oscillation without waiting for simLimit. Each
+  // step is summarized by a fingerprint, an order-independent hash of the
+  // (state, location, value) triples it processes. A deterministic circuit
+  // that oscillates eventually repeats the same sequence of steps forever, so
+  // once the last few fingerprints repeat with some period P, over several
+  // whole periods, the circuit is taken to be oscillating with period P. A
+  // settling circuit, such as a long ripple-carry chain, changes different
+  // points at each step and so never matches. With random noise enabled the
+  // steps rarely repeat exactly, and detection falls back on simLimit.
+  // Simulator also uses one, fed with whole clock ticks rather than steps, to
+  // notice when a clocked design has settled into an idle loop.
+  static class CycleDetector {
+    static final int HISTORY = 1024; // longest detectable period is a third of this
+    static final int MIN_PERIODS = 3; // matching periods needed
+    static final int MIN_STEPS = 16; // matching steps needed
+
+    final long[] history = new long[HISTORY]; // ring buffer of fingerprints
+    final long[] seenPrint = new long[HISTORY]; // direct-mapped: fingerprint...
+    final int[] seenStep = new int[HISTORY]; // ... and step it last occurred
+    int steps;
+    int period;
+    int run; // consecutive steps matching the step one period earlier
+
+    void reset() {
+      steps = 0;
+      period = 0;
+      run = 0;
+      Arrays.fill(seenStep, -1);
+    }
+
+    // Records the fingerprint of the next step, and returns the period of the
+    // repeating cycle just confirmed, or zero if there is none yet.
+    int record(long print) {
+      int t = steps++;
+      int slot = (int) (print ^ (print >>> 32)) & (HISTORY - 1);
+      history[t % HISTORY] = print;
+      if (period > 0 && history[(t - period) % HISTORY] == print) {
+        run++;
+      } else {
+        // Guess the period from the last occurrence of this fingerprint.
+        int prev = seenPrint[slot] == print ? seenStep[slot] : -1;
+        period = (prev >= 0 && t - prev <= HISTORY / MIN_PERIODS) ? t - prev : 0;
+        run = period > 0 ? 1 : 0;
+      }
+      seenPrint[slot] = print;
+      seenStep[slot] = t;
+      if (period > 0 && run >= MIN_PERIODS * period && run >= MIN_STEPS)
+        return period;
+      return 0;
+    }
+
+    static long mix(CircuitState state, Location loc, Value val) {
+      long h = System.identityHashCode(state);
+      h = h * 0x9e3779b97f4a7c15L + loc.hashCode();
+      h = h * 0x9e3779b97f4a7c15L + val.hashCode();
+      h ^= h >>> 31;
+      h *= 0xbf58476d1ce4e5b9L;
+      return h ^ (h >>> 29);
+    }
+  }
+
   // // This one is only used to initialize  TODO: can we eliminate this... is it used only when initializing BundleMap?
   // static Value getDrivenValueAt(CircuitState circState, Location p) {
   //   // for CircuitWires - to get values, ignoring wires' contributions
@@ -216,11 +283,29 @@ public class Propagator {
   private boolean isOscillating = false;
   private boolean oscAdding = false;
   private PropagationPoints oscPoints = new PropagationPoints();
+  private CycleDetector cycles = new CycleDetector();
+  private long stepFingerprint; // of the latest stepInternal() call
+  private long tickFingerprint; // of all steps since the latest toggleClocks()
   private int halfClockCycles = 0;
   private Random noiseSource = new Random();
   private int noiseCount = 0;
 
   private int eventSerialNumber = 0;
+  private long eventsProcessed = 0; // total, for throughput measurement
+
+  // Clock registry: every CircuitState in this propagator's tree, grouped by
+  // circuit, plus those states currently driven by a temporary clock. Ticking
+  // then visits only states whose circuit actually contains clocks, instead
+  // of walking the entire state tree every half cycle. Since the clocks of a
+  // circuit are looked up at tick time, adding or removing a clock needs no
+  // bookkeeping here, only creating, discarding or reattaching states does.
+  // Both are insertion ordered, so circuits tick in the order their first
+  // state was created, the root first, and the same run always ticks the
+  // same way, as the recursive walk used to.
+  private LinkedHashMap<Circuit, LinkedHashSet<CircuitState>> statesByCircuit = new LinkedHashMap<>(); // protected by registryLock
+  private LinkedHashSet<CircuitState> temporaryClockStates = new LinkedHashSet<>(); // protected by registryLock
+  private ArrayList<CircuitState> clockedStatesWorking = new ArrayList<>();
+  private Object registryLock = new Object();
 
   static int lastId = 0;
   int id = lastId++;
@@ -237,6 +322,7 @@ public class Propagator {
     root.getProject().getOptions().getAttributeSet().addAttributeWeakListener(this, l);
     updateRandomness();
     updateSimLimit();
+    SimulationProfile.register();
   }
 
   // // precondition: state.valuesLock held
@@ -286,10 +372,23 @@ public class Propagator {
     return halfClockCycles;
   }
 
+  // Number of simulator events (value changes at a location) processed since
+  // this propagator was created.
+  public long getEventsProcessed() {
+    return eventsProcessed;
+  }
+
   public boolean isOscillating() {
     return isOscillating;
   }
 
+  // Summarizes, in order, every step taken since the clocks were last
+  // toggled. Two ticks with equal fingerprints changed the same values at the
+  // same points in the same order.
+  long getTickFingerprint() {
+    return tickFingerprint;
+  }
+
   boolean isPending() {
     return !toProcess.isEmpty();
   }
@@ -311,12 +410,22 @@ public class Propagator {
     int oscThreshold = simLimit;
     int logThreshold = 3 * oscThreshold / 4;
     int iters = 0;
+    int cycleSteps = 0; // steps left in the cycle being recorded, if any
+    cycles.reset();
     while (!toProcess.isEmpty()) {
       if (iters > 0 && propListener != null)
         propListener.propagationInProgress(propEvent);
       iters++;
 
-      if (iters < logThreshold) {
+      if (cycleSteps > 0) {
+        // record exactly one period, which is precisely the oscillating loop
+        stepInternal(oscPoints);
+        if (--cycleSteps == 0) {
+          isOscillating = true;
+          oscAdding = false;
+          return true;
+        }
+      } else if (iters < logThreshold) {
         stepInternal(null);
       } else if (iters < oscThreshold) {
         oscAdding = true;
@@ -326,6 +435,15 @@ public class Propagator {
         oscAdding = false;
         return true;
       }
+
+      if (cycleSteps == 0) {
+        int period = cycles.record(stepFingerprint);
+        if (period > 0) {
+          oscPoints.clear();
+          oscAdding = true;
+          cycleSteps = period;
+        }
+      }
     }
     isOscillating = false;
     oscAdding = false;
@@ -368,6 +486,11 @@ public class Propagator {
   }
 
   void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
+    setValue(state, pt, val, cause, -1, delay);
+  }
+
+  void setValue(CircuitState state, Location pt, Value val, Component cause,
+      int port, int delay) {
     if (cause instanceof Wire || cause instanceof Splitter)
       return;
     if (delay <= 0) {
@@ -387,7 +510,9 @@ public class Propagator {
         }
       }
     }
-    toProcess.add(new SimulatorEvent(clock + delay, eventSerialNumber, state, pt, cause, val));
+    toProcess.add(new SimulatorEvent(clock + delay, eventSerialNumber, state, pt, cause, port, val));
+    if (SimulationProfile.enabled)
+      SimulationProfile.eventScheduled(state, cause);
 
     // DEBUG: System.out.printf("%s: set %s in %s to %s by %s after %s\n",
     // DEBUG:     clock, pt, state, val, cause, delay);
@@ -424,6 +549,7 @@ public class Propagator {
 
     // update clock
     clock = toProcess.peek().time;
+    long print = 0;
     // visitedNonce++; // used to ensure a fresh circuitState.visited set.
 
     // propagate all values for this clock tick
@@ -448,6 +574,8 @@ public class Propagator {
 
       if (changedPoints != null)
         changedPoints.add(state, ev.loc);
+      print += CycleDetector.mix(state, ev.loc, ev.val);
+      eventsProcessed++;
 
       // // change the information about value
       // Value oldVal, newVal;
@@ -463,6 +591,8 @@ public class Propagator {
         state.markPointAsDirty(ev); // ev.loc, ev.cause, ev.val);
       // }
     }
+    stepFingerprint = print;
+    tickFingerprint = tickFingerprint * 0x9e3779b97f4a7c15L + print;
 
 		// DEBUG: System.out.println("-- process dirty points --");
 		// DEBUG: root.dump("for %s before processDirtyPoints", this);
@@ -476,7 +606,88 @@ public class Propagator {
 
   public boolean toggleClocks() {
     halfClockCycles++;
-    return root.toggleClocks(halfClockCycles);
+    tickFingerprint = 0;
+    boolean hasClocks = false;
+    synchronized (registryLock) {
+      for (CircuitState state : temporaryClockStates)
+        clockedStatesWorking.add(state);
+    }
+    try {
+      for (CircuitState state : clockedStatesWorking)
+        hasClocks |= state.tickTemporaryClock(halfClockCycles);
+    } finally {
+      clockedStatesWorking.clear();
+    }
+    synchronized (registryLock) {
+      for (LinkedHashMap.Entry<Circuit, LinkedHashSet<CircuitState>> e : statesByCircuit.entrySet()) {
+        if (!e.getKey().getClocks().isEmpty())
+          clockedStatesWorking.addAll(e.getValue());
+      }
+    }
+    try {
+      for (CircuitState state : clockedStatesWorking)
+        hasClocks |= state.tickClocks(halfClockCycles);
+    } finally {
+      clockedStatesWorking.clear();
+    }
+    return hasClocks;
+  }
+
+  // Total, over every state in the tree, of dirty-component marks that were
+  // dropped because the component was already pending.
+  public long getDuplicateDirtyMarks() {
+    ArrayList<CircuitState> states = new ArrayList<>();
+    synchronized (registryLock) {
+      for (LinkedHashSet<CircuitState> s : statesByCircuit.values())
+        states.addAll(s);
+    }
+    long total = 0;
+    for (CircuitState state : states)
+      total += state.getDuplicateDirtyMarks();
+    return total;
+  }
+
+  void registerState(CircuitState state) {
+    synchronized (registryLock) {
+      statesByCircuit
+          .computeIfAbsent(state.getCircuit(), c -> new LinkedHashSet<>())
+          .add(state);
+    }
+  }
+
+  // Adds state and all of its substates, which are being reattached to the
+  // tree, as when a subcircuit keeps its state across a move or re-paste.
+  void registerStates(CircuitState state) {
+    synchronized (registryLock) {
+      statesByCircuit
+          .computeIfAbsent(state.getCircuit(), c -> new LinkedHashSet<>())
+          .add(state);
+      if (state.getTemporaryClock() != null)
+        temporaryClockStates.add(state);
+    }
+    for (CircuitState sub : state.getSubstatesSnapshot())
+      registerStates(sub);
+  }
+
+  // Removes state and all of its substates, which are being discarded.
+  void unregisterStates(CircuitState state) {
+    synchronized (registryLock) {
+      LinkedHashSet<CircuitState> states = statesByCircuit.get(state.getCircuit());
+      if (states != null && states.remove(state) && states.isEmpty())
+        statesByCircuit.remove(state.getCircuit());
+      temporaryClockStates.remove(state);
+    }
+    for (CircuitState sub : state.getSubstatesSnapshot())
+      unregisterStates(sub);
+  }
+
+  void setTemporaryClockState(CircuitState state, boolean active) {
+    synchronized (registryLock) {
+      if (active)
+        temporaryClockStates.add(state);
+      else
+        temporaryClockStates.remove(state);
+    }
   }
 
   @Override
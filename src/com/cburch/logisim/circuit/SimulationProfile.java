@@ -0,0 +1,303 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.circuit;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.ObjectName;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+
+// Optional instrumentation of the simulator, for finding out which component
+// types and which subcircuit instances make a design slow. When enabled, it
+// counts calls to Component.propagate(), the time spent in them, and the
+// events scheduled, both per ComponentFactory and per CircuitState. When
+// disabled, which is the default, the simulator only tests the enabled flag
+// once per batch of dirty components and once per scheduled event.
+//
+// Profiling is turned on with -Dlogisim.profile=true, with "-tty profile", or
+// through the JMX bean com.cburch.logisim:type=SimulationProfile. The bean is
+// only published when started with -Dlogisim.profile=true or
+// -Dlogisim.jmx=true, since starting the platform MBean server is costly.
+public class SimulationProfile implements SimulationProfileMBean {
+
+  public static final class Counter {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private Counter(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getPropagateCalls() {
+      return calls.sum();
+    }
+
+    public long getEventsScheduled() {
+      return events.sum();
+    }
+
+    public long getPropagateNanos() {
+      return nanos.sum();
+    }
+
+    private void reset() {
+      calls.reset();
+      events.reset();
+      nanos.reset();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d calls, %d events, %.3f ms", name,
+          getPropagateCalls(), getEventsScheduled(), getPropagateNanos() / 1e6);
+    }
+  }
+
+  static volatile boolean enabled = Boolean.getBoolean("logisim.profile");
+
+  private static final ConcurrentHashMap<ComponentFactory, Counter> byFactory
+      = new ConcurrentHashMap<>();
+  // Weak, so discarded simulations don't linger here. The counter is also
+  // cached in CircuitState.profile to avoid a lookup on each use.
+  private static final Map<CircuitState, Counter> byState
+      = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private static final SimulationProfile INSTANCE = new SimulationProfile();
+  private static boolean registered = false;
+
+  private SimulationProfile() { }
+
+  public static SimulationProfile getInstance() {
+    return INSTANCE;
+  }
+
+  // Publishes the profile as a platform MBean, if asked for on the command
+  // line. Called whenever a simulation is created, but only does any work
+  // the first time.
+  static synchronized void register() {
+    if (registered)
+      return;
+    registered = true;
+    if (!Boolean.getBoolean("logisim.profile") && !Boolean.getBoolean("logisim.jmx"))
+      return;
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+          new ObjectName("com.cburch.logisim:type=SimulationProfile"));
+    } catch (Exception | LinkageError e) {
+      // JMX is not essential, profiling still works from the command line
+    }
+  }
+
+  static Counter forFactory(ComponentFactory factory) {
+    Counter c = byFactory.get(factory);
+    if (c == null)
+      c = byFactory.computeIfAbsent(factory, f -> new Counter(f.getName()));
+    return c;
+  }
+
+  static Counter forState(CircuitState state) {
+    Counter c = state.profile;
+    if (c == null) {
+      c = new Counter(state.toString());
+      byState.put(state, c);
+      state.profile = c;
+    }
+    return c;
+  }
+
+  // Propagates comp in state, charging the call and its duration to both
+  // the component's factory and to stateCounter (the counter for state).
+  static void propagate(Counter stateCounter, Component comp, CircuitState state) {
+    long start = System.nanoTime();
+    try {
+      comp.propagate(state);
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      Counter factoryCounter = forFactory(comp.getFactory());
+      factoryCounter.calls.increment();
+      factoryCounter.nanos.add(elapsed);
+      stateCounter.calls.increment();
+      stateCounter.nanos.add(elapsed);
+    }
+  }
+
+  static void eventScheduled(CircuitState state, Component cause) {
+    forState(state).events.increment();
+    if (cause != null)
+      forFactory(cause.getFactory()).events.increment();
+  }
+
+  public static ArrayList<Counter> getFactoryCounters() {
+    return sorted(byFactory.values());
+  }
+
+  public static ArrayList<Counter> getStateCounters() {
+    synchronized (byState) {
+      return sorted(byState.values());
+    }
+  }
+
+  // Heaviest first, by time and then by calls.
+  private static ArrayList<Counter> sorted(Iterable<Counter> counters) {
+    ArrayList<Counter> ret = new ArrayList<>();
+    for (Counter c : counters) {
+      if (c.getPropagateCalls() > 0 || c.getEventsScheduled() > 0)
+        ret.add(c);
+    }
+    ret.sort((a, b) -> {
+      int cmp = Long.compare(b.getPropagateNanos(), a.getPropagateNanos());
+      return cmp != 0 ? cmp : Long.compare(b.getPropagateCalls(), a.getPropagateCalls());
+    });
+    return ret;
+  }
+
+  public static void dump(PrintWriter out, int limit) {
+    dumpTable(out, "Component type", getFactoryCounters(), limit);
+    out.println();
+    dumpTable(out, "Circuit state", getStateCounters(), limit);
+    out.flush();
+  }
+
+  private static void dumpTable(PrintWriter out, String title,
+      ArrayList<Counter> counters, int limit) {
+    int width = title.length();
+    for (Counter c : counters)
+      width = Math.max(width, c.getName().length());
+    String fmt = "%-" + width + "s %12s %12s %12s %8s%n";
+    out.printf(fmt, title, "propagates", "events", "time (ms)", "ns/call");
+    int n = 0;
+    for (Counter c : counters) {
+      if (limit > 0 && n++ == limit) {
+        out.printf("... %d more%n", counters.size() - limit);
+        break;
+      }
+      long calls = c.getPropagateCalls();
+      long nanos = c.getPropagateNanos();
+      out.printf(fmt, c.getName(), calls, c.getEventsScheduled(),
+          String.format("%.3f", nanos / 1e6),
+          calls == 0 ? "-" : "" + nanos / calls);
+    }
+  }
+
+  public static void setProfiling(boolean on) {
+    enabled = on;
+  }
+
+  public static boolean isProfiling() {
+    return enabled;
+  }
+
+  public static void resetCounters() {
+    for (Counter c : byFactory.values())
+      c.reset();
+    synchronized (byState) {
+      for (Counter c : byState.values())
+        c.reset();
+    }
+  }
+
+  private static long total(ToLongFunction<Counter> f) {
+    long sum = 0;
+    for (Counter c : byFactory.values())
+      sum += f.applyAsLong(c);
+    return sum;
+  }
+
+  private static String[] lines(ArrayList<Counter> counters) {
+    String[] ret = new String[counters.size()];
+    for (int i = 0; i < ret.length; i++)
+      ret[i] = counters.get(i).toString();
+    return ret;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  @Override
+  public long getPropagateCalls() {
+    return total(Counter::getPropagateCalls);
+  }
+
+  @Override
+  public long getEventsScheduled() {
+    return total(Counter::getEventsScheduled);
+  }
+
+  @Override
+  public long getPropagateMillis() {
+    return total(Counter::getPropagateNanos) / 1000000;
+  }
+
+  @Override
+  public String[] getComponentTypes() {
+    return lines(getFactoryCounters());
+  }
+
+  @Override
+  public String[] getCircuitStates() {
+    return lines(getStateCounters());
+  }
+
+  @Override
+  public void reset() {
+    resetCounters();
+  }
+
+  @Override
+  public String dump() {
+    StringWriter s = new StringWriter();
+    dump(new PrintWriter(s), 0);
+    return s.toString();
+  }
+}
@@ -54,16 +54,24 @@ public class Simulator {
   public static class Event {
     private Simulator source;
     private boolean didTick, didSingleStep, didPropagate;
+    private int ticks;
 
     public Event(Simulator src, boolean t, boolean s, boolean p) {
+      this(src, t, s, p, t ? 1 : 0);
+    }
+
+    public Event(Simulator src, boolean t, boolean s, boolean p, int n) {
       source = src;
       didTick = t;
       didSingleStep = s;
       didPropagate = p;
+      ticks = n;
     }
 
     public Simulator getSource() { return source; }
     public boolean didTick() { return didTick; }
+    // Number of clock ticks covered, more than one after fast-forwarding.
+    public int getTicks() { return ticks; }
     public boolean didSingleStep() { return didSingleStep; }
     public boolean didPropagate() { return didPropagate; }
   }
@@ -132,6 +140,14 @@ public class Simulator {
   //               only happens when autoTicking is off), the thread wakes up
   //               and invokes step(). If if autoTicking is on and signals are
   //               stable, then toggleClocks() is also called before step().
+  //
+  // [fast-fwd]    If fastForward is on while auto-ticking, and the last several
+  //               ticks repeated exactly (the design is idling, e.g. in a wait
+  //               loop), the thread ignores the tick frequency and instead
+  //               runs a burst of ticks as fast as it can, notifying listeners
+  //               only once at the end. The burst ends early as soon as a tick
+  //               breaks the pattern, and after FAST_FORWARD_NANOS in any case,
+  //               so requests from the GUI are still handled promptly.
   private static class SimThread extends UniquelyNamedThread {
 
     private Simulator sim;
@@ -151,6 +167,7 @@ public class Simulator {
     private boolean _resetRequested = false;
     private boolean _complete = false;
     private double _avgTickNanos = -1.0; // nanoseconds, EWMA
+    private boolean _fastForward = false;
 
     // These are copies of some of the above variables that can be read without
     // the lock if synchronization with other variables is not needed.
@@ -158,12 +175,15 @@ public class Simulator {
     private volatile boolean autoPropagatingUnsynchronized = true;
     private volatile boolean autoTickingUnsynchronized = false;
     private volatile double autoTickFreqUnsynchronized = 1.0; // Hz
+    private volatile boolean fastForwardUnsynchronized = false;
 
     // These next ones are written only by the simulation thread, and read by
     // the repaining thread. They can be read without locks as they do not need
     // to be kept consistent with other variables.
     private volatile boolean exceptionEncountered = false;
     private volatile boolean oscillating = false;
+    private volatile boolean idling = false;
+    private volatile long fastForwardedTicks = 0;
 
     // stepPoints should be made thread-safe, but it isn't for now.
     private PropagationPoints stepPoints = new PropagationPoints();
@@ -172,6 +192,11 @@ public class Simulator {
     // No synchronization needed.
     private long lastTick = System.nanoTime(); // time of last propagation start
 
+    // These are used only within loop() by a single thread, to decide whether
+    // the design is idling, i.e. whether fast-forwarding is allowed.
+    private Propagator.CycleDetector tickCycles = new Propagator.CycleDetector();
+    private Propagator lastPropagator = null;
+
     // DEBUGGING
     // private final long era = lastTick;
     // private String displayTime(long t) {
@@ -194,6 +219,7 @@ public class Simulator {
     boolean isAutoTickingUnsynchronized() { return autoTickingUnsynchronized; }
     boolean isAutoPropagatingUnsynchronized() { return autoPropagatingUnsynchronized; }
     double getTickFrequencyUnsynchronized() { return autoTickFreqUnsynchronized; }
+    boolean isFastForwardUnsynchronized() { return fastForwardUnsynchronized; }
 
     // This should be made thread-safe, but stepPoints is not yet so.
     void drawStepPoints(ComponentDrawContext context) {
@@ -291,6 +317,18 @@ public class Simulator {
       } finally { simStateLock.unlock(); }
     }
 
+    boolean setFastForward(boolean value) {
+      simStateLock.lock(); try {
+        if (_fastForward == value)
+          return false;
+        _fastForward = value;
+        fastForwardUnsynchronized = value;
+        if (Thread.currentThread() != this)
+          simStateUpdated.signalAll();
+        return true;
+      } finally { simStateLock.unlock(); }
+    }
+
     void requestStep() {
       simStateLock.lock(); try {
         _manualStepsRequested++;
@@ -348,6 +386,8 @@ public class Simulator {
       boolean doTickIfStable = false;
       boolean doStep = false;
       boolean doProp = false;
+      boolean doFastForward = false;
+      boolean fastForward = false;
       long now = 0;
 
       simStateLock.lock(); try {
@@ -359,6 +399,7 @@ public class Simulator {
             return false;
 
           prop = _propagator;
+          fastForward = _fastForward && _autoTicking && _autoPropagating;
           now = System.nanoTime();
 
           if (_resetRequested) {
@@ -396,7 +437,11 @@ public class Simulator {
               int k = _smoothingFactor;
               long lastNanos = now - lastTick;
               double avg;
-              if (_avgTickNanos <= 0) {
+              if (fastForward && idling && prop == lastPropagator) {
+                // design is idling, so don't wait, run a burst of ticks
+                doFastForward = true;
+                ready = true;
+              } else if (_avgTickNanos <= 0) {
                 // don't wait, we just started auto-tick and have no baseline
                 // simulation tick frequency history yet
                 _avgTickNanos = _autoTickNanos;
@@ -469,9 +514,19 @@ public class Simulator {
       boolean stepped = false;
       boolean propagated = false;
       boolean hasClocks = true;
+      int burst = 0;
+
+      if (!fastForward || prop != lastPropagator
+          || doReset || doNudge || doStep || doTickIfStable) {
+        // forget the tick history, the design may behave differently now
+        tickCycles.reset();
+        idling = false;
+        lastPropagator = prop;
+      }
 
       if (doReset) try {
         stepPoints.clear();
+        fastForwardedTicks = 0;
         if (prop != null)
           prop.reset();
         sim._fireSimulatorReset(); // todo: fixme: ack, wrong thread!
@@ -501,6 +556,20 @@ public class Simulator {
         err.printStackTrace();
       }
 
+      if (doFastForward) try {
+        burst = fastForward(prop);
+        ticked = propagated = true;
+        hasClocks = burst > 0;
+        lastTick = System.nanoTime();
+      } catch (Exception err) {
+        oops = true;
+        idling = false;
+        err.printStackTrace();
+      }
+
+      if (fastForward && doTick && doProp && !oops && prop != null)
+        idling = tickCycles.record(prop.getTickFingerprint()) > 0;
+
       if (doStep) try {
         stepped = true;
         stepPoints.clear();
@@ -537,13 +606,38 @@ public class Simulator {
       // accompanied by a tick, step, or propagate. That allows for a repaint in
       // some components.
       if (ticked || stepped || propagated || doNudge)
-        sim._firePropagationCompleted(ticked, stepped && !propagated, propagated); // todo: fixme: ack, wrong thread!
+        sim._firePropagationCompleted(ticked, stepped && !propagated, propagated,
+            doFastForward ? burst : ticked ? 1 : 0); // todo: fixme: ack, wrong thread!
       if (clockDied)
         sim.fireSimulatorStateChanged(); ; // todo: fixme: ack, wrong thread!
 
       return true;
     }
 
+    // Ticks repeatedly, without pacing or listener notifications, for as long
+    // as every tick matches the repeating pattern found earlier, but for at
+    // most FAST_FORWARD_NANOS. Returns the number of ticks done, or zero if the
+    // clocks have disappeared.
+    private int fastForward(Propagator prop) {
+      if (prop == null)
+        return 0;
+      long deadline = System.nanoTime() + FAST_FORWARD_NANOS;
+      int n = 0;
+      do {
+        if (!prop.toggleClocks())
+          return 0;
+        prop.propagate();
+        n++;
+        if (prop.isOscillating()
+            || tickCycles.record(prop.getTickFingerprint()) == 0) {
+          idling = false;
+          break;
+        }
+      } while (System.nanoTime() < deadline);
+      fastForwardedTicks += n - 1; // all but one go unreported
+      return n;
+    }
+
     @Override
     public void run() {
       for (;;) {
@@ -578,6 +672,8 @@ public class Simulator {
   // Everything below here is invoked and accessed only by the User/GUI thread.
   //
 
+  private static final long FAST_FORWARD_NANOS = 20000000; // 20 ms
+
   private SimThread simThread;
 
   // listeners is protected by a lock because simThread calls the _fire*()
@@ -713,7 +809,7 @@ public class Simulator {
   }
 
   // called from simThread, but probably should not be
-  private void _firePropagationCompleted(boolean t, boolean s, boolean p) {
+  private void _firePropagationCompleted(boolean t, boolean s, boolean p, int ticks) {
     int n = _numListeners;
     Listener[] list = _listeners;
     if (n < 0) {
@@ -731,7 +827,7 @@ public class Simulator {
     }
     if (n == 0)
       return; // nothing to do, no listeners as of just a moment ago
-    Event e = new Event(this, t, s, p);
+    Event e = new Event(this, t, s, p, ticks);
     for (int i = 0; i < n; i++)
       _listeners[i].propagationCompleted(e);
   }
@@ -807,6 +903,27 @@ public class Simulator {
       fireSimulatorStateChanged();
   }
 
+  public boolean isFastForward() {
+    return simThread.isFastForwardUnsynchronized();
+  }
+
+  // True while fast-forwarding is actually happening, i.e. while the design
+  // is idling and ticks are run as fast as possible.
+  public boolean isFastForwarding() {
+    return simThread.isFastForwardUnsynchronized() && simThread.idling;
+  }
+
+  // Number of half clock cycles simulated while fast-forwarding without
+  // listeners being told about them.
+  public long getFastForwardedTicks() {
+    return simThread.fastForwardedTicks;
+  }
+
+  public void setFastForward(boolean value) {
+    if (simThread.setFastForward(value))
+      fireSimulatorStateChanged();
+  }
+
   public void setTickFrequency(double freq) {
     if (simThread.setTickFrequency(freq))
       fireSimulatorStateChanged();
@@ -57,8 +57,6 @@ import com.cburch.logisim.util.StringGetter;
 public class SplitterFactory extends AbstractComponentFactory {
   public static final SplitterFactory instance = new SplitterFactory();
 
-  private static final Icon toolIcon = Icons.getIcon("splitter.gif");
-
   private SplitterFactory() {
   }
 
@@ -148,9 +146,13 @@ public class SplitterFactory extends AbstractComponentFactory {
   public void paintIcon(ComponentDrawContext c, int x, int y,
       AttributeSet attrs) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     }
   }
 
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("splitter.gif");
+  }
 }
@@ -39,8 +39,20 @@ import com.cburch.logisim.data.Location;
 
 // Used only by ManagedComponent, hence used only by Video and Splitter.
 public abstract class AbstractComponent implements Component {
+  private int circuitIndex = -1;
+
   protected AbstractComponent() { }
 
+  @Override
+  public int getCircuitIndex() {
+    return circuitIndex;
+  }
+
+  @Override
+  public void setCircuitIndex(int index) {
+    circuitIndex = index;
+  }
+
   public boolean nominallyContains(Location pt) {
     Bounds bds = getNominalBounds();
     if (bds == null)
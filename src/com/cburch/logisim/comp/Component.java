@@ -160,6 +160,15 @@ public interface Component extends Location.At {
 
   default public void fireInvalidated() { }
 
+  // getCircuitIndex() returns a small integer, unique among the non-wire
+  // components of the circuit containing this component, or -1 if it isn't
+  // in a circuit (or doesn't track an index, like Wire). Circuit assigns these
+  // densely, reusing freed indices, so per-state tables (e.g. the dirty stamps
+  // in CircuitState) can be plain arrays indexed by it.
+  default public int getCircuitIndex() { return -1; }
+
+  default public void setCircuitIndex(int index) { }
+
   default public String getDisplayName() {
     String label = getAttributeSet().getValue(StdAttr.LABEL);
     Location loc = this instanceof Wire ? null : getLocation();
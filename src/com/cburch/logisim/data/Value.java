@@ -39,7 +39,11 @@ import com.cburch.logisim.circuit.CircuitWires.BusConnection;
 
 public final class Value {
 
-  private static Value create(int width, int error, int unknown, int value) {
+  // Returns the canonical value with the given bits: one of the singletons
+  // for widths 0 and 1, which callers may compare by identity, and otherwise
+  // a cached value, after clearing bits beyond the width and giving error
+  // precedence over unknown over known bits.
+  public static Value create(int width, int error, int unknown, int value) {
     if (width == 0) {
       return Value.NIL;
     } else if (width == 1) {
@@ -68,6 +72,8 @@ public final class Value {
     }
   }
 
+  // Like create(), but without any of its canonicalization, so only for
+  // widths of 2 or more and bits that are already masked and disjoint.
   public static Value create_unsafe(int width, int error, int unknown, int value) {
     int hashCode = 31 * (31 * (31 * width + error) + unknown) + value;
     Value val = cache.get(hashCode);
@@ -350,16 +356,17 @@ public final class Value {
   }
 
   // public static final Value combineLikeWidths(Value[] vals) { // all widths must match
-  public static final Value combineLikeWidths(int width, BusConnection[] vals) { // all widths must match
+  // Combines driven[c.index] for each connection c, ignoring nulls.
+  public static final Value combineLikeWidths(int width, BusConnection[] vals, Value[] driven) { // all widths must match
     int n = vals.length;
     for (int i = 0; i < n; i++) {
-      Value v = vals[i].drivenValue;
+      Value v = driven[vals[i].index];
       if (v != null && v != NIL) {
         int error = v.error;
         int unknown = v.unknown;
         int value = v.value;
         for (int j = i+1; j < n; j++) {
-          v = vals[j].drivenValue;
+          v = driven[vals[j].index];
           if (v == null || v == NIL)
             continue;
           if (v.width != width)
@@ -472,6 +479,20 @@ public final class Value {
     return width;
   }
 
+  // Bit masks of the error, unknown, and true bits. These are disjoint, and
+  // any other bits below the width are false.
+  public int getErrorMask() {
+    return error;
+  }
+
+  public int getUnknownMask() {
+    return unknown;
+  }
+
+  public int getValueMask() {
+    return value;
+  }
+
   @Override
   public int hashCode() {
     int ret = width;
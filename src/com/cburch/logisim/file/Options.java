@@ -32,6 +32,8 @@ package com.cburch.logisim.file;
 import static com.cburch.logisim.file.Strings.S;
 
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
@@ -67,10 +69,33 @@ public class Options {
   private MouseMappings mmappings;
   private ToolbarData toolbar;
 
+  // Gates consult this on every propagation, so it is cached here rather
+  // than looked up in attrs each time.
+  private volatile boolean gateUndefinedError;
+
   public Options() {
     attrs = AttributeSets.fixedSet(ATTRIBUTES, DEFAULTS);
     mmappings = new MouseMappings();
     toolbar = new ToolbarData();
+    attrs.addAttributeWeakListener(this, myListener);
+    updateGateUndefined();
+  }
+
+  private AttributeListener myListener = new AttributeListener() {
+    public void attributeListChanged(AttributeEvent e) { }
+    public void attributeValueChanged(AttributeEvent e) {
+      if (e.getAttribute() == ATTR_GATE_UNDEFINED)
+        updateGateUndefined();
+    }
+  };
+
+  private void updateGateUndefined() {
+    gateUndefinedError = attrs.getValue(ATTR_GATE_UNDEFINED)
+        .equals(GATE_UNDEFINED_ERROR);
+  }
+
+  public boolean isGateUndefinedError() {
+    return gateUndefinedError;
   }
 
   public void copyFrom(Options other, LogisimFile dest) {
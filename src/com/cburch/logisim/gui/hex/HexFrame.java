@@ -40,6 +40,7 @@ import java.awt.event.WindowEvent;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.event.ChangeEvent;
@@ -113,6 +114,19 @@ public class HexFrame extends LFrame.SubWindow {
         HexFile.open((MemContents)model, HexFrame.this, project, instance);
       } else if (src == save) {
         HexFile.save((MemContents)model, HexFrame.this, project, instance);
+      } else if (src == gotoButton) {
+        Long addr = promptHex(S.get("hexGotoPrompt"), S.get("gotoButton"),
+            model.getLastOffset());
+        if (addr != null)
+          editor.goTo(addr.longValue());
+      } else if (src == findButton) {
+        int width = model.getValueWidth();
+        long max = width >= 64 ? -1L : (1L << width) - 1;
+        Long value = promptHex(S.get("hexFindPrompt"), S.get("hexFindTitle"), max);
+        if (value != null && editor.find(value.intValue()) < 0)
+          JOptionPane.showMessageDialog(HexFrame.this,
+              S.fmt("hexFindNotFound", Long.toHexString(value.longValue())),
+              S.get("hexFindTitle"), JOptionPane.INFORMATION_MESSAGE);
       } else if (src == close) {
         WindowEvent e = new WindowEvent(HexFrame.this, WindowEvent.WINDOW_CLOSING);
         HexFrame.this.processWindowEvent(e);
@@ -123,10 +137,38 @@ public class HexFrame extends LFrame.SubWindow {
       setTitle(S.get("hexFrameTitle"));
       open.setText(S.get("openButton"));
       save.setText(S.get("saveButton"));
+      gotoButton.setText(S.get("gotoButton"));
+      findButton.setText(S.get("findButton"));
       close.setText(S.get("closeButton"));
     }
   }
 
+  // Asks for an unsigned hex number no larger than max, or returns null if
+  // the user cancels or enters something unusable.
+  private Long promptHex(String prompt, String title, long max) {
+    String s = JOptionPane.showInputDialog(this, prompt);
+    if (s == null)
+      return null;
+    s = s.trim();
+    if (s.startsWith("0x") || s.startsWith("0X"))
+      s = s.substring(2);
+    long n;
+    try {
+      n = Long.parseUnsignedLong(s, 16);
+    } catch (NumberFormatException e) {
+      JOptionPane.showMessageDialog(this, S.get("hexNumberInputError"),
+          title, JOptionPane.ERROR_MESSAGE);
+      return null;
+    }
+    if (Long.compareUnsigned(n, max) > 0) {
+      JOptionPane.showMessageDialog(this,
+          S.fmt("hexNumberRangeError", Long.toHexString(max)),
+          title, JOptionPane.ERROR_MESSAGE);
+      return null;
+    }
+    return Long.valueOf(n);
+  }
+
   public void closeAndDispose() {
       WindowEvent e = new WindowEvent(this, WindowEvent.WINDOW_CLOSING);
       processWindowEvent(e);
@@ -159,6 +201,8 @@ public class HexFrame extends LFrame.SubWindow {
   private HexEditor editor;
   private JButton open = new JButton();
   private JButton save = new JButton();
+  private JButton gotoButton = new JButton();
+  private JButton findButton = new JButton();
   private JButton close = new JButton();
   private Instance instance;
 
@@ -172,9 +216,13 @@ public class HexFrame extends LFrame.SubWindow {
     JPanel buttonPanel = new JPanel();
     buttonPanel.add(open);
     buttonPanel.add(save);
+    buttonPanel.add(gotoButton);
+    buttonPanel.add(findButton);
     buttonPanel.add(close);
     open.addActionListener(myListener);
     save.addActionListener(myListener);
+    gotoButton.addActionListener(myListener);
+    findButton.addActionListener(myListener);
     close.addActionListener(myListener);
 
     Dimension pref = editor.getPreferredSize();
@@ -551,6 +551,9 @@ public class Canvas extends JPanel
 
       if (AppPreferences.SHOW_TICK_RATE.get()) {
         String hz = tickCounter.getTickRate();
+        if (hz != null && !hz.equals("") && proj.getSimulator().isFastForwarding())
+          hz = S.fmt("tickRateFastForward", hz,
+              proj.getSimulator().getFastForwardedTicks() / 2);
         if (hz != null && !hz.equals("")) {
           g.setColor(TICK_RATE_COLOR);
           g.setFont(TICK_RATE_FONT);
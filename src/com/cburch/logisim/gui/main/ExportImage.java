@@ -127,12 +127,31 @@ public class ExportImage {
   public static String exportImage(Canvas canvas, Circuit circuit, double scale, boolean printerView, File dest, String format, ProgressMonitor monitor) {
     Bounds bds;
     if (!printerView) {
-      bds = circuit.getCircuitBounds(canvas.getGraphics()).expand(BORDER_SIZE);
+      bds = getImageBounds(circuit, canvas.getGraphics());
     } else {
       BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
-      Graphics base = img.getGraphics();
-      bds = circuit.getCircuitBounds(base).expand(BORDER_SIZE);
+      bds = getImageBounds(circuit, img.getGraphics());
     }
+    CircuitState circuitState = canvas.getProject().getCircuitStateForPrinting(circuit);
+    BufferedImage img = renderImage(canvas, circuit, circuitState, bds, scale, printerView);
+    try {
+      return writeImage(img, dest, format);
+    } finally {
+      if (monitor != null)
+        monitor.close();
+    }
+  }
+
+  // The area of the circuit that is exported, including a small border.
+  public static Bounds getImageBounds(Circuit circuit, Graphics g) {
+    return circuit.getCircuitBounds(g).expand(BORDER_SIZE);
+  }
+
+  // Draws the given area of the circuit into a new image. The destination
+  // component is only needed when the image should look like the canvas; for
+  // the printer view it may be null, so no Canvas has to exist.
+  public static BufferedImage renderImage(java.awt.Component dest, Circuit circuit,
+      CircuitState circuitState, Bounds bds, double scale, boolean printerView) {
     int width = (int) Math.round(bds.getWidth() * scale);
     int height = (int) Math.round(bds.getHeight() * scale);
     if (width == 0)
@@ -142,23 +161,31 @@ public class ExportImage {
     BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     Graphics base = img.getGraphics();
     Graphics2D g = (Graphics2D)base.create();
-    g.setRenderingHint(
-        RenderingHints.KEY_TEXT_ANTIALIASING,
-        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-    g.setRenderingHint(
-        RenderingHints.KEY_ANTIALIASING,
-        RenderingHints.VALUE_ANTIALIAS_ON);
-    g.setColor(Color.white);
-    g.fillRect(0, 0, width, height);
-    g.setColor(Color.black);
-    g.scale(scale, scale);
-    g.translate(-bds.getX(), -bds.getY());
-
-    CircuitState circuitState = canvas.getProject().getCircuitStateForPrinting(circuit);
-    ComponentDrawContext context = new ComponentDrawContext(canvas,
-        circuit, circuitState, base, g, printerView);
-    circuit.draw(context, null);
+    try {
+      g.setRenderingHint(
+          RenderingHints.KEY_TEXT_ANTIALIASING,
+          RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g.setRenderingHint(
+          RenderingHints.KEY_ANTIALIASING,
+          RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(Color.white);
+      g.fillRect(0, 0, width, height);
+      g.setColor(Color.black);
+      g.scale(scale, scale);
+      g.translate(-bds.getX(), -bds.getY());
+
+      ComponentDrawContext context = new ComponentDrawContext(dest,
+          circuit, circuitState, base, g, printerView);
+      circuit.draw(context, null);
+    } finally {
+      g.dispose();
+      base.dispose();
+    }
+    return img;
+  }
 
+  // Returns an error message, or null on success.
+  public static String writeImage(BufferedImage img, File dest, String format) {
     try {
       switch (format) {
       case FORMAT_PNG:
@@ -170,10 +197,6 @@ public class ExportImage {
       }
     } catch (Exception e) {
       return S.get("couldNotCreateFile");
-    } finally {
-      g.dispose();
-      if (monitor != null)
-        monitor.close();
     }
     return null;
   }
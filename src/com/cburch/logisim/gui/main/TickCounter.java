@@ -134,21 +134,22 @@ class TickCounter implements Simulator.Listener {
     int e = (s + n - 1) % N;
     long t = System.currentTimeMillis();
 
+    tick += evt.getTicks();
     if (n > 0 && t < bucketTime[e] + T) {
-      bucketTick[e] = ++tick;
+      bucketTick[e] = tick;
       return;
     }
 
     if (n < N) {
       e = (e + 1) % N;
       bucketTime[e] = t;
-      bucketTick[e] = ++tick;
+      bucketTick[e] = tick;
       bucketCount++;
       n++;
     } else {
       e = (e + 1) % N;
       bucketTime[e] = t;
-      bucketTick[e] = ++tick;
+      bucketTick[e] = tick;
       s = bucketIndex = (bucketIndex + 1) % N;
     }
 
@@ -36,6 +36,7 @@ import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JRadioButtonMenuItem;
@@ -143,6 +144,8 @@ public class MenuSimulate extends Menu {
         sim.tick(2);
       } else if (src == ticksEnabled || src == LogisimMenuBar.TICK_ENABLE) {
         sim.setAutoTicking(!sim.isAutoTicking());
+      } else if (src == fastForward) {
+        sim.setFastForward(!sim.isFastForward());
       } else if (src == addSim || src == LogisimMenuBar.SIMULATE_ADD_STATE) {
         CircuitState state = proj.getCircuitState();
         if (state != null)
@@ -172,6 +175,7 @@ public class MenuSimulate extends Menu {
       computeEnabled();
       runToggle.setSelected(sim.isAutoPropagating());
       ticksEnabled.setSelected(sim.isAutoTicking());
+      fastForward.setSelected(sim.isFastForward());
       int index = closestTickFreqIndex(sim.getTickFrequency());
       for (int i = 0; i < tickFreqs.length; i++) {
         tickFreqs[i].setSelected(i == index);
@@ -320,6 +324,7 @@ public class MenuSimulate extends Menu {
   private MenuItemImpl tickFull;
   private MenuItemImpl addSim, delSim;
   private JMenu tickFreq = new JMenu();
+  private JCheckBoxMenuItem fastForward = new JCheckBoxMenuItem();
   private TickFrequencyChoice[] tickFreqs = new TickFrequencyChoice[SupportedTickFrequencies.length];
   private JMenu downStateMenu = new JMenu();
   private ArrayList<CircuitStateMenuItem> downStateItems = new ArrayList<CircuitStateMenuItem>();
@@ -383,6 +388,7 @@ public class MenuSimulate extends Menu {
     add(tickFull);
     add(ticksEnabled);
     add(tickFreq);
+    add(fastForward);
     addSeparator();
     add(log);
     add(test);
@@ -399,6 +405,7 @@ public class MenuSimulate extends Menu {
     tickFull.setEnabled(false);
     ticksEnabled.setEnabled(false);
     tickFreq.setEnabled(false);
+    fastForward.setEnabled(false);
 
     runToggle.addChangeListener(myListener);
     menubar.addActionListener(LogisimMenuBar.SIMULATE_RUN_TOGGLE, myListener);
@@ -412,6 +419,7 @@ public class MenuSimulate extends Menu {
     menubar.addActionListener(LogisimMenuBar.SIMULATE_DELETE_STATE, myListener);
     // runToggle.addActionListener(myListener);
     reset.addActionListener(myListener);
+    fastForward.addActionListener(myListener);
     // step.addActionListener(myListener);
     // tickHalf.addActionListener(myListener);
     // tickFull.addActionListener(myListener);
@@ -448,6 +456,7 @@ public class MenuSimulate extends Menu {
     delSim.setEnabled(present);
     ticksEnabled.setEnabled(present);
     tickFreq.setEnabled(present);
+    fastForward.setEnabled(present);
     menubar.fireEnableChanged();
   }
 
@@ -464,6 +473,7 @@ public class MenuSimulate extends Menu {
     delSim.setText(S.get("simulateDeleteState"));
     ticksEnabled.setText(S.get("simulateTickItem"));
     tickFreq.setText(S.get("simulateTickFreqMenu"));
+    fastForward.setText(S.get("simulateFastForwardItem"));
     for (int i = 0; i < tickFreqs.length; i++) {
       tickFreqs[i].localeChanged();
     }
@@ -0,0 +1,180 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.start;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.main.ExportImage;
+import com.cburch.logisim.proj.Project;
+
+// Exports circuits as PNG images for "-png", without creating a Canvas or any
+// other Swing component. Circuits are set up one at a time, in order, since
+// that may lazily build shared data such as subcircuit appearances. Drawing
+// and encoding, which is where the time goes, then runs on a thread pool.
+class HeadlessExport {
+
+  private static class Job implements Callable<String> {
+    final String project;
+    final Circuit circuit;
+    final CircuitState state;
+    final Bounds bounds;
+    final double scale;
+    final File dest;
+    int width, height;
+
+    Job(String project, Circuit circuit, CircuitState state, Bounds bounds,
+        double scale, File dest) {
+      this.project = project;
+      this.circuit = circuit;
+      this.state = state;
+      this.bounds = bounds;
+      this.scale = scale;
+      this.dest = dest;
+    }
+
+    public String call() {
+      BufferedImage img = ExportImage.renderImage(null, circuit, state,
+          bounds, scale, true);
+      String msg = ExportImage.writeImage(img, dest, ExportImage.FORMAT_PNG);
+      if (msg == null) {
+        width = img.getWidth();
+        height = img.getHeight();
+      }
+      return msg;
+    }
+  }
+
+  private Startup args;
+  private ArrayList<Job> jobs = new ArrayList<>();
+  private Graphics measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getGraphics();
+
+  HeadlessExport(Startup args) {
+    this.args = args;
+  }
+
+  // Queues the named circuits of a project, or all of them for "*".
+  void add(File fileName, LogisimFile.FileWithSimulations file, String[] names) {
+    File dir = args.pngDir;
+    if (args.getFilesToOpen().size() > 1) {
+      // keep the images of different projects apart
+      String base = fileName.getName().replaceFirst("\\.circ$", "");
+      dir = new File(dir, TtyInterface.sanitize(base, ""));
+      dir.mkdirs();
+    }
+    Project proj = new Project(file);
+    for (Circuit c : file.file.getCircuits()) {
+      for (String n : names) {
+        if (!n.trim().equals("*") && !n.trim().equals(c.toString()))
+          continue;
+        File dest = new File(dir, TtyInterface.sanitize(c.toString(), ".png"));
+        if (!args.headlessPretty)
+          System.out.println("Exporting " + c + " as " + dest);
+        CircuitState state = proj.getCircuitStateForPrinting(c);
+        Bounds bds = ExportImage.getImageBounds(c, measure);
+        if (args.pngClip != null)
+          bds = args.pngClip;
+        jobs.add(new Job(fileName.getPath(), c, state, bds, args.pngScale, dest));
+        break;
+      }
+    }
+  }
+
+  // Exports everything queued, returning 0 on success and 1 otherwise.
+  int run() {
+    if (jobs.isEmpty())
+      return 0;
+    int n = args.pngThreads > 0 ? args.pngThreads
+        : Runtime.getRuntime().availableProcessors();
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(n, jobs.size()));
+    List<Future<String>> results;
+    try {
+      results = pool.invokeAll(jobs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    } finally {
+      pool.shutdown();
+    }
+    int err = 0;
+    for (int i = 0; i < jobs.size(); i++) {
+      Job job = jobs.get(i);
+      String msg;
+      try {
+        msg = results.get(i).get();
+      } catch (ExecutionException e) {
+        msg = job.circuit + ": " + e.getCause();
+      } catch (InterruptedException e) {
+        msg = job.circuit + ": " + e;
+      }
+      if (msg != null) {
+        System.err.println(msg);
+        err = 1;
+      } else if (args.headlessPretty) {
+        System.out.printf("\n[](%s)\n", job.dest);
+      }
+    }
+    if (args.pngManifest != null && !writeManifest(args.pngManifest))
+      err = 1;
+    return err;
+  }
+
+  // One tab-separated line per image written: project file, circuit name,
+  // image file, and image width and height in pixels.
+  private boolean writeManifest(File manifest) {
+    try (PrintWriter out = new PrintWriter(manifest, "UTF-8")) {
+      for (Job job : jobs) {
+        if (job.width == 0)
+          continue; // not exported
+        out.printf("%s\t%s\t%s\t%d\t%d\n", job.project, job.circuit,
+            job.dest.getPath(), job.width, job.height);
+      }
+      return true;
+    } catch (IOException e) {
+      System.err.println(args.pngManifest + ": " + e.getMessage());
+      return false;
+    }
+  }
+}
@@ -57,23 +57,21 @@ public class SplashScreen extends JWindow implements ActionListener {
   }
 
   private static final long serialVersionUID = 1L;
-  public static final int LIBRARIES = 0;
-  public static final int TEMPLATE_CREATE = 1;
-  public static final int TEMPLATE_OPEN = 2;
-  public static final int TEMPLATE_LOAD = 3;
-  public static final int TEMPLATE_CLOSE = 4;
-  public static final int GUI_INIT = 5;
-  public static final int FILE_CREATE = 6;
-  public static final int FILE_LOAD = 7;
-  public static final int PROJECT_CREATE = 8;
-
-  public static final int FRAME_CREATE = 9;
+  public static final int TEMPLATE_CREATE = 0;
+  public static final int TEMPLATE_OPEN = 1;
+  public static final int TEMPLATE_LOAD = 2;
+  public static final int TEMPLATE_CLOSE = 3;
+  public static final int GUI_INIT = 4;
+  public static final int FILE_CREATE = 5;
+  public static final int FILE_LOAD = 6;
+  public static final int PROJECT_CREATE = 7;
+
+  public static final int FRAME_CREATE = 8;
   private static final int PROGRESS_MAX = 3568;
 
   private static final boolean PRINT_TIMES = false;
 
   Marker[] markers = new Marker[] {
-      new Marker(377, S.get("progressLibraries")),
       new Marker(990, S.get("progressTemplateCreate")),
       new Marker(1002, S.get("progressTemplateOpen")),
       new Marker(1002, S.get("progressTemplateLoad")),
@@ -32,6 +32,7 @@ package com.cburch.logisim.gui.start;
 import static com.cburch.logisim.gui.start.Strings.S;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 
 import com.cburch.logisim.Main;
+import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.file.LoadCanceledByUser;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
@@ -93,9 +95,16 @@ public class Startup {
     options.put("-list", HEADLESS | NEEDFILE);
     options.put("-pretty", 0);
     options.put("-png", HEADLESS | ONEPARAM | NEEDFILE);
+    options.put("-pngscale", ONEPARAM);
+    options.put("-pngclip", ONEPARAM);
+    options.put("-pngdir", ONEPARAM);
+    options.put("-pngmanifest", ONEPARAM);
+    options.put("-pngthreads", ONEPARAM);
     options.put("-tty", HEADLESS | ONEPARAM | NEEDFILE);
     options.put("-circuit", HEADLESS | ONEPARAM);
     options.put("-load", HEADLESS | ONEPARAM);
+    options.put("-wav", HEADLESS | ONEPARAM);
+    options.put("-ttyin", HEADLESS | ONEPARAM);
 
     options.put("-verbose", 0);
     options.put("-v", 0);
@@ -218,6 +227,8 @@ public class Startup {
           }
           else if (fmt.equals("speed"))
             ret.ttyFormat |= TtyInterface.FORMAT_SPEED;
+          else if (fmt.equals("profile"))
+            ret.ttyFormat |= TtyInterface.FORMAT_PROFILE;
           else if (fmt.equals("tty"))
             ret.ttyFormat |= TtyInterface.FORMAT_TTY;
           else if (fmt.equals("halt"))
@@ -266,6 +277,39 @@ public class Startup {
         if (circuits.length == 0)
           fail(S.get("pngArgError"));
         ret.headlessPngCircuits = circuits;
+      } else if (arg.equals("-pngscale")) {
+        try {
+          ret.pngScale = Double.parseDouble(param0);
+        } catch (NumberFormatException e) {
+          ret.pngScale = -1;
+        }
+        if (!(ret.pngScale > 0))
+          fail(S.get("pngScaleError"));
+      } else if (arg.equals("-pngclip")) {
+        String[] p = param0.split(",");
+        try {
+          if (p.length != 4)
+            throw new NumberFormatException();
+          ret.pngClip = Bounds.create(Integer.parseInt(p[0].trim()),
+              Integer.parseInt(p[1].trim()), Integer.parseInt(p[2].trim()),
+              Integer.parseInt(p[3].trim()));
+        } catch (NumberFormatException e) {
+          fail(S.get("pngClipError"));
+        }
+      } else if (arg.equals("-pngdir")) {
+        ret.pngDir = new File(param0);
+        if (!ret.pngDir.isDirectory())
+          fail(S.fmt("pngDirError", param0));
+      } else if (arg.equals("-pngmanifest")) {
+        ret.pngManifest = new File(param0);
+      } else if (arg.equals("-pngthreads")) {
+        try {
+          ret.pngThreads = Integer.parseInt(param0);
+        } catch (NumberFormatException e) {
+          ret.pngThreads = -1;
+        }
+        if (ret.pngThreads <= 0)
+          fail(S.get("pngThreadsError"));
       } else if (arg.equals("-list")) {
         ret.headlessList = true;
       } else if (arg.equals("-pretty")) {
@@ -278,6 +322,10 @@ public class Startup {
         if (ret.loadFile != null)
           fail(S.get("loadMultipleError"));
         ret.loadFile = new File(param0);
+      } else if (arg.equals("-wav")) {
+        ret.wavFile = new File(param0);
+      } else if (arg.equals("-ttyin")) {
+        ret.ttyInputFile = new File(param0);
       } else if (arg.equals("-empty")) {
         if (ret.templFile != null || ret.templEmpty || ret.templPlain)
           fail(S.get("argOneTemplateError"));
@@ -375,9 +423,34 @@ public class Startup {
       }
     }
 
+    timePhase("parse arguments");
     return ret;
   }
 
+  // With -Dlogisim.timing=true, the time taken by each phase of startup is
+  // printed on stderr, followed by the total when the program exits.
+  private static final boolean TIMING = Boolean.getBoolean("logisim.timing");
+  private static long phaseStart = System.nanoTime(); // loaded by main()
+  private static boolean timingStarted = false;
+
+  static void timePhase(String phase) {
+    if (!TIMING)
+      return;
+    long now = System.nanoTime();
+    if (!timingStarted) {
+      timingStarted = true;
+      long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+      System.err.printf("startup: %-24s %6d ms\n", "jvm",
+          uptime - (now - phaseStart) / 1000000);
+      Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            System.err.printf("startup: %-24s %6d ms\n", "total (at exit)",
+              ManagementFactory.getRuntimeMXBean().getUptime())));
+    }
+    System.err.printf("startup: %-24s %6d ms\n", phase,
+        (now - phaseStart) / 1000000);
+    phaseStart = System.nanoTime();
+  }
+
   private static void printUsage() {
     System.err.println(S.fmt("argUsage", Startup.class.getName())); // OK
     System.err.println(); // OK
@@ -401,9 +474,16 @@ public class Startup {
     System.err.println("   " + S.get("argListOption")); // OK
     System.err.println("   " + S.get("argPngOption")); // OK
     System.err.println("   " + S.get("argPngsOption")); // OK
+    System.err.println("   " + S.get("argPngScaleOption")); // OK
+    System.err.println("   " + S.get("argPngClipOption")); // OK
+    System.err.println("   " + S.get("argPngDirOption")); // OK
+    System.err.println("   " + S.get("argPngManifestOption")); // OK
+    System.err.println("   " + S.get("argPngThreadsOption")); // OK
     System.err.println("   " + S.get("argTtyOption")); // OK
     System.err.println("   " + S.get("argCircuitOption")); // OK
     System.err.println("   " + S.get("argLoadOption")); // OK
+    System.err.println("   " + S.get("argWavOption")); // OK
+    System.err.println("   " + S.get("argTtyInOption")); // OK
     System.exit(0);
   }
 
@@ -498,6 +578,11 @@ public class Startup {
   // based on command line
   boolean headlessTty, headlessPng, headlessList, headlessPretty;
   String headlessPngCircuits[];
+  double pngScale = 1.0;
+  Bounds pngClip = null; // or null to export each whole circuit
+  File pngDir = null; // or null for the current directory
+  File pngManifest = null;
+  int pngThreads = 0; // or 0 for one per processor
   private File templFile = null;
   private boolean templEmpty = false;
   private boolean templPlain = false;
@@ -507,6 +592,8 @@ public class Startup {
   private boolean exitAfterStartup = false;
   private boolean showSplash;
   private File loadFile;
+  private File wavFile;
+  private File ttyInputFile;
   private HashMap<String, String> substitutions = new HashMap<>();
   private int ttyFormat = 0;
   private int ttyRandomHead, ttyRandomBody, ttyRandomTail;
@@ -546,6 +633,14 @@ public class Startup {
     return loadFile;
   }
 
+  File getWavFile() {
+    return wavFile;
+  }
+
+  File getTtyInputFile() {
+    return ttyInputFile;
+  }
+
   String getCircuitToTest() {
     return circuitToTest;
   }
@@ -593,25 +688,15 @@ public class Startup {
       }
     }
 
-    // pre-load the two basic component libraries, just so that the time
-    // taken is shown separately in the progress bar.
-    if (showSplash) {
-      monitor.setProgress(SplashScreen.LIBRARIES);
-    }
-    Loader preLoader = new Loader(monitor);
-    int count;
-    count = preLoader.getBuiltin().getLibrary("Base").getTools().size();
-    count += preLoader.getBuiltin().getLibrary("Gates").getTools().size();
-    if (count < 0) {
-      // this will never happen, but the optimizer doesn't know that...
-      System.out.println("FATAL ERROR - no components"); // OK
-      System.exit(1);
-    }
+    // The component libraries are no longer pre-loaded here: their tools are
+    // created on first use, when the template or a file refers to them.
+    timePhase("splash screen");
 
     // load in template
     if (showSplash)
       monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
     loadTemplate();
+    timePhase("template");
 
     // now that the splash screen is almost gone, we do some last-minute
     // interface initialization
@@ -635,6 +720,8 @@ public class Startup {
       // monitor says we are
     }
 
+    timePhase("window managers, menus");
+
     // Make ENTER and SPACE have the same effect for focused buttons.
     UIManager.getDefaults().put("Button.focusInputMap",
         new UIDefaults.LazyInputMap(new Object[] {
@@ -698,6 +785,8 @@ public class Startup {
       }
     }
 
+    timePhase("open files");
+
     for (File fileToPrint : filesToPrint)
       doPrintFile(fileToPrint);
 
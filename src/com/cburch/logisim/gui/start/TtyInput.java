@@ -0,0 +1,145 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.start;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.std.io.Keyboard;
+import com.cburch.logisim.util.UniquelyNamedThread;
+
+// Feeds standard input, or a file given with "-ttyin", to the keyboards of a
+// "-tty" simulation. A reader thread decodes the input into a bounded ring,
+// and the simulation loop moves characters from there into the keyboard
+// buffers whenever they have room. The ring has a single producer and a
+// single consumer, each of which only changes its own index, so no lock is
+// needed. When the ring is full the reader sleeps until the loop drains it,
+// so no input is lost however fast it arrives, and while nothing has arrived
+// the loop does no more than one volatile read per tick.
+//
+// Input is read on a separate thread, rather than polling
+// System.in.available(), because on some systems keyboard input is not
+// echoed interactively until System.in.read() is invoked.
+class TtyInput implements Runnable {
+
+  private static final int CAPACITY = 1 << 16; // a power of two
+  private static final int MASK = CAPACITY - 1;
+
+  private final char[] ring = new char[CAPACITY];
+  private volatile long head = 0; // next slot to fill, changed only by reader
+  private volatile long tail = 0; // next slot to take, changed only by feed()
+  private volatile boolean readerParked = false;
+  private final Reader in;
+  private final Thread reader;
+
+  TtyInput(File file) throws IOException {
+    if (file == null) {
+      in = new InputStreamReader(System.in);
+    } else {
+      FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      in = Channels.newReader(ch, Charset.defaultCharset().newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE), -1);
+    }
+    reader = new UniquelyNamedThread(this, "TtyInterface-InputThread");
+    reader.setDaemon(true);
+  }
+
+  void start() {
+    reader.start();
+  }
+
+  public void run() {
+    char[] buf = new char[4096];
+    try {
+      int n;
+      while ((n = in.read(buf)) >= 0) {
+        int i = 0;
+        while (i < n) {
+          long h = head;
+          int room = CAPACITY - (int) (h - tail);
+          if (room == 0) {
+            readerParked = true;
+            if (head - tail == CAPACITY)
+              LockSupport.park(this);
+            readerParked = false;
+            continue;
+          }
+          int k = Math.min(room, n - i);
+          int at = (int) h & MASK;
+          int first = Math.min(k, CAPACITY - at);
+          System.arraycopy(buf, i, ring, at, first);
+          System.arraycopy(buf, i + first, ring, 0, k - first);
+          head = h + k;
+          i += k;
+        }
+      }
+      in.close();
+    } catch (IOException e) {
+      System.err.println(e.getMessage());
+    }
+  }
+
+  // Moves whatever input has arrived into the keyboard buffers, as much as
+  // all of them have room for, so that every keyboard sees the same text.
+  void feed(List<InstanceState> keyboards) {
+    long t = tail;
+    long avail = head - t;
+    if (avail == 0)
+      return;
+    int room = Integer.MAX_VALUE;
+    for (InstanceState keyState : keyboards)
+      room = Math.min(room, Keyboard.getBufferSpace(keyState));
+    int k = (int) Math.min(avail, room);
+    if (k == 0)
+      return;
+    int at = (int) t & MASK;
+    int first = Math.min(k, CAPACITY - at);
+    for (InstanceState keyState : keyboards) {
+      Keyboard.addToBuffer(keyState, ring, at, first);
+      if (k > first)
+        Keyboard.addToBuffer(keyState, ring, 0, k - first);
+    }
+    tail = t + k;
+    if (readerParked)
+      LockSupport.unpark(reader);
+  }
+}
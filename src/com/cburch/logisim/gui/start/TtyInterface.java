@@ -33,11 +33,10 @@ import static com.cburch.logisim.gui.start.Strings.S;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Random;
 
@@ -47,6 +46,7 @@ import com.cburch.logisim.circuit.Analyze;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SimulationProfile;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
@@ -57,12 +57,12 @@ import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.gui.hex.HexFile;
 import com.cburch.logisim.gui.log.Loggable;
-import com.cburch.logisim.gui.main.Canvas;
-import com.cburch.logisim.gui.main.ExportImage;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.InstanceStateImpl;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.audio.PCMSink;
 import com.cburch.logisim.std.io.Keyboard;
 import com.cburch.logisim.std.io.Tty;
 import com.cburch.logisim.std.memory.MemContents;
@@ -70,7 +70,6 @@ import com.cburch.logisim.std.memory.Ram;
 import com.cburch.logisim.std.memory.Register;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.tools.Library;
-import com.cburch.logisim.util.UniquelyNamedThread;
 
 public class TtyInterface {
 
@@ -81,48 +80,6 @@ public class TtyInterface {
     // public boolean isHalted(Value state, Object vals[]);
   }
 
-  // It's possible to avoid using the separate thread using
-  // System.in.available(),
-  // but this doesn't quite work because on some systems, the keyboard input
-  // is not interactively echoed until System.in.read() is invoked.
-  private static class StdinThread extends UniquelyNamedThread {
-    private LinkedList<char[]> queue; // of char[]
-
-    public StdinThread() {
-      super("TtyInterface-StdInThread");
-      queue = new LinkedList<char[]>();
-    }
-
-    public char[] getBuffer() {
-      synchronized (queue) {
-        if (queue.isEmpty()) {
-          return null;
-        } else {
-          return queue.removeFirst();
-        }
-      }
-    }
-
-    @Override
-    public void run() {
-      InputStreamReader stdin = new InputStreamReader(System.in);
-      char[] buffer = new char[32];
-      while (true) {
-        try {
-          int nbytes = stdin.read(buffer);
-          if (nbytes > 0) {
-            char[] add = new char[nbytes];
-            System.arraycopy(buffer, 0, add, 0, nbytes);
-            synchronized (queue) {
-              queue.addLast(add);
-            }
-          }
-        } catch (IOException e) {
-        }
-      }
-    }
-  }
-
   private static int countDigits(int num) {
     int digits = 1;
     int lessThan = 10;
@@ -273,6 +230,7 @@ public class TtyInterface {
   }
 
   private static void ensureLineTerminated() {
+    flushTty();
     if (!lastIsNewline) {
       lastIsNewline = true;
       System.out.print('\n'); // OK
@@ -312,7 +270,8 @@ public class TtyInterface {
         ttyFactory.sendToStdout(ttyState);
         found = true;
       } else if (factory instanceof Keyboard) {
-        keybStates.add(circState.getInstanceState(comp));
+        // not getInstanceState(), which reuses one object for every component
+        keybStates.add(new InstanceStateImpl(circState, comp));
         found = true;
       }
     }
@@ -326,39 +285,51 @@ public class TtyInterface {
   public static void run(Startup args) {
     File fileToOpen = args.getFilesToOpen().get(0);
     Loader loader = new Loader(null);
-    LogisimFile.FileWithSimulations file;
-    try {
-      file = loader.openLogisimFile(fileToOpen, args.getSubstitutions());
-    } catch (LoadCanceledByUser e) {
-      System.out.println(S.fmt("ttyLoadCanceled", fileToOpen.getName()));
-      System.exit(-1);
-      return;
-    } catch (LoadFailedException e) {
-      System.out.println(S.fmt("ttyLoadError", fileToOpen.getName()));
-      System.exit(-1);
-      return;
-    } catch (Throwable t) {
-      t.printStackTrace();
-      System.exit(-1);
-      return;
-    }
+    LogisimFile.FileWithSimulations file = load(loader, fileToOpen, args);
+    Startup.timePhase("load " + fileToOpen.getName());
 
     int ret = 0;
     if (args.headlessList) {
       ret = doList(file, fileToOpen.getName(), args);
     }
     if (ret == 0 && args.headlessTty) {
+      PCMSink.setWavFile(args.getWavFile());
+      inputFile = args.getTtyInputFile();
       ret = doTty(args.getTtyFormat(), args.getLoadFile(), file, args.getCircuitToTest(),
           args.getTtyRandomHead(), args.getTtyRandomBody(), args.getTtyRandomTail());
-      if ((args.getTtyFormat() & FORMAT_INCLUDE_PNG) != 0)
-        ret |= doPng(new String[] { args.getCircuitToTest() }, file, args.headlessPretty);
+      if ((args.getTtyFormat() & FORMAT_INCLUDE_PNG) != 0) {
+        HeadlessExport export = new HeadlessExport(args);
+        export.add(fileToOpen, file, new String[] { args.getCircuitToTest() });
+        ret |= export.run();
+      }
     }
     if (ret == 0 && args.headlessPng) {
-      ret = doPng(args.headlessPngCircuits, file, args.headlessPretty);
+      HeadlessExport export = new HeadlessExport(args);
+      export.add(fileToOpen, file, args.headlessPngCircuits);
+      for (File other : args.getFilesToOpen().subList(1, args.getFilesToOpen().size()))
+        export.add(other, load(loader, other, args), args.headlessPngCircuits);
+      ret = export.run();
     }
     System.exit(ret);
   }
 
+  private static LogisimFile.FileWithSimulations load(Loader loader,
+      File fileToOpen, Startup args) {
+    try {
+      return loader.openLogisimFile(fileToOpen, args.getSubstitutions());
+    } catch (LoadCanceledByUser e) {
+      System.out.println(S.fmt("ttyLoadCanceled", fileToOpen.getName()));
+      System.exit(-1);
+    } catch (LoadFailedException e) {
+      System.out.println(S.fmt("ttyLoadError", fileToOpen.getName()));
+      System.exit(-1);
+    } catch (Throwable t) {
+      t.printStackTrace();
+      System.exit(-1);
+    }
+    return null;
+  }
+
   static int doList(LogisimFile.FileWithSimulations file, String fileName, Startup args) {
     if (args.headlessPretty) {
       int n = file.file.getCircuits().size();
@@ -381,31 +352,6 @@ public class TtyInterface {
 		return filename + ext;
 	}
 
-  static int doPng(String names[], LogisimFile.FileWithSimulations file, boolean headlessPretty) {
-    double scale = 1.0;
-    String format = ExportImage.FORMAT_PNG;
-    Project proj = new Project(file);
-    Canvas canvas = new Canvas(proj);
-    int err = 0;
-    for (Circuit c : file.file.getCircuits()) {
-      for (String n : names) {
-        if (!n.trim().equals("*") && !n.trim().equals(c.toString()))
-          continue;
-        File dest = new File(sanitize(c.toString(), ".png"));
-        if (!headlessPretty)
-          System.out.println("Exporting " + c + " as " + dest);
-        String msg = ExportImage.exportImage(canvas, c, scale, true, dest, format, null);
-        if (msg != null) {
-          System.err.println(msg);
-          err = 1;
-        } else if (headlessPretty) {
-          System.out.printf("\n[](%s)\n", dest);
-        }
-      }
-    }
-    return err;
-  }
-
   static int doTty(int format, File loadfile, LogisimFile.FileWithSimulations file, String circuitToTest,
       int head, int body, int tail) {
     if ((format & FORMAT_STATISTICS) != 0) {
@@ -489,6 +435,8 @@ public class TtyInterface {
       }
     }
 
+    if ((format & FORMAT_PROFILE) != 0)
+      SimulationProfile.setProfiling(true);
     CircuitState circState = CircuitState.createRootState(proj, circuit);
     // we have to do our initial propagation before the simulation starts -
     // it's necessary to populate the circuit with substates.
@@ -512,6 +460,7 @@ public class TtyInterface {
       tapeState.fireInvalidated();
       circState.getPropagator().propagate();
     }
+    Startup.timePhase("prepare simulation");
     int simCode = runSimulation(circState, outputPins, pinNames, haltPin, sreg, tape, format);
 
     return simCode;
@@ -527,7 +476,7 @@ public class TtyInterface {
     boolean showHalt = (format & FORMAT_HALT) != 0;
 
     ArrayList<InstanceState> keyboardStates = null;
-    StdinThread stdinThread = null;
+    TtyInput input = null;
     if (showTty) {
       keyboardStates = new ArrayList<InstanceState>();
       boolean ttyFound = prepareForTty(circState, keyboardStates);
@@ -538,8 +487,13 @@ public class TtyInterface {
       if (keyboardStates.isEmpty()) {
         keyboardStates = null;
       } else {
-        stdinThread = new StdinThread();
-        stdinThread.start();
+        try {
+          input = new TtyInput(inputFile);
+        } catch (IOException e) {
+          System.out.println(S.fmt("ttyInputError", inputFile, e.getMessage()));
+          System.exit(-1);
+        }
+        input.start();
       }
     }
 
@@ -602,6 +556,8 @@ public class TtyInterface {
         // halted |= p.isHalted(val, vals);
       }
       if (showTable) {
+        if (ttyOutput.length() > 0)
+          flushTty();
         if (displayTableRow(needTableHeader, prevOutputs, curOutputs, headers, formats, format, curOutputs.size())) {
           needTableHeader = false;
           ndup = 0;
@@ -628,14 +584,11 @@ public class TtyInterface {
         retCode = 1; // abnormal exit
         break;
       }
-      if (keyboardStates != null) {
-        char[] buffer = stdinThread.getBuffer();
-        if (buffer != null) {
-          for (InstanceState keyState : keyboardStates) {
-            Keyboard.addToBuffer(keyState, buffer);
-          }
-        }
-      }
+      if (input != null)
+        input.feed(keyboardStates);
+      if (ttyOutput.length() > 0
+          && System.nanoTime() - ttyFlushTime >= TTY_FLUSH_NANOS)
+        flushTty();
       prevOutputs = curOutputs;
       tickCount++;
       prop.toggleClocks();
@@ -653,7 +606,10 @@ public class TtyInterface {
     }
     if (showSpeed) {
       displaySpeed(tickCount, elapse);
+      System.out.println(S.fmt("ttyDirtyDedupMsg", prop.getDuplicateDirtyMarks()));
     }
+    if ((format & FORMAT_PROFILE) != 0)
+      SimulationProfile.dump(new PrintWriter(System.out), 20);
     return retCode;
   }
 
@@ -836,9 +792,33 @@ public class TtyInterface {
     return 0;
   }
 
+  // Characters printed by TTY components during "-tty tty". Writing them to
+  // System.out one at a time costs far more than simulating the circuit that
+  // prints them, so they are collected here and written in batches: at a
+  // newline if the last write was long enough ago, whenever TTY_FLUSH_CHARS
+  // are waiting, before any other output, when the simulation stops, and
+  // from the simulation loop once a partial line, such as a prompt, has
+  // waited for TTY_FLUSH_NANOS.
+  private static final StringBuilder ttyOutput = new StringBuilder();
+  private static final int TTY_FLUSH_CHARS = 8192;
+  private static final long TTY_FLUSH_NANOS = 50000000L;
+  private static long ttyFlushTime = System.nanoTime();
+
   public static void sendFromTty(char c) {
     lastIsNewline = c == '\n';
-    System.out.print(c); // OK
+    ttyOutput.append(c);
+    if (ttyOutput.length() >= TTY_FLUSH_CHARS
+        || (c == '\n' && System.nanoTime() - ttyFlushTime >= TTY_FLUSH_NANOS))
+      flushTty();
+  }
+
+  private static void flushTty() {
+    if (ttyOutput.length() > 0) {
+      System.out.append(ttyOutput); // OK
+      System.out.flush();
+      ttyOutput.setLength(0);
+    }
+    ttyFlushTime = System.nanoTime();
   }
 
   public static final int FORMAT_TABLE = 1 << 0;
@@ -857,9 +837,11 @@ public class TtyInterface {
   public static final int FORMAT_TURING =       1 << 12;
   public static String turingInitialTape = "";
   public static int turingMaxSteps = -1;
+  private static File inputFile = null; // or null for standard input
 
   public static final int FORMAT_PRETTY = 1 << 13;
   public static final int FORMAT_INCLUDE_PNG = 1 << 14;
+  public static final int FORMAT_PROFILE = 1 << 15;
 
   private static boolean lastIsNewline = true;
 }
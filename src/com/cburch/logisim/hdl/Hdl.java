@@ -66,6 +66,21 @@ public class Hdl extends ArrayList<String> {
   private StringBuffer buf = new StringBuffer();
   private ArrayList<Integer> align = new ArrayList<>();
 
+  // Optional destination for completed lines. When set, lines are passed
+  // straight to the sink instead of being kept in this list, so very large
+  // generated files (e.g. ROM tables) never need to be held in memory.
+  public interface Sink {
+    public void line(String s);
+  }
+
+  private Sink sink;
+  private long streamed;
+
+  public Hdl(String lang, FPGAReport err, Sink sink) {
+    this(lang, err);
+    this.sink = sink;
+  }
+
   public Hdl(String lang, FPGAReport err) {
     if (lang.equals("VHDL"))
       this.lang = Lang.VHDL;
@@ -111,6 +126,20 @@ public class Hdl extends ArrayList<String> {
     }
   }
 
+  @Override
+  public boolean add(String line) {
+    if (sink == null)
+      return super.add(line);
+    sink.line(line);
+    streamed++;
+    return true;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return super.isEmpty() && streamed == 0;
+  }
+
   // public Hdl(Lang lang) {
   //   this.lang = lang;
   //   this.isVhdl = lang == Lang.VHDL;
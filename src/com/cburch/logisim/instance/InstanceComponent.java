@@ -37,6 +37,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
+import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -90,12 +91,15 @@ public /*final*/ class InstanceComponent
   private List<Port> portList;
   private EndData[] endArray;
   private List<EndData> endList;
+  private int[] portSlots; // CircuitState fast path slot for each end
+  private PortConnections portConnections;
   private boolean hasToolTips;
   private HashSet<Attribute<BitWidth>> widthAttrs;
   private AttributeSet attrs;
   private boolean attrListenRequested;
   private InstanceTextField textField;
   private InstanceStateImpl instanceState;
+  private int circuitIndex = -1;
 
   public InstanceComponent(InstanceFactory factory, Location loc,
       AttributeSet attrs) {
@@ -202,6 +206,13 @@ public /*final*/ class InstanceComponent
       endArray = es;
       endList = new UnmodifiableList<EndData>(es);
     }
+    if (es != esOld || endsChangedOld != null) {
+      int[] slots = new int[es.length];
+      for (int i = 0; i < es.length; i++)
+        slots[i] = es[i] == null ? -1 : CircuitState.getFastpathSlot(es[i].getLocation());
+      portSlots = slots;
+      portConnections = null;
+    }
     widthAttrs = wattrs;
     hasToolTips = toolTipFound;
     if (endsChangedOld != null) {
@@ -297,6 +308,49 @@ public /*final*/ class InstanceComponent
     return endArray[index];
   }
 
+  @Override
+  public int getCircuitIndex() {
+    return circuitIndex;
+  }
+
+  @Override
+  public void setCircuitIndex(int index) {
+    circuitIndex = index;
+  }
+
+  int getPortSlot(int index) {
+    return portSlots[index];
+  }
+
+  // Cached results of Circuit.isConnected() for each end, valid until the
+  // circuit is next modified. Threads may race to fill in entries, but they
+  // all compute the same answer, so that is harmless.
+  private static class PortConnections {
+    final Circuit circ;
+    final int modCount;
+    final byte[] connected; // 0 = not yet known, 1 = no, 2 = yes
+    PortConnections(Circuit circ, int modCount, int n) {
+      this.circ = circ;
+      this.modCount = modCount;
+      this.connected = new byte[n];
+    }
+  }
+
+  boolean isPortConnected(Circuit circ, int index) {
+    PortConnections pc = portConnections;
+    int modCount = circ.getModificationCount();
+    if (pc == null || pc.circ != circ || pc.modCount != modCount) {
+      pc = new PortConnections(circ, modCount, endArray.length);
+      portConnections = pc;
+    }
+    byte c = pc.connected[index];
+    if (c == 0) {
+      c = circ.isConnected(endArray[index].getLocation(), this) ? (byte)2 : (byte)1;
+      pc.connected[index] = c;
+    }
+    return c == 2;
+  }
+
   //
   // propagation methods
   //
@@ -100,6 +100,10 @@ public class InstanceStateImpl implements InstanceState {
 
   public Value getPortValue(int portIndex) {
     EndData data = component.getEnd(portIndex);
+    if (component instanceof InstanceComponent) {
+      int slot = ((InstanceComponent)component).getPortSlot(portIndex);
+      return circuitState.getValueAtSlot(slot, data.getLocation());
+    }
     return circuitState.getValue(data.getLocation());
   }
 
@@ -117,6 +121,8 @@ public class InstanceStateImpl implements InstanceState {
 
   public boolean isPortConnected(int index) {
     Circuit circ = circuitState.getCircuit();
+    if (component instanceof InstanceComponent)
+      return ((InstanceComponent)component).isPortConnected(circ, index);
     Location loc = component.getEnd(index).getLocation();
     return circ.isConnected(loc, component);
   }
@@ -133,6 +139,7 @@ public class InstanceStateImpl implements InstanceState {
 
   public void setPort(int portIndex, Value value, int delay) {
     EndData end = component.getEnd(portIndex);
-    circuitState.setValue(end.getLocation(), value, component, delay);
+    circuitState.setPortValue(end.getLocation(), portIndex, value, component,
+        delay);
   }
 }
@@ -36,6 +36,7 @@ import java.awt.Graphics;
 
 import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -50,7 +51,17 @@ import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class Adder extends InstanceFactory {
-  static Value[] computeSum(BitWidth width, Value a, Value b, Value c_in) {
+  // Per-thread scratch space for the two outputs of computeSum() and
+  // friends, so that propagating arithmetic components allocates nothing.
+  private static final ThreadLocal<Value[]> outputScratch =
+      ThreadLocal.withInitial(() -> new Value[2]);
+
+  static Value[] outputScratch() {
+    return outputScratch.get();
+  }
+
+  // Stores the sum in outs[0] and the carry out in outs[1].
+  static void computeSum(BitWidth width, Value a, Value b, Value c_in, Value[] outs) {
     int w = width.getWidth();
     if (c_in == Value.UNKNOWN || c_in == Value.NIL)
       c_in = Value.FALSE;
@@ -61,40 +72,43 @@ public class Adder extends InstanceFactory {
         long bx = (long) b.toIntValue() & mask;
         long cx = (long) c_in.toIntValue() & mask;
         long sum = ax + bx + cx;
-        return new Value[] { Value.createKnown(width, (int) sum),
-          ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
+        outs[0] = Value.createKnown(width, (int) sum);
+        outs[1] = ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE;
       } else {
         int sum = a.toIntValue() + b.toIntValue() + c_in.toIntValue();
-        return new Value[] { Value.createKnown(width, sum),
-          ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
+        outs[0] = Value.createKnown(width, sum);
+        outs[1] = ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE;
       }
     } else {
-      Value[] bits = new Value[w];
+      int error = 0, unknown = 0, value = 0;
       Value carry = c_in;
       for (int i = 0; i < w; i++) {
+        int bit = 1 << i;
         if (carry == Value.ERROR) {
-          bits[i] = Value.ERROR;
+          error |= bit;
         } else if (carry == Value.UNKNOWN) {
-          bits[i] = Value.UNKNOWN;
+          unknown |= bit;
         } else {
           Value ab = a.get(i);
           Value bb = b.get(i);
           if (ab == Value.ERROR || bb == Value.ERROR) {
-            bits[i] = Value.ERROR;
+            error |= bit;
             carry = Value.ERROR;
           } else if (ab == Value.UNKNOWN || bb == Value.UNKNOWN) {
-            bits[i] = Value.UNKNOWN;
+            unknown |= bit;
             carry = Value.UNKNOWN;
           } else {
             int sum = (ab == Value.TRUE ? 1 : 0)
                 + (bb == Value.TRUE ? 1 : 0)
                 + (carry == Value.TRUE ? 1 : 0);
-            bits[i] = (sum & 1) == 1 ? Value.TRUE : Value.FALSE;
+            if ((sum & 1) == 1)
+              value |= bit;
             carry = (sum >= 2) ? Value.TRUE : Value.FALSE;
           }
         }
       }
-      return new Value[] { Value.create(bits), carry };
+      outs[0] = Value.create(w, error, unknown, value);
+      outs[1] = carry;
     }
   }
 
@@ -127,6 +141,11 @@ public class Adder extends InstanceFactory {
     setPorts(ps);
   }
 
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new ArithAttributes(false);
+  }
+
   @Override
   public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
     return new AdderHDLGenerator(ctx);
@@ -157,13 +176,14 @@ public class Adder extends InstanceFactory {
   @Override
   public void propagate(InstanceState state) {
     // get attributes
-    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
+    BitWidth dataWidth = ArithAttributes.of(state).width;
 
     // compute outputs
     Value a = state.getPortValue(IN0);
     Value b = state.getPortValue(IN1);
     Value c_in = state.getPortValue(C_IN);
-    Value[] outs = Adder.computeSum(dataWidth, a, b, c_in);
+    Value[] outs = outputScratch();
+    computeSum(dataWidth, a, b, c_in, outs);
 
     // propagate them
     int delay = (dataWidth.getWidth() + 2) * PER_DELAY;
@@ -0,0 +1,96 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.arith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.cburch.logisim.data.AbstractAttributeSet;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+
+// Attributes of the word-wide arithmetic components: a data width, and for
+// some, whether operands are signed. The fields are kept current as the
+// attributes change, so propagate() reads them directly rather than looking
+// each attribute up on every evaluation.
+class ArithAttributes extends AbstractAttributeSet {
+  private static final List<Attribute<?>> WIDTH_ONLY =
+      Arrays.asList(new Attribute<?>[] { StdAttr.WIDTH });
+  private static final List<Attribute<?>> WIDTH_AND_MODE =
+      Arrays.asList(new Attribute<?>[] { StdAttr.WIDTH, Comparator.MODE_ATTRIBUTE });
+
+  private final List<Attribute<?>> attributes;
+  BitWidth width = BitWidth.create(8);
+  AttributeOption mode; // null for components without a mode
+  boolean unsigned;
+
+  ArithAttributes(boolean hasMode) {
+    attributes = hasMode ? WIDTH_AND_MODE : WIDTH_ONLY;
+    mode = hasMode ? Comparator.SIGNED_OPTION : null;
+  }
+
+  static ArithAttributes of(InstanceState state) {
+    return (ArithAttributes) state.getAttributeSet();
+  }
+
+  @Override
+  protected void copyInto(AbstractAttributeSet dest) {
+    ; // nothing to do
+  }
+
+  @Override
+  public List<Attribute<?>> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> V getValue(Attribute<V> attr) {
+    if (attr == StdAttr.WIDTH)
+      return (V) width;
+    if (attr == Comparator.MODE_ATTRIBUTE)
+      return (V) mode;
+    return null;
+  }
+
+  @Override
+  public <V> void updateAttr(Attribute<V> attr, V value) {
+    if (attr == StdAttr.WIDTH) {
+      width = (BitWidth) value;
+    } else if (attr == Comparator.MODE_ATTRIBUTE && mode != null) {
+      mode = (AttributeOption) value;
+      unsigned = mode == Comparator.UNSIGNED_OPTION;
+    }
+  }
+}
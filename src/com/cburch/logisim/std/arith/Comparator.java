@@ -34,6 +34,7 @@ import static com.cburch.logisim.std.Strings.S;
 import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -88,6 +89,11 @@ public class Comparator extends InstanceFactory {
   //
   // methods for instances
   //
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new ArithAttributes(true);
+  }
+
   @Override
   protected void configureNewInstance(Instance instance) {
     instance.addAttributeListener();
@@ -116,7 +122,8 @@ public class Comparator extends InstanceFactory {
   @Override
   public void propagate(InstanceState state) {
     // get attributes
-    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
+    ArithAttributes attrs = ArithAttributes.of(state);
+    BitWidth dataWidth = attrs.width;
 
     // compute outputs
     Value gt = Value.FALSE;
@@ -125,15 +132,14 @@ public class Comparator extends InstanceFactory {
 
     Value a = state.getPortValue(IN0);
     Value b = state.getPortValue(IN1);
-    Value[] ax = a.getAll();
-    Value[] bx = b.getAll();
-    int maxlen = Math.max(ax.length, bx.length);
+    int alen = a.getWidth();
+    int blen = b.getWidth();
+    int maxlen = Math.max(alen, blen);
     for (int pos = maxlen - 1; pos >= 0; pos--) {
-      Value ab = pos < ax.length ? ax[pos] : Value.ERROR;
-      Value bb = pos < bx.length ? bx[pos] : Value.ERROR;
-      if (pos == ax.length - 1 && ab != bb) {
-        Object mode = state.getAttributeValue(MODE_ATTRIBUTE);
-        if (mode != UNSIGNED_OPTION) {
+      Value ab = a.get(pos); // ERROR when pos is beyond the width
+      Value bb = b.get(pos);
+      if (pos == alen - 1 && ab != bb) {
+        if (!attrs.unsigned) {
           Value t = ab;
           ab = bb;
           bb = t;
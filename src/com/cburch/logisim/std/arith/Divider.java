@@ -33,11 +33,11 @@ import static com.cburch.logisim.std.Strings.S;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.math.BigInteger;
 
 import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -57,22 +57,32 @@ public class Divider extends InstanceFactory {
   public static final AttributeOption UNSIGNED_OPTION = Comparator.UNSIGNED_OPTION;
   public static final Attribute<AttributeOption> MODE_ATTR = Comparator.MODE_ATTRIBUTE;
 
-  static Value[] computeResult(BitWidth width, Value a, Value b, Value upper, boolean unsigned) {
+  // Stores the quotient in outs[0] and the remainder in outs[1]. The 2w-bit
+  // dividend fits in a long since w <= 32; it is only negative when signed.
+  static void computeResult(BitWidth width, Value a, Value b, Value upper, boolean unsigned,
+      Value[] outs) {
     int w = width.getWidth();
     if (upper == Value.NIL /* || upper.isUnknown() */)
       upper = Value.createKnown(width, unsigned ? 0 : a.get(w-1) == Value.TRUE ? -1 : 0);
     if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
-      BigInteger uu = BigInteger.valueOf(Multiplier.extend(w, upper.toIntValue(), unsigned));
-      BigInteger aa = BigInteger.valueOf(Multiplier.extend(w, a.toIntValue(), true)); // zero extend
-      BigInteger bb = BigInteger.valueOf(Multiplier.extend(w, b.toIntValue(), unsigned));
-
-      BigInteger num = uu.shiftLeft(w).or(aa);
-      BigInteger den = bb.equals(BigInteger.ZERO) ? BigInteger.valueOf(1) : bb;
-
-      BigInteger res[] = num.divideAndRemainder(den);
+      long uu = Multiplier.extend(w, upper.toIntValue(), unsigned);
+      long aa = Multiplier.extend(w, a.toIntValue(), true); // zero extend
+      long bb = Multiplier.extend(w, b.toIntValue(), unsigned);
+
+      long num = (uu << w) | aa;
+      long den = bb == 0 ? 1 : bb;
+
+      long quo, rem0;
+      if (unsigned) {
+        quo = Long.divideUnsigned(num, den);
+        rem0 = Long.remainderUnsigned(num, den);
+      } else {
+        quo = num / den;
+        rem0 = num % den;
+      }
       long mask = (1L << w) - 1;
-      int result = res[0].and(BigInteger.valueOf(mask)).intValue();
-      int rem = res[1].and(BigInteger.valueOf(mask)).intValue();
+      int result = (int)(quo & mask);
+      int rem = (int)(rem0 & mask);
       // if (rem < 0) {
       //   if (den >= 0) {
       //     rem += den;
@@ -82,14 +92,14 @@ public class Divider extends InstanceFactory {
       //     result++;
       //   }
       // }
-      return new Value[] { Value.createKnown(width, result),
-        Value.createKnown(width, rem) };
+      outs[0] = Value.createKnown(width, result);
+      outs[1] = Value.createKnown(width, rem);
     } else if (a.isErrorValue() || b.isErrorValue() || upper.isErrorValue()) {
-      return new Value[] { Value.createError(width),
-        Value.createError(width) };
+      outs[0] = Value.createError(width);
+      outs[1] = Value.createError(width);
     } else {
-      return new Value[] { Value.createUnknown(width),
-        Value.createUnknown(width) };
+      outs[0] = Value.createUnknown(width);
+      outs[1] = Value.createUnknown(width);
     }
   }
 
@@ -122,6 +132,11 @@ public class Divider extends InstanceFactory {
     setPorts(ps);
   }
 
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new ArithAttributes(true);
+  }
+
   @Override
   public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
     if (ctx.lang.equals("VHDL"))
@@ -158,14 +173,16 @@ public class Divider extends InstanceFactory {
   @Override
   public void propagate(InstanceState state) {
     // get attributes
-    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
-    boolean unsigned = state.getAttributeValue(MODE_ATTR).equals(UNSIGNED_OPTION);
+    ArithAttributes attrs = ArithAttributes.of(state);
+    BitWidth dataWidth = attrs.width;
+    boolean unsigned = attrs.unsigned;
 
     // compute outputs
     Value a = state.getPortValue(IN0);
     Value b = state.getPortValue(IN1);
     Value upper = state.getPortValue(UPPER);
-    Value[] outs = computeResult(dataWidth, a, b, upper, unsigned);
+    Value[] outs = Adder.outputScratch();
+    computeResult(dataWidth, a, b, upper, unsigned, outs);
 
     // propagate them
     int delay = dataWidth.getWidth() * (dataWidth.getWidth() + 2) * PER_DELAY;
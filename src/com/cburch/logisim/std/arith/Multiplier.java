@@ -33,11 +33,11 @@ import static com.cburch.logisim.std.Strings.S;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.math.BigInteger;
 
 import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -64,19 +64,24 @@ public class Multiplier extends InstanceFactory {
     else return (long)v;
   }
 
-  static Value[] computeProduct(BitWidth width, Value a, Value b, Value c_in, boolean unsigned) {
+  // Stores the low half of the product in outs[0] and the high half in
+  // outs[1]. Since w <= 32, the 2w-bit result fits in a long: arithmetic
+  // modulo 2^64 gives the right bits for both signed and unsigned operands.
+  static void computeProduct(BitWidth width, Value a, Value b, Value c_in, boolean unsigned,
+      Value[] outs) {
     int w = width.getWidth();
     if (c_in == Value.NIL || c_in.isUnknown())
       c_in = Value.createKnown(width, 0);
     if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-      BigInteger aa = BigInteger.valueOf(extend(w, a.toIntValue(), unsigned));
-      BigInteger bb = BigInteger.valueOf(extend(w, b.toIntValue(), unsigned));
-      BigInteger cc = BigInteger.valueOf(extend(w, c_in.toIntValue(), unsigned));
-      BigInteger rr = aa.multiply(bb).add(cc);
+      long aa = extend(w, a.toIntValue(), unsigned);
+      long bb = extend(w, b.toIntValue(), unsigned);
+      long cc = extend(w, c_in.toIntValue(), unsigned);
+      long rr = aa * bb + cc;
       long mask = (1L << w) - 1;
-      int lo = rr.and(BigInteger.valueOf(mask)).intValue();
-      int hi = rr.shiftRight(w).and(BigInteger.valueOf(mask)).intValue();
-      return new Value[] { Value.createKnown(width, lo), Value.createKnown(width, hi) };
+      int lo = (int)(rr & mask);
+      int hi = (int)((rr >>> w) & mask);
+      outs[0] = Value.createKnown(width, lo);
+      outs[1] = Value.createKnown(width, hi);
     } else {
       Value[] avals = a.getAll();
       int aOk = findUnknown(avals);
@@ -95,11 +100,8 @@ public class Multiplier extends InstanceFactory {
       int error = Math.min(Math.min(aErr, bErr), cErr);
 
       // note: this is probably wrong, but the inputs were bad anyway
-      BigInteger aa = BigInteger.valueOf(extend(w, ax, unsigned));
-      BigInteger bb = BigInteger.valueOf(extend(w, bx, unsigned));
-      BigInteger cc = BigInteger.valueOf(extend(w, cx, unsigned));
-      BigInteger rr = aa.multiply(bb).add(cc);
-      long ret = rr.longValue();
+      long ret = extend(w, ax, unsigned) * extend(w, bx, unsigned)
+          + extend(w, cx, unsigned);
 
       Value[] bits = new Value[w];
       for (int i = 0; i < w; i++) {
@@ -111,9 +113,8 @@ public class Multiplier extends InstanceFactory {
           bits[i] = Value.ERROR;
         }
       }
-      return new Value[] {
-        Value.create(bits),
-            error < w ? Value.createError(width) : Value.createUnknown(width) };
+      outs[0] = Value.create(bits);
+      outs[1] = error < w ? Value.createError(width) : Value.createUnknown(width);
     }
   }
 
@@ -173,6 +174,11 @@ public class Multiplier extends InstanceFactory {
     setPorts(ps);
   }
 
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new ArithAttributes(true);
+  }
+
   @Override
   public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
     if (ctx.lang.equals("VHDL"))
@@ -206,14 +212,16 @@ public class Multiplier extends InstanceFactory {
   @Override
   public void propagate(InstanceState state) {
     // get attributes
-    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
-    boolean unsigned = state.getAttributeValue(MODE_ATTR).equals(UNSIGNED_OPTION);
+    ArithAttributes attrs = ArithAttributes.of(state);
+    BitWidth dataWidth = attrs.width;
+    boolean unsigned = attrs.unsigned;
 
     // compute outputs
     Value a = state.getPortValue(IN0);
     Value b = state.getPortValue(IN1);
     Value c_in = state.getPortValue(C_IN);
-    Value[] outs = computeProduct(dataWidth, a, b, c_in, unsigned);
+    Value[] outs = Adder.outputScratch();
+    computeProduct(dataWidth, a, b, c_in, unsigned, outs);
 
     // propagate them
     int delay = dataWidth.getWidth() * (dataWidth.getWidth() + 2) * PER_DELAY;
@@ -36,6 +36,7 @@ import java.awt.Graphics;
 
 import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -79,6 +80,11 @@ public class Subtractor extends InstanceFactory {
     setPorts(ps);
   }
 
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new ArithAttributes(false);
+  }
+
   @Override
   public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
     return new SubtractorHDLGenerator(ctx);
@@ -108,7 +114,7 @@ public class Subtractor extends InstanceFactory {
   @Override
   public void propagate(InstanceState state) {
     // get attributes
-    BitWidth data = state.getAttributeValue(StdAttr.WIDTH);
+    BitWidth data = ArithAttributes.of(state).width;
 
     // compute outputs
     Value a = state.getPortValue(IN0);
@@ -116,7 +122,8 @@ public class Subtractor extends InstanceFactory {
     Value b_in = state.getPortValue(B_IN);
     if (b_in == Value.UNKNOWN || b_in == Value.NIL)
       b_in = Value.FALSE;
-    Value[] outs = Adder.computeSum(data, a, b.not(), b_in.not());
+    Value[] outs = Adder.outputScratch();
+    Adder.computeSum(data, a, b.not(), b_in.not(), outs);
 
     // propagate them
     int delay = (data.getWidth() + 4) * Adder.PER_DELAY;
@@ -33,11 +33,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import java.awt.Color;
 import java.awt.Graphics;
-
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
+import java.io.File;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
@@ -70,6 +66,7 @@ public class PCMSink extends InstanceFactory {
   public static final Attribute<AttributeOption> MODE_ATTR = Comparator.MODE_ATTRIBUTE;
 
   static Attribute<Integer> ATTR_BUFSIZE = Attributes.forIntegerRange("bufsize", S.getter("audioBufferCapacity"), 16, 16*1024);
+  static Attribute<Integer> ATTR_LATENCY = Attributes.forIntegerRange("latency", S.getter("audioLatency"), 10, 2000);
 
   // port numbers
   static final int CK = 0;
@@ -96,17 +93,17 @@ public class PCMSink extends InstanceFactory {
   public AttributeSet createAttributeSet() {
     // We defer init to here, so that output stream is only initialized when being used
     setAttributes(new Attribute[] {
-      StdAttr.EDGE_TRIGGER, ATTR_RATE, StdAttr.WIDTH, MODE_ATTR, ATTR_BUFSIZE },
+      StdAttr.EDGE_TRIGGER, ATTR_RATE, StdAttr.WIDTH, MODE_ATTR, ATTR_BUFSIZE,
+      ATTR_LATENCY },
         new Object[] {
-          StdAttr.TRIG_FALLING, RATE_32KHZ, BitWidth.EIGHT, UNSIGNED_OPTION, Integer.valueOf(512) });
+          StdAttr.TRIG_FALLING, RATE_32KHZ, BitWidth.EIGHT, UNSIGNED_OPTION, Integer.valueOf(512),
+          Integer.valueOf(100) });
     return super.createAttributeSet();
   }
 
   @Override
   public void propagate(InstanceState circState) {
     State data = getState(circState);
-    if (data.out == null)
-      return;
 
     Object trigger = circState.getAttributeValue(StdAttr.EDGE_TRIGGER);
     Value enable = circState.getPortValue(WE);
@@ -127,43 +124,10 @@ public class PCMSink extends InstanceFactory {
     if (sample < 0)
       return;
 
-    if (data.count > data.buf.length)
-      return;
-
-    // System.out.printf("Buf has %d of %d bytes filled, writing %d byte sample\n", data.count, data.buf.length, data.bytesPerSample);
-    for (int i = 0; i < data.bytesPerSample; i++) {
-      data.buf[data.count++] = (byte)(sample & 0xff);
-      sample = sample >> 8;
-    }
-
-    if (data.count < data.buf.length)
-      return;
-
-    if (!data.out.isOpen()) {
-      try {
-        data.out.open(data.fmt, data.buflen*data.bytesPerSample - data.buf.length);
-      } catch (LineUnavailableException e) {
-        System.out.println(e.getMessage());
-        data.out = null;
-        data.count = 0;
-        return;
-      }
-    }
-
-    int n = data.out.write(data.buf, 0, data.count);
-    if (n <= 0) {
-      data.out.close();
-      data.out = null;
-      data.count = 0;
-    } else if (n < data.count) {
-      data.out.start();
-      System.arraycopy(data.buf, data.count-n,
-          data.buf, 0, data.count - n);
-      data.count -= n;
-    } else {
-      data.out.start();
-      data.count = 0;
-    }
+    // The stream's own thread does the writing, so this never blocks on
+    // the sound device. If the device has fallen behind, the sample is
+    // dropped and counted as an overrun.
+    data.stream().put(sample);
   }
 
   @Override
@@ -172,10 +136,9 @@ public class PCMSink extends InstanceFactory {
     Bounds bds = painter.getNominalBounds();
     Graphics g = painter.getGraphics();
 
-    if (data != null && data.out != null && data.out.isOpen()) {
-      int n = data.count + (data.out.getBufferSize() - data.out.available());
-      int m = data.buf.length + data.out.getBufferSize();
-      int h = bds.height * n/m;
+    PCMStream stream = data == null ? null : data.stream;
+    if (stream != null && stream.isPlaying()) {
+      int h = bds.height * stream.buffered() / stream.capacity();
       g.setColor(Color.LIGHT_GRAY);
       g.fillRect(bds.x, bds.y + bds.height - h, bds.width, h);
     }
@@ -186,9 +149,7 @@ public class PCMSink extends InstanceFactory {
 
     int x = bds.x + bds.width/2;
     int y = bds.y + bds.height/2;
-    MidiDevice.paintSpeakerIcon(g, x, y, data != null && data.out != null
-        && data.out.isOpen() && data.out.isActive() && data.out.isRunning()
-        && data.out.available() < data.out.getBufferSize());
+    MidiDevice.paintSpeakerIcon(g, x, y, stream != null && stream.isPlaying());
   }
 
   private State getState(InstanceState state) {
@@ -205,75 +166,60 @@ public class PCMSink extends InstanceFactory {
   private static int rateOf(AttributeOption opt) {
     if (opt == RATE_16KHZ) return 16000;
     if (opt == RATE_32KHZ) return 32000;
-    if (opt == RATE_32KHZ) return 64000;
+    if (opt == RATE_64KHZ) return 64000;
     return 32000;
   }
 
   static class State implements InstanceData, Cloneable {
     private Value lastClock = Value.UNKNOWN;
-    private byte[] buf; // approx 25% of buflen*bytesPerSample
-    private int count = 0;
-    private int buflen, bitsPerSample, bytesPerSample;
-    private SourceDataLine out;
-    private AudioFormat fmt;
+    private int buflen, bitsPerSample, latency;
     private AttributeOption rateOption;
     private boolean signed;
+    private PCMStream stream; // created by the first sample
 
     public State(InstanceState circState) {
-      int b = circState.getAttributeValue(ATTR_BUFSIZE);
-      int s = circState.getAttributeValue(StdAttr.WIDTH).getWidth();
-      AttributeOption r = circState.getAttributeValue(ATTR_RATE);
-      boolean g = circState.getAttributeValue(MODE_ATTR) == SIGNED_OPTION;
-      init(b, s, r, g);
+      init(circState);
     }
 
     public State(State orig) {
       lastClock = orig.lastClock;
-      init(orig.buflen, orig.bitsPerSample, orig.rateOption, orig.signed);
+      buflen = orig.buflen;
+      bitsPerSample = orig.bitsPerSample;
+      latency = orig.latency;
+      rateOption = orig.rateOption;
+      signed = orig.signed;
     }
 
-    void init(int b, int s, AttributeOption r, boolean g) {
-      buflen = b;
-      bitsPerSample = s;
-      rateOption = r;
-      signed = g;
-      int rate = rateOf(rateOption);
-      bytesPerSample = (bitsPerSample + 7)/8;
-      // buf = new byte[(buflen/4) * bytesPerSample]; // out provides 75% of buffering
-      buf = new byte[bytesPerSample]; // minimual buffering
-      int channels = 1;
-      fmt = new AudioFormat(
-          signed ? AudioFormat.Encoding.PCM_SIGNED : AudioFormat.Encoding.PCM_UNSIGNED,
-          rate, bitsPerSample, channels,
-          bytesPerSample*channels, rate*bytesPerSample*channels, false);
-      try {
-        out = AudioSystem.getSourceDataLine(fmt);
-      } catch (LineUnavailableException e) {
-        System.out.println(e.getMessage());
-        out = null;
-      }
+    private void init(InstanceState circState) {
+      buflen = circState.getAttributeValue(ATTR_BUFSIZE);
+      bitsPerSample = circState.getAttributeValue(StdAttr.WIDTH).getWidth();
+      latency = circState.getAttributeValue(ATTR_LATENCY);
+      rateOption = circState.getAttributeValue(ATTR_RATE);
+      signed = circState.getAttributeValue(MODE_ATTR) == SIGNED_OPTION;
     }
 
     void update(InstanceState circState) {
       int b = circState.getAttributeValue(ATTR_BUFSIZE);
       int s = circState.getAttributeValue(StdAttr.WIDTH).getWidth();
+      int l = circState.getAttributeValue(ATTR_LATENCY);
       AttributeOption r = circState.getAttributeValue(ATTR_RATE);
       boolean g = circState.getAttributeValue(MODE_ATTR) == SIGNED_OPTION;
-      if (r == rateOption && b == buflen && s == bitsPerSample && g == signed)
+      if (r == rateOption && b == buflen && s == bitsPerSample && l == latency
+          && g == signed)
         return;
-      if (out != null) {
-        if (out.isOpen())
-          out.close();
-        out = null;
+      if (stream != null) {
+        stream.close();
+        stream = null;
       }
-      init(b, s, r, g);
+      init(circState);
+    }
+
+    PCMStream stream() {
+      if (stream == null)
+        stream = new PCMStream(buflen, rateOf(rateOption), bitsPerSample,
+            signed, latency, nextWavFile());
+      return stream;
     }
-          
-    // @Override
-    // public void finalize() {
-    //   if (out != null && out.isOpen())
-    //     out.close();
-    // }
 
     @Override
     public State clone() {
@@ -288,4 +234,28 @@ public class PCMSink extends InstanceFactory {
 
   }
 
+  private static File wavFile = null;
+  private static int wavCount = 0;
+
+  // In headless mode, with "-wav file", samples go to WAV files rather than
+  // to the sound device. The first sink to play writes the given file, and
+  // any others write "name-2.wav", "name-3.wav", and so on.
+  public static synchronized void setWavFile(File file) {
+    wavFile = file;
+    wavCount = 0;
+  }
+
+  private static synchronized File nextWavFile() {
+    if (wavFile == null)
+      return null;
+    if (++wavCount == 1)
+      return wavFile;
+    String name = wavFile.getName();
+    int dot = name.lastIndexOf('.');
+    if (dot <= 0)
+      dot = name.length();
+    return new File(wavFile.getParentFile(),
+        name.substring(0, dot) + "-" + wavCount + name.substring(dot));
+  }
+
 }
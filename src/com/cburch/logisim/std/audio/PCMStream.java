@@ -0,0 +1,366 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.audio;
+import static com.cburch.logisim.std.Strings.S;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.cburch.logisim.util.UniquelyNamedThread;
+
+// Carries the samples of a PCM Sink from the simulator to the sound device,
+// or to a WAV file, so that propagate never waits for audio output. The
+// simulator puts samples into a ring, and a writer thread belonging to the
+// stream takes them out and does the blocking writes. The ring has exactly
+// one producer and one consumer, each of which only ever changes its own
+// index, so neither side takes a lock.
+//
+// The writer thread ends after a second without samples, closing the sound
+// line, and the next sample starts a new one. That way the streams of
+// discarded simulation states don't keep threads or lines open.
+class PCMStream implements Runnable {
+
+  private static final int CHUNK = 256; // samples per write
+  private static final long PARK_NANOS = 2000000L;
+  private static final long IDLE_NANOS = 1000000000L;
+
+  private final int[] ring; // length is a power of two
+  private final int mask;
+  private volatile long head = 0; // next slot to fill, changed only by put()
+  private volatile long tail = 0; // next slot to drain, changed only by writer
+  private volatile boolean closed = false;
+  private volatile boolean parked = false;
+  private volatile Thread writer;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  // Samples dropped because the ring was full, counted by put(), and times
+  // the device ran out of samples while playing, counted by the writer.
+  private volatile long overruns = 0, underruns = 0;
+
+  private final int rate, bitsPerSample, bytesPerSample, latencyMillis;
+  private final boolean signed;
+  private final File wavFile; // or null to play on the default device
+
+  // used only by the writer thread
+  private SourceDataLine line;
+  private RandomAccessFile wav;
+  private long wavBytes;
+
+  PCMStream(int capacity, int rate, int bitsPerSample, boolean signed,
+      int latencyMillis, File wavFile) {
+    int n = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.ring = new int[n];
+    this.mask = n - 1;
+    this.rate = rate;
+    this.bitsPerSample = bitsPerSample;
+    this.bytesPerSample = (bitsPerSample + 7) / 8;
+    this.signed = signed;
+    this.latencyMillis = latencyMillis;
+    this.wavFile = wavFile;
+  }
+
+  int capacity() {
+    return ring.length;
+  }
+
+  int buffered() {
+    return (int) (head - tail);
+  }
+
+  long getOverruns() {
+    return overruns;
+  }
+
+  long getUnderruns() {
+    return underruns;
+  }
+
+  boolean isPlaying() {
+    return running.get() && !closed;
+  }
+
+  // Called by the simulator. Returns false if the sample had to be dropped.
+  boolean put(int sample) {
+    if (closed)
+      return false;
+    long h = head;
+    if (h - tail > mask) {
+      if (wavFile == null) {
+        overruns++;
+        return false;
+      }
+      // A file has no deadline, so rather than drop samples the simulator
+      // waits for the writer to catch up.
+      while (h - tail > mask && !closed) {
+        startWriter();
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+      if (closed)
+        return false;
+    }
+    ring[(int) h & mask] = sample;
+    head = h + 1;
+    if (!running.get())
+      startWriter();
+    else if (parked)
+      LockSupport.unpark(writer);
+    return true;
+  }
+
+  private void startWriter() {
+    if (running.compareAndSet(false, true)) {
+      Thread t = new UniquelyNamedThread(this, "PCMSinkWriter");
+      t.setDaemon(true);
+      writer = t;
+      // A WAV file is only valid once its header is rewritten, so the stream
+      // is registered before the writer has a chance to open it.
+      if (wavFile != null)
+        register(this);
+      t.start();
+    }
+  }
+
+  // Stops taking samples. Those already in the ring are still written out,
+  // after which the device is drained or the WAV file completed. This does
+  // not wait for the writer.
+  void close() {
+    closed = true;
+    if (running.compareAndSet(false, true)) {
+      Thread t = new UniquelyNamedThread(this, "PCMSinkWriter");
+      t.setDaemon(true);
+      writer = t;
+      t.start();
+    } else {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  public void run() {
+    byte[] buf = new byte[CHUNK * bytesPerSample];
+    boolean playing = false; // samples written since the device last ran dry
+    long idleSince = System.nanoTime();
+    try {
+      for (;;) {
+        long t = tail;
+        int n = (int) Math.min(head - t, CHUNK);
+        if (n > 0) {
+          for (int i = 0; i < n; i++)
+            encode(ring[(int) (t + i) & mask], buf, i * bytesPerSample);
+          tail = t + n; // free the slots before the write blocks
+          write(buf, n * bytesPerSample);
+          playing = true;
+          idleSince = System.nanoTime();
+          continue;
+        }
+        if (closed)
+          break;
+        if (playing && line != null
+            && line.available() >= line.getBufferSize()) {
+          underruns++;
+          playing = false;
+        }
+        if (System.nanoTime() - idleSince > IDLE_NANOS) {
+          closeLine();
+          running.set(false);
+          // a sample, or close(), may have arrived after we last looked
+          if ((head == tail && !closed) || !running.compareAndSet(false, true))
+            return;
+          idleSince = System.nanoTime();
+          continue;
+        }
+        parked = true;
+        if (head == t && !closed)
+          LockSupport.parkNanos(this, PARK_NANOS);
+        parked = false;
+      }
+      closeLine();
+      closeWav();
+    } catch (IOException | LineUnavailableException
+        | IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      closed = true;
+      if (line != null)
+        line.close();
+      line = null;
+      try {
+        if (wav != null)
+          wav.close();
+      } catch (IOException ignored) { }
+      wav = null;
+      unregister(this);
+    }
+    if (overruns > 0 || underruns > 0)
+      System.err.println(S.fmt("pcmDroppedSamples", overruns, underruns));
+  }
+
+  private void encode(int sample, byte[] buf, int off) {
+    if (wavFile != null) {
+      // WAV samples are left-justified in whole bytes, and signed except for
+      // 8-bit samples, which are unsigned.
+      int s = sample << (32 - bitsPerSample);
+      if (!signed)
+        s ^= Integer.MIN_VALUE;
+      sample = s >> (32 - 8 * bytesPerSample);
+      if (bytesPerSample == 1)
+        sample ^= 0x80;
+    }
+    for (int i = 0; i < bytesPerSample; i++) {
+      buf[off + i] = (byte) sample;
+      sample >>= 8;
+    }
+  }
+
+  private void write(byte[] buf, int len)
+      throws IOException, LineUnavailableException {
+    if (wavFile != null) {
+      if (wav == null)
+        openWav();
+      wav.write(buf, 0, len);
+      wavBytes += len;
+    } else {
+      if (line == null)
+        openLine();
+      line.write(buf, 0, len); // blocks while the device buffer is full
+      if (!line.isActive())
+        line.start();
+    }
+  }
+
+  private void openLine() throws LineUnavailableException {
+    AudioFormat fmt = new AudioFormat(
+        signed ? AudioFormat.Encoding.PCM_SIGNED : AudioFormat.Encoding.PCM_UNSIGNED,
+        rate, bitsPerSample, 1, bytesPerSample, rate, false);
+    line = AudioSystem.getSourceDataLine(fmt);
+    long samples = Math.max(CHUNK, (long) rate * latencyMillis / 1000);
+    line.open(fmt, (int) samples * bytesPerSample);
+    register(this);
+  }
+
+  private void closeLine() {
+    if (line == null)
+      return;
+    line.drain();
+    line.close();
+    line = null;
+    unregister(this);
+  }
+
+  private void openWav() throws IOException {
+    wav = new RandomAccessFile(wavFile, "rw");
+    wav.setLength(0);
+    wav.write(wavHeader(0));
+    wavBytes = 0;
+  }
+
+  private void closeWav() throws IOException {
+    if (wav == null) {
+      unregister(this);
+      return;
+    }
+    wav.seek(0);
+    wav.write(wavHeader(wavBytes));
+    wav.close();
+    wav = null;
+    unregister(this);
+  }
+
+  private byte[] wavHeader(long dataBytes) {
+    int size = (int) Math.min(dataBytes, 0x7fffffffL - 36);
+    byte[] h = new byte[44];
+    ascii(h, 0, "RIFF");
+    le(h, 4, 36 + size, 4);
+    ascii(h, 8, "WAVE");
+    ascii(h, 12, "fmt ");
+    le(h, 16, 16, 4); // size of fmt chunk
+    le(h, 20, 1, 2); // integer PCM
+    le(h, 22, 1, 2); // channels
+    le(h, 24, rate, 4);
+    le(h, 28, rate * bytesPerSample, 4); // bytes per second
+    le(h, 32, bytesPerSample, 2); // bytes per frame
+    le(h, 34, 8 * bytesPerSample, 2); // bits per sample
+    ascii(h, 36, "data");
+    le(h, 40, size, 4);
+    return h;
+  }
+
+  private static void ascii(byte[] b, int off, String s) {
+    for (int i = 0; i < s.length(); i++)
+      b[off + i] = (byte) s.charAt(i);
+  }
+
+  private static void le(byte[] b, int off, int v, int n) {
+    for (int i = 0; i < n; i++)
+      b[off + i] = (byte) (v >> (8 * i));
+  }
+
+  // Streams with an open line or an unfinished WAV file, so that they can be
+  // finished when the program exits.
+  private static final ArrayList<PCMStream> open = new ArrayList<>();
+  private static boolean hookInstalled = false;
+
+  private static synchronized void register(PCMStream s) {
+    if (!open.contains(s))
+      open.add(s);
+    if (!hookInstalled) {
+      hookInstalled = true;
+      Runtime.getRuntime().addShutdownHook(new Thread(PCMStream::closeAll));
+    }
+  }
+
+  private static synchronized void unregister(PCMStream s) {
+    open.remove(s);
+  }
+
+  private static void closeAll() {
+    PCMStream[] streams;
+    synchronized (PCMStream.class) {
+      streams = open.toArray(new PCMStream[open.size()]);
+    }
+    for (PCMStream s : streams)
+      s.close();
+    for (PCMStream s : streams) {
+      try {
+        s.writer.join(5000);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+}
@@ -46,18 +46,23 @@ import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.tools.WiringTool;
 
 public class Base extends Library {
-  private final List<Tool> tools;
-  private final AddTool textAdder = new AddTool(Base.class, Text.FACTORY);
-  private final AddTool imageAdder = new AddTool(Base.class, new Image());
-  private final AddTool calloutAdder = new AddTool(Base.class, Callout.FACTORY);
+  private List<Tool> tools = null;
 
   public Base() {
+  }
+
+  // The tools are created on first use, since several of them pull in much
+  // of the user interface.
+  private List<Tool> createTools() {
+    AddTool textAdder = new AddTool(Base.class, Text.FACTORY);
+    AddTool imageAdder = new AddTool(Base.class, new Image());
+    AddTool calloutAdder = new AddTool(Base.class, Callout.FACTORY);
     WiringTool wiring = new WiringTool();
     SelectTool select = new SelectTool();
     CutterTool cutter = new CutterTool();
     TextTool text = new TextTool();
 
-    tools = Arrays.asList(new Tool[] {
+    return Arrays.asList(new Tool[] {
       PokeTool.SINGLETON,
       new EditTool(select, wiring),
       // Select by itself is kind of useless. It can select and move things, or
@@ -93,6 +98,8 @@ public class Base extends Library {
 
   @Override
   public List<Tool> getTools() {
+    if (tools == null)
+      tools = createTools();
     return tools;
   }
 
@@ -47,7 +47,6 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
@@ -69,19 +68,14 @@ abstract class AbstractGate extends InstanceFactory {
     if (outType == GateAttributes.OUTPUT_01) {
       return value;
     } else {
-      Value[] v = value.getAll();
-      if (outType == GateAttributes.OUTPUT_0Z) {
-        for (int i = 0; i < v.length; i++) {
-          if (v[i] == Value.TRUE)
-            v[i] = Value.UNKNOWN;
-        }
-      } else if (outType == GateAttributes.OUTPUT_Z1) {
-        for (int i = 0; i < v.length; i++) {
-          if (v[i] == Value.FALSE)
-            v[i] = Value.UNKNOWN;
-        }
-      }
-      return Value.create(v);
+      Value pulled;
+      if (outType == GateAttributes.OUTPUT_0Z)
+        pulled = Value.TRUE;
+      else if (outType == GateAttributes.OUTPUT_Z1)
+        pulled = Value.FALSE;
+      else
+        return value;
+      return GateFunctions.replaceBits(value, pulled, Value.UNKNOWN);
     }
   }
 
@@ -557,11 +551,9 @@ abstract class AbstractGate extends InstanceFactory {
     GateAttributes attrs = (GateAttributes) state.getAttributeSet();
     int inputCount = attrs.inputs;
     int negated = attrs.negated;
-    AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-    boolean errorIfUndefined = opts.getValue(Options.ATTR_GATE_UNDEFINED)
-        .equals(Options.GATE_UNDEFINED_ERROR);
+    boolean errorIfUndefined = state.getProject().getOptions().isGateUndefinedError();
 
-    Value[] inputs = new Value[inputCount];
+    Value[] inputs = inputScratch.get();
     int numInputs = 0;
     boolean error = false;
     for (int i = 1; i <= inputCount; i++) {
@@ -586,9 +578,16 @@ abstract class AbstractGate extends InstanceFactory {
       out = computeOutput(inputs, numInputs, state);
       out = pullOutput(out, attrs.out);
     }
+    for (int i = 0; i < numInputs; i++)
+      inputs[i] = null;
     state.setPort(0, out, GateAttributes.DELAY);
   }
 
+  // Scratch space for propagate(), so that evaluating a gate allocates
+  // nothing. It is per-thread, as each simulator runs on its own thread.
+  private static final ThreadLocal<Value[]> inputScratch =
+      ThreadLocal.withInitial(() -> new Value[GateAttributes.MAX_INPUTS]);
+
   protected void setAdditionalWidth(int value) {
     bonusWidth = value;
   }
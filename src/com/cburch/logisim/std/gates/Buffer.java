@@ -47,7 +47,6 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
@@ -57,15 +56,11 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.tools.key.RotationConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
-import com.cburch.logisim.util.Icons;
 
 class Buffer extends InstanceFactory {
 
   static Value repair(InstanceState state, Value v) {
-    AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-    Object onUndefined = opts.getValue(Options.ATTR_GATE_UNDEFINED);
-    boolean errorIfUndefined = onUndefined
-        .equals(Options.GATE_UNDEFINED_ERROR);
+    boolean errorIfUndefined = state.getProject().getOptions().isGateUndefinedError();
     Value repaired;
     if (errorIfUndefined) {
       int vw = v.getWidth();
@@ -98,7 +93,7 @@ class Buffer extends InstanceFactory {
         new Object[] { Direction.EAST,
             BitWidth.ONE, GateAttributes.OUTPUT_01, "",
             StdAttr.DEFAULT_LABEL_FONT });
-    setIcon(Icons.getIcon("bufferGate.gif"));
+    setIconName("bufferGate.gif");
     setFacingAttribute(StdAttr.FACING);
     setKeyConfigurators(
         new BitWidthConfigurator(StdAttr.WIDTH),
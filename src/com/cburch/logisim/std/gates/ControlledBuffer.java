@@ -48,7 +48,6 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
@@ -76,11 +75,6 @@ class ControlledBuffer extends InstanceFactory {
   public static ComponentFactory FACTORY_BUFFER = new ControlledBuffer(false);
   public static ComponentFactory FACTORY_INVERTER = new ControlledBuffer(true);
 
-  private static final Icon ICON_BUFFER = Icons
-      .getIcon("controlledBuffer.gif");
-  private static final Icon ICON_INVERTER = Icons
-      .getIcon("controlledInverter.gif");
-
   private boolean isInverter;
 
   private ControlledBuffer(boolean isInverter) {
@@ -190,7 +184,8 @@ class ControlledBuffer extends InstanceFactory {
   @Override
   public void paintIcon(InstancePainter painter) {
     Graphics g = painter.getGraphics();
-    Icon icon = isInverter ? ICON_INVERTER : ICON_BUFFER;
+    Icon icon = isInverter ? IconHolder.ICON_INVERTER
+        : IconHolder.ICON_BUFFER;
     if (icon != null) {
       icon.paintIcon(painter.getDestination(), g, 2, 2);
     } else {
@@ -280,10 +275,7 @@ class ControlledBuffer extends InstanceFactory {
     } else {
       Value out;
       if (control == Value.UNKNOWN || control == Value.NIL) {
-        AttributeSet opts = state.getProject().getOptions()
-            .getAttributeSet();
-        if (opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(
-              Options.GATE_UNDEFINED_ERROR)) {
+        if (state.getProject().getOptions().isGateUndefinedError()) {
           out = Value.createError(width);
         } else {
           out = Value.createUnknown(width);
@@ -294,4 +286,10 @@ class ControlledBuffer extends InstanceFactory {
       state.setPort(0, out, GateAttributes.DELAY);
     }
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon ICON_BUFFER = Icons.getIcon("controlledBuffer.gif");
+    static final Icon ICON_INVERTER = Icons.getIcon("controlledInverter.gif");
+  }
 }
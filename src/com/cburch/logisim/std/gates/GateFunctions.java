@@ -43,29 +43,53 @@ class GateFunctions {
 
   static Value computeExactlyOne(Value[] inputs, int numInputs) {
     int width = inputs[0].getWidth();
-    Value[] ret = new Value[width];
+    if (width == 1)
+      return exactlyOneBit(inputs, numInputs, 0);
+    int error = 0, value = 0;
     for (int i = 0; i < width; i++) {
-      int count = 0;
-      for (int j = 0; j < numInputs; j++) {
-        Value v = inputs[j].get(i);
-        if (v == Value.TRUE) {
-          count++;
-        } else if (v == Value.FALSE) {
-          ; // do nothing
-        } else {
-          count = -1;
-          break;
-        }
-      }
-      if (count < 0) {
-        ret[i] = Value.ERROR;
-      } else if (count == 1) {
-        ret[i] = Value.TRUE;
+      Value b = exactlyOneBit(inputs, numInputs, i);
+      if (b == Value.ERROR)
+        error |= 1 << i;
+      else if (b == Value.TRUE)
+        value |= 1 << i;
+    }
+    return Value.create_unsafe(width, error, 0, value);
+  }
+
+  private static Value exactlyOneBit(Value[] inputs, int numInputs, int i) {
+    int count = 0;
+    for (int j = 0; j < numInputs; j++) {
+      Value v = inputs[j].get(i);
+      if (v == Value.TRUE) {
+        count++;
+      } else if (v == Value.FALSE) {
+        ; // do nothing
       } else {
-        ret[i] = Value.FALSE;
+        return Value.ERROR;
       }
     }
-    return Value.create(ret);
+    return count == 1 ? Value.TRUE : Value.FALSE;
+  }
+
+  // Returns value with each bit equal to from replaced by to, without
+  // allocating (other than through the Value cache).
+  static Value replaceBits(Value value, Value from, Value to) {
+    int width = value.getWidth();
+    if (width <= 1)
+      return value == from ? to : value;
+    int error = 0, unknown = 0, known = 0;
+    for (int i = 0; i < width; i++) {
+      Value b = value.get(i);
+      if (b == from)
+        b = to;
+      if (b == Value.ERROR)
+        error |= 1 << i;
+      else if (b == Value.UNKNOWN)
+        unknown |= 1 << i;
+      else if (b == Value.TRUE)
+        known |= 1 << i;
+    }
+    return Value.create_unsafe(width, error, unknown, known);
   }
 
   static Value computeOddParity(Value[] inputs, int numInputs) {
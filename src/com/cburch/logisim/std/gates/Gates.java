@@ -42,21 +42,6 @@ public class Gates extends Library {
   private List<Tool> tools = null;
 
   public Gates() {
-    tools = Arrays.asList(new Tool[] {
-      new AddTool(Gates.class, NotGate.FACTORY),
-      new AddTool(Gates.class, Buffer.FACTORY),
-      new AddTool(Gates.class, AndGate.FACTORY),
-      new AddTool(Gates.class, OrGate.FACTORY),
-      new AddTool(Gates.class, NandGate.FACTORY),
-      new AddTool(Gates.class, NorGate.FACTORY),
-      new AddTool(Gates.class, XorGate.FACTORY),
-      new AddTool(Gates.class, XnorGate.FACTORY),
-      new AddTool(Gates.class, OddParityGate.FACTORY),
-      new AddTool(Gates.class, EvenParityGate.FACTORY),
-      new AddTool(Gates.class, ControlledBuffer.FACTORY_BUFFER),
-      new AddTool(Gates.class, ControlledBuffer.FACTORY_INVERTER),
-      new AddTool(Gates.class, PLA.FACTORY),
-    });
   }
 
   @Override
@@ -71,6 +56,23 @@ public class Gates extends Library {
 
   @Override
   public List<Tool> getTools() {
+    if (tools == null) {
+      tools = Arrays.asList(new Tool[] {
+        new AddTool(Gates.class, NotGate.FACTORY),
+        new AddTool(Gates.class, Buffer.FACTORY),
+        new AddTool(Gates.class, AndGate.FACTORY),
+        new AddTool(Gates.class, OrGate.FACTORY),
+        new AddTool(Gates.class, NandGate.FACTORY),
+        new AddTool(Gates.class, NorGate.FACTORY),
+        new AddTool(Gates.class, XorGate.FACTORY),
+        new AddTool(Gates.class, XnorGate.FACTORY),
+        new AddTool(Gates.class, OddParityGate.FACTORY),
+        new AddTool(Gates.class, EvenParityGate.FACTORY),
+        new AddTool(Gates.class, ControlledBuffer.FACTORY_BUFFER),
+        new AddTool(Gates.class, ControlledBuffer.FACTORY_INVERTER),
+        new AddTool(Gates.class, PLA.FACTORY),
+      });
+    }
     return tools;
   }
 }
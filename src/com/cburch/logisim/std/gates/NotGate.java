@@ -100,11 +100,6 @@ class NotGate extends InstanceFactory {
       .forOption("size", S.getter("gateSizeAttr"),
           new AttributeOption[] { SIZE_NARROW, SIZE_WIDE });
   private static final String RECT_LABEL = "1";
-  private static final Icon toolIcon = Icons.getIcon("notGate.gif");
-  private static final Icon toolIconRect = Icons.getIcon("notGateRect.gif");
-
-  private static final Icon toolIconDin = Icons.getIcon("dinNotGate.gif");
-
   public static InstanceFactory FACTORY = new NotGate();
 
   private NotGate() {
@@ -260,24 +255,24 @@ class NotGate extends InstanceFactory {
     Graphics g = painter.getGraphics();
     g.setColor(Color.black);
     if (painter.getGateShape() == AppPreferences.SHAPE_RECTANGULAR) {
-      if (toolIconRect != null) {
-        toolIconRect.paintIcon(painter.getDestination(), g, 2, 2);
+      if (IconHolder.toolIconRect != null) {
+        IconHolder.toolIconRect.paintIcon(painter.getDestination(), g, 2, 2);
       } else {
         g.drawRect(0, 2, 16, 16);
         GraphicsUtil.drawCenteredText(g, RECT_LABEL, 8, 8);
         g.drawOval(16, 8, 4, 4);
       }
     } else if (painter.getGateShape() == AppPreferences.SHAPE_DIN40700) {
-      if (toolIconDin != null) {
-        toolIconDin.paintIcon(painter.getDestination(), g, 2, 2);
+      if (IconHolder.toolIconDin != null) {
+        IconHolder.toolIconDin.paintIcon(painter.getDestination(), g, 2, 2);
       } else {
         g.drawRect(0, 2, 16, 16);
         GraphicsUtil.drawCenteredText(g, RECT_LABEL, 8, 8);
         g.drawOval(16, 8, 4, 4);
       }
     } else {
-      if (toolIcon != null) {
-        toolIcon.paintIcon(painter.getDestination(), g, 2, 2);
+      if (IconHolder.toolIcon != null) {
+        IconHolder.toolIcon.paintIcon(painter.getDestination(), g, 2, 2);
       } else {
         int[] xp = new int[4];
         int[] yp = new int[4];
@@ -324,4 +319,11 @@ class NotGate extends InstanceFactory {
     out = Buffer.repair(state, out);
     state.setPort(0, out, GateAttributes.DELAY);
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("notGate.gif");
+    static final Icon toolIconRect = Icons.getIcon("notGateRect.gif");
+    static final Icon toolIconDin = Icons.getIcon("dinNotGate.gif");
+  }
 }
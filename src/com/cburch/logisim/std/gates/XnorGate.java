@@ -64,7 +64,7 @@ class XnorGate extends AbstractGate {
   @Override
   protected Value computeOutput(Value[] inputs, int numInputs,
       InstanceState state) {
-    Object behavior = state.getAttributeValue(GateAttributes.ATTR_XOR);
+    Object behavior = ((GateAttributes) state.getAttributeSet()).xorBehave;
     if (behavior == GateAttributes.XOR_ODD) {
       return GateFunctions.computeOddParity(inputs, numInputs).not();
     } else {
@@ -74,7 +74,7 @@ class XorGate extends AbstractGate {
   @Override
   protected Value computeOutput(Value[] inputs, int numInputs,
       InstanceState state) {
-    Object behavior = state.getAttributeValue(GateAttributes.ATTR_XOR);
+    Object behavior = ((GateAttributes) state.getAttributeSet()).xorBehave;
     if (behavior == GateAttributes.XOR_ODD) {
       return GateFunctions.computeOddParity(inputs, numInputs);
     } else {
@@ -97,7 +97,7 @@ public class VhdlSimulatorTclComp { }
 //               (VhdlSimulator.SIM_RESOURCES_PATH + "comp.templ"))));
 // 
 //       template = template.replaceAll("%date%",
-//           LocaleManager.parserSDF.format(new Date()));
+//           LocaleManager.parserSDF().format(new Date()));
 //       template = template.replaceAll("%comp_files%",
 //           comp_files.toString());
 // 
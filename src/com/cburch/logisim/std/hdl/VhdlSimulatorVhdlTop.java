@@ -209,7 +209,7 @@ public class VhdlSimulatorVhdlTop { }
 //     }
 // 
 //     template = template.replaceAll("%date%",
-//         LocaleManager.parserSDF.format(new Date()));
+//         LocaleManager.parserSDF().format(new Date()));
 //     template = template.replaceAll("%ports%", ports.toString());
 //     template = template.replaceAll("%components%", components.toString());
 //     template = template.replaceAll("%map%", map.toString());
@@ -154,6 +154,23 @@ public class Keyboard extends InstanceFactory {
     }
   }
 
+  // Adds as many of the characters as the buffer has room for, returning
+  // how many that was.
+  public static int addToBuffer(InstanceState state, char[] newChars,
+      int off, int len) {
+    KeyboardData keyboardData = getKeyboardState(state);
+    synchronized(keyboardData) {
+      return keyboardData.insert(newChars, off, len);
+    }
+  }
+
+  public static int getBufferSpace(InstanceState state) {
+    KeyboardData keyboardData = getKeyboardState(state);
+    synchronized(keyboardData) {
+      return keyboardData.getSpace();
+    }
+  }
+
   public static int getBufferLength(Object bufferAttr) {
     if (bufferAttr instanceof Integer)
       return ((Integer) bufferAttr).intValue();
@@ -184,6 +184,30 @@ class KeyboardData implements InstanceData, Cloneable {
     return true;
   }
 
+  // Inserts as many of the given characters as fit, returning how many.
+  public int insert(char[] values, int off, int n) {
+    char[] buf = buffer;
+    int len = bufferLength;
+    n = Math.min(n, buf.length - len);
+    if (n <= 0)
+      return 0;
+    int pos = cursorPos;
+    System.arraycopy(buf, pos, buf, pos + n, len - pos);
+    System.arraycopy(values, off, buf, pos, n);
+    bufferLength = len + n;
+    cursorPos = pos + n;
+    str = null;
+    specials.clear();
+    if (pos == 0)
+      readyForDiscard = false;
+    dispValid = false;
+    return n;
+  }
+
+  public int getSpace() {
+    return buffer.length - bufferLength;
+  }
+
   public boolean isDisplayValid() {
     return dispValid;
   }
@@ -38,22 +38,38 @@ import com.cburch.logisim.instance.InstanceData;
 
 class TtyState implements InstanceData, Cloneable {
   private Value lastClock;
-  private String[] rowData;
-  private int colCount;
-  private char[] lastRow;
+  // The screen is kept as rowCount rows of colCount characters each, used
+  // circularly: scrolling just moves top, the position of the first row.
+  // Adding a character only stores it, and the strings given out by
+  // getRowString are made when a row is painted after it has changed.
+  private int rowCount, colCount;
+  private char[] screen;
+  private String[] rowStrings; // by position in screen, null if changed
+  private int top;
   private int row;
-  private int col; // only for lastRow
+  private int col;
   private boolean sendStdout;
 
   public TtyState(int rows, int cols) {
     lastClock = Value.UNKNOWN;
-    rowData = new String[rows - 1];
-    colCount = cols;
-    lastRow = new char[colCount];
     sendStdout = false;
+    allocate(rows, cols);
     clear();
   }
 
+  private void allocate(int rows, int cols) {
+    rowCount = rows;
+    colCount = cols;
+    screen = new char[rows * cols];
+    rowStrings = new String[rows];
+  }
+
+  // Position in screen of the given row of the display.
+  private int slot(int index) {
+    int p = top + index;
+    return p >= rowCount ? p - rowCount : p;
+  }
+
   public void add(char c) {
     if (sendStdout) {
       TtyInterface.sendFromTty(c);
@@ -65,7 +81,7 @@ class TtyState implements InstanceData, Cloneable {
       break;
     case '\b': // backspace
       if (col > 0)
-        lastRow[--col] = ' ';
+        put(--col, ' ');
       break;
     case '\n': // newline
       commit();
@@ -77,24 +93,31 @@ class TtyState implements InstanceData, Cloneable {
       if (!Character.isISOControl(c)) {
         if (col == colCount)
           commit(); // wrap
-        lastRow[col++] = c;
+        put(col++, c);
       }
     }
   }
 
+  private void put(int column, char c) {
+    int p = slot(row);
+    screen[p * colCount + column] = c;
+    rowStrings[p] = null;
+  }
+
   public void clear() {
+    top = 0;
     row = 0;
-    Arrays.fill(rowData, "");
     col = 0;
-    Arrays.fill(lastRow, ' ');
+    Arrays.fill(screen, ' ');
+    Arrays.fill(rowStrings, null);
   }
 
   @Override
   public TtyState clone() {
     try {
       TtyState ret = (TtyState) super.clone();
-      ret.rowData = this.rowData.clone();
-      ret.lastRow = this.lastRow.clone();
+      ret.screen = this.screen.clone();
+      ret.rowStrings = this.rowStrings.clone();
       return ret;
     } catch (CloneNotSupportedException e) {
       return null;
@@ -102,15 +125,16 @@ class TtyState implements InstanceData, Cloneable {
   }
 
   private void commit() {
-    if (row >= rowData.length) {
-      System.arraycopy(rowData, 1, rowData, 0, rowData.length - 1);
-      rowData[row - 1] = new String(lastRow);
+    if (row >= rowCount - 1) {
+      // scroll, reusing the top row as the new bottom one
+      top = slot(1);
+      int p = slot(row);
+      Arrays.fill(screen, p * colCount, (p + 1) * colCount, ' ');
+      rowStrings[p] = null;
     } else {
-      rowData[row] = new String(lastRow);
       row++;
     }
     col = 0;
-    Arrays.fill(lastRow, ' ');
   }
 
   public int getCursorColumn() {
@@ -122,12 +146,15 @@ class TtyState implements InstanceData, Cloneable {
   }
 
   public String getRowString(int index) {
-    if (index < row)
-      return rowData[index];
-    else if (index == row)
-      return new String(lastRow);
-    else
+    if (index < 0 || index > row)
       return "";
+    int p = slot(index);
+    String s = rowStrings[p];
+    if (s == null) {
+      s = new String(screen, p * colCount, colCount);
+      rowStrings[p] = s;
+    }
+    return s;
   }
 
   public Value setLastClock(Value newClock) {
@@ -141,36 +168,23 @@ class TtyState implements InstanceData, Cloneable {
   }
 
   public void updateSize(int rows, int cols) {
-    int oldRows = rowData.length + 1;
-    if (rows != oldRows) {
-      String[] newData = new String[rows - 1];
-      if (rows > oldRows // rows have been added,
-          || row < rows - 1) { // or rows removed but filled rows fit
-        System.arraycopy(rowData, 0, newData, 0, row);
-        Arrays.fill(newData, row, rows - 1, "");
-      } else { // rows removed, and some filled rows must go
-        System.arraycopy(rowData, row - rows + 1, newData, 0, rows - 1);
-        row = rows - 1;
-      }
-      rowData = newData;
-    }
-
-    int oldCols = colCount;
-    if (cols != oldCols) {
-      colCount = cols;
-      if (col > colCount)
-        col = colCount;
-      char[] oldLastRow = lastRow;
-      lastRow = new char[colCount];
-      Arrays.fill(lastRow, ' ');
-      System.arraycopy(oldLastRow, 0, lastRow, 0, Math.min(colCount, oldCols));
-      if (cols < oldCols) { // will need to trim any overly-long rows
-        for (int i = 0; i < rows - 1; i++) {
-          String s = rowData[i];
-          if (s.length() > cols)
-            rowData[i] = s.substring(0, cols);
-        }
-      }
-    }
+    if (rows == rowCount && cols == colCount)
+      return;
+    // keep as many of the last rows as fit, trimmed to the new width
+    int keep = Math.min(row + 1, rows);
+    int first = row + 1 - keep;
+    int[] from = new int[keep];
+    for (int i = 0; i < keep; i++)
+      from[i] = slot(first + i) * colCount;
+    char[] old = screen;
+    int n = Math.min(cols, colCount);
+    allocate(rows, cols);
+    Arrays.fill(screen, ' ');
+    for (int i = 0; i < keep; i++)
+      System.arraycopy(old, from[i], screen, i * cols, n);
+    top = 0;
+    row = keep - 1;
+    if (col > cols)
+      col = cols;
   }
 }
@@ -41,9 +41,11 @@ import static com.cburch.logisim.std.Strings.S;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.IndexColorModel;
 import java.awt.Graphics;
+import java.util.Arrays;
 
 import com.bric.swing.ColorPicker;
 import com.bric.swing.IndexedColorPicker;
@@ -175,31 +177,26 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     int h = attrs.getValue(HEIGHT_OPTION);
 
     if (state.tick(val(circuitState, P_CLK)) && val(circuitState, P_WE) == Value.TRUE) {
-      Graphics g = state.img.getGraphics();
-      g.setColor(new Color(cm.getRGB(color)));
-      g.fillRect(x, y, 1, 1);
+      state.setPixel(x, y, cm.getRGB(color));
       if (RESET_SYNC.equals(reset_option) && val(circuitState, P_RST) == Value.TRUE) {
         if (BLANK_FIXED.equals(blank_option)) {
           ColorModelColor cmc = attrs.getValue(FIXED_OPTION);
           color = cmc == null ? 0 : ((ColorModelColor)cmc).color;
-          g.setColor(new Color(cm.getRGB(color)));
         } else {
           // input color already calculated
         }
-        g.fillRect(0, 0, w, h);
+        state.fill(w, h, cm.getRGB(color));
       }
     }
 
     if (!RESET_SYNC.equals(reset_option) && val(circuitState, P_RST) == Value.TRUE) {
-      Graphics g = state.img.getGraphics();
       if (BLANK_FIXED.equals(blank_option)) {
         ColorModelColor cmc = attrs.getValue(FIXED_OPTION);
         color = cmc == null ? 0 : ((ColorModelColor)cmc).color;
       } else {
         // input color already calculated
       }
-      g.setColor(new Color(cm.getRGB(color)));
-      g.fillRect(0, 0, w, h);
+      state.fill(w, h, cm.getRGB(color));
     }
   }
 
@@ -337,7 +334,7 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     }
     context.drawClock(this, P_CLK, Direction.NORTH);
     g.drawRect(x+6, y+6, s*w+2, s*h+2);
-    g.drawImage(state.img, x+7, y+7, x+7+s*w, y+7+s*h, 0, 0, w, h, null);
+    g.drawImage(state.getScaledImage(s, w, h), x+7, y+7, null);
     // draw a little cursor for sanity
     if (blink_option == null) blink_option = BLINK_OPTIONS[0];
     if (BLINK_YES.equals(blink_option) && blink()
@@ -355,27 +352,89 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
       Object blank_option = attrs.getValue(BLANK_OPTION);
       ColorModelColor cmc = attrs.getValue(FIXED_OPTION);
       int color = cmc == null ? 0 : ((ColorModelColor)cmc).color;
-      Color bg = new Color(cm.getRGB(color));
-      state = new State(bg, new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB));
+      state = new State(cm.getRGB(color));
       circuitState.setData(this, state);
     }
     return state;
   }
 
+  // Pixels are written straight into the int array backing img. Writes are
+  // tracked as a dirty rectangle, and only that region of the scaled copy used
+  // for drawing is refreshed at paint time, so any number of writes between
+  // two repaints costs a single (partial) rescale, much like vsync.
   private class State implements ComponentState, Cloneable {
+    static final int SIZE = 256;
     public Value lastClock = null;
     public BufferedImage img;
     public int last_x, last_y, color;
-
-    State(Color bg, BufferedImage img) {
-      this.img = img;
+    private int[] pixels;
+    private int dirtyX0, dirtyY0, dirtyX1, dirtyY1; // empty when x0 >= x1
+    private BufferedImage scaled;
+    private int[] scaledPixels;
+    private int scale;
+
+    State(int bg) {
+      img = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+      pixels = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
       reset(bg);
     }
 
-    public void reset(Color bg) {
-      Graphics g = img.getGraphics();
-      g.setColor(bg);
-      g.fillRect(0, 0, img.getWidth(), img.getHeight());
+    public void reset(int bg) {
+      fill(SIZE, SIZE, bg);
+    }
+
+    void setPixel(int x, int y, int rgb) {
+      if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+        return;
+      pixels[y * SIZE + x] = rgb;
+      markDirty(x, y, x + 1, y + 1);
+    }
+
+    void fill(int w, int h, int rgb) {
+      w = Math.min(w, SIZE);
+      h = Math.min(h, SIZE);
+      for (int y = 0; y < h; y++)
+        Arrays.fill(pixels, y * SIZE, y * SIZE + w, rgb);
+      markDirty(0, 0, w, h);
+    }
+
+    private synchronized void markDirty(int x0, int y0, int x1, int y1) {
+      if (dirtyX0 >= dirtyX1) {
+        dirtyX0 = x0;
+        dirtyY0 = y0;
+        dirtyX1 = x1;
+        dirtyY1 = y1;
+      } else {
+        dirtyX0 = Math.min(dirtyX0, x0);
+        dirtyY0 = Math.min(dirtyY0, y0);
+        dirtyX1 = Math.max(dirtyX1, x1);
+        dirtyY1 = Math.max(dirtyY1, y1);
+      }
+    }
+
+    // Returns the top-left w x h pixels of img, scaled up by s, refreshing
+    // only the region that changed since the previous call.
+    synchronized BufferedImage getScaledImage(int s, int w, int h) {
+      if (scaled == null || scale != s
+          || scaled.getWidth() != s * w || scaled.getHeight() != s * h) {
+        scale = s;
+        scaled = new BufferedImage(s * w, s * h, BufferedImage.TYPE_INT_ARGB);
+        scaledPixels = ((DataBufferInt)scaled.getRaster().getDataBuffer()).getData();
+        markDirty(0, 0, w, h);
+      }
+      int x1 = Math.min(dirtyX1, w);
+      int y1 = Math.min(dirtyY1, h);
+      int sw = s * w;
+      for (int y = dirtyY0; y < y1; y++) {
+        for (int x = dirtyX0; x < x1; x++) {
+          int rgb = pixels[y * SIZE + x];
+          int row = (y * s) * sw + x * s;
+          for (int i = 0; i < s; i++, row += sw)
+            Arrays.fill(scaledPixels, row, row + s, rgb);
+        }
+      }
+      dirtyX0 = dirtyY0 = dirtyX1 = dirtyY1 = 0;
+      return scaled;
     }
 
     public Object clone() { try { return super.clone(); } catch(CloneNotSupportedException e) { return null; } }
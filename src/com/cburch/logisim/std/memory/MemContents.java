@@ -228,6 +228,56 @@ public class MemContents implements Cloneable, HexModel {
     return pages[page].get(offs) & mask;
   }
 
+  public void get(long start, int[] dest) {
+    int i = 0;
+    while (i < dest.length) {
+      long addr = start + i;
+      int page = (int) (addr >>> PAGE_SIZE_BITS);
+      int offs = (int) (addr & PAGE_MASK);
+      int n = Math.min(dest.length - i, PAGE_SIZE - offs);
+      if (page < 0 || page >= pages.length || pages[page] == null) {
+        Arrays.fill(dest, i, i + n, 0);
+      } else {
+        Page p = pages[page];
+        n = Math.min(n, p.getLength() - offs);
+        if (n <= 0)
+          break;
+        for (int j = 0; j < n; j++)
+          dest[i + j] = p.get(offs + j) & mask;
+      }
+      i += n;
+    }
+    if (i < dest.length)
+      Arrays.fill(dest, i, dest.length, 0);
+  }
+
+  public long find(long start, long end, int value) {
+    start = Math.max(start, 0);
+    end = Math.min(end, getLastOffset());
+    value &= mask;
+    long addr = start;
+    while (addr <= end) {
+      int page = (int) (addr >>> PAGE_SIZE_BITS);
+      int offs = (int) (addr & PAGE_MASK);
+      long pageEnd = Math.min(end, ((long) page << PAGE_SIZE_BITS) + PAGE_MASK);
+      Page p = pages[page];
+      if (p == null) {
+        // unallocated pages hold only zeros
+        if (value == 0)
+          return addr;
+      } else {
+        int last = (int) (pageEnd & PAGE_MASK);
+        last = Math.min(last, p.getLength() - 1);
+        for (int j = offs; j <= last; j++) {
+          if ((p.get(j) & mask) == value)
+            return ((long) page << PAGE_SIZE_BITS) + j;
+        }
+      }
+      addr = pageEnd + 1;
+    }
+    return -1;
+  }
+
   public long getFirstOffset() {
     return 0;
   }
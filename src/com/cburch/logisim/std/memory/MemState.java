@@ -45,7 +45,10 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
   private MemContents contents;
   private long curScroll = 0;
   private long cursorLoc = -1;
-  private long curAddr = -1;
+  // Written by propagate() on the simulator thread; the scroll position that
+  // keeps it visible is only worked out when the component is next painted.
+  private volatile long curAddr = -1;
+  private long shownAddr = -1;
   private boolean RecalculateParameters = true;
   private int NrOfLines = 1;
   private int NrDataSymbolsEachLine = 1;
@@ -225,6 +228,11 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
       displayHeight = DisplayHeight;
       CalculateDisplayParameters(g, offsetX, offsetY, DisplayWidth, DisplayHeight);
     }
+    long curAddr = this.curAddr;
+    if (curAddr != shownAddr) {
+      shownAddr = curAddr;
+      scrollToShow(curAddr);
+    }
     int BlockHeight = NrOfLines * (CharHeight + 2);
     int TotalNrOfEntries = (1 << getAddrBits());
     g.setColor(Color.LIGHT_GRAY);
@@ -315,6 +323,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
     }
     cursorLoc = -1;
     curAddr = -1;
+    shownAddr = -1;
     curScroll = 0;
   }
 
@@ -748,10 +748,8 @@ public class Ram extends Mem {
     Value addrValue = state.getPortValue(ADDR);
     int addr = addrValue.toIntValue();
     boolean goodAddr = (addrValue.isFullyDefined() && addr >= 0);
-    if (goodAddr && addr != myState.getCurrent()) {
+    if (goodAddr && addr != myState.getCurrent())
       myState.setCurrent(addr);
-      myState.scrollToShow(addr);
-    }
 
     int dataLines = Mem.lineSize(attrs);
     int DATA1 = MEM_INPUTS; // (dataLines-1) of them
@@ -775,7 +773,7 @@ public class Ram extends Mem {
             continue;
         }
         int dataValue = state.getPortValue(DATAIN[i]).toIntValue();
-        myState.getContents().set(addr+i, dataValue);
+        myState.write(addr+i, dataValue);
       }
     }
 
@@ -216,9 +216,12 @@ public class RamHDLGenerator extends HDLGenerator {
   private boolean writeMemInitFiles(RamState state, Path path, String rootDir) {
     int n = Mem.lineSize(_attrs);
     for (int i = 0; i < n; i++) {
-      Hdl data = getMemInitData(state, i);
       File f = openFile(rootDir, true, false, i);
-      if (f == null || !FileWriter.WriteContents(f, data, _err))
+      if (f == null)
+        return false;
+      FileWriter.LineWriter w = new FileWriter.LineWriter(f, _err);
+      getMemInitData(new Hdl(_lang, _err, w), state, i);
+      if (!w.close())
         return false;
     }
     return true;
@@ -259,11 +262,10 @@ public class RamHDLGenerator extends HDLGenerator {
         }
         return null;
     }
-    private Hdl getMemInitData(MemState state, int offset) {
+    private void getMemInitData(Hdl out, MemState state, int offset) {
         int skip = Mem.lineSize(_attrs);
         int width = dataWidth();
         int depth = (1 << addrWidth()) / skip;
-        Hdl out = new Hdl(_lang, _err);
         out.add("-- Memory initialization data for alignment offset " + offset);
         // int depth = (int)((c.getLastOffset() - c.getFirstOffset() + 1) / skip);
         out.add("DEPTH = " + depth + ";");
@@ -287,7 +289,6 @@ public class RamHDLGenerator extends HDLGenerator {
           depth-1, 0);
     }
     out.add("END;");
-    return out;
   }
 
 }
@@ -29,6 +29,7 @@
  */
 package com.cburch.logisim.std.memory;
 
+import com.cburch.hex.HexModel;
 import com.cburch.logisim.data.AttributeEvent;
 import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeSet;
@@ -45,6 +46,7 @@ public class RamState extends MemState
   private MemListener listener;
   private ClockState clockState;
   private int CurrentData = 0;
+  private boolean writing = false;
 
   RamState(Instance parent, MemContents contents, MemListener listener) {
     super(contents);
@@ -54,7 +56,6 @@ public class RamState extends MemState
     if (parent != null) {
       parent.getAttributeSet().addAttributeWeakListener(null, this);
     }
-    contents.addHexModelWeakListener(null, listener);
   }
 
   @Override
@@ -68,12 +69,22 @@ public class RamState extends MemState
     getContents().setDimensions(addrBits.getWidth(), dataBits.getWidth());
   }
 
+  @Override
+  public void bytesChanged(HexModel source, long start, long numBytes,
+      int[] oldValues) {
+    // Stores made by the RAM itself show up with the repaint that follows
+    // propagation; only edits from elsewhere (hex editor, poke, file load)
+    // need to invalidate the component so that it is propagated again.
+    if (!writing)
+      listener.bytesChanged(source, start, numBytes, oldValues);
+  }
+
   @Override
   public RamState clone() {
     RamState ret = (RamState) super.clone();
     ret.parent = null;
     ret.clockState = this.clockState.clone();
-    ret.getContents().addHexModelWeakListener(null, listener);
+    ret.writing = false;
     return ret;
   }
 
@@ -85,6 +96,12 @@ public class RamState extends MemState
     return clockState.updateClock(newClock, trigger);
   }
 
+  void write(long addr, int value) {
+    writing = true;
+    getContents().set(addr, value);
+    writing = false;
+  }
+
   void SetCurrentData(int data) {
     CurrentData = data;
   }
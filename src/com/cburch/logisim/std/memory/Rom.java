@@ -411,10 +411,8 @@ public class Rom extends Mem {
         state.setPort(MEM_INPUTS+i-1, Value.createUnknown(dataBits), DELAY);
       return;
     }
-    if (addr != myState.getCurrent()) {
+    if (addr != myState.getCurrent())
       myState.setCurrent(addr);
-      myState.scrollToShow(addr);
-    }
     if (addr % dataLines != 0) { // misaligned access
       state.setPort(DATA, Value.createError(dataBits), DELAY);
       for (int i = 1; i < dataLines; i++)
@@ -175,8 +175,6 @@ public class Clock extends InstanceFactory {
 
   public static final Clock FACTORY = new Clock();
 
-  private static final Icon toolIcon = Icons.getIcon("clock.gif");
-
   public Clock() {
     super("Clock", S.getter("clockComponent"));
     setAttributes(
@@ -230,8 +228,8 @@ public class Clock extends InstanceFactory {
   @Override
   public void paintIcon(InstancePainter painter) {
     Graphics g = painter.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(painter.getDestination(), g, 2, 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(painter.getDestination(), g, 2, 2);
     } else {
       g.drawRect(4, 4, 13, 13);
       g.setColor(Value.FALSE.getColor());
@@ -301,4 +299,9 @@ public class Clock extends InstanceFactory {
       state.setPort(0, q.sending, 1);
     }
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("clock.gif");
+  }
 }
@@ -551,10 +551,6 @@ public class Pin extends InstanceFactory implements DynamicValueProvider {
 
   public static final Pin FACTORY = new Pin();
 
-  private static final Icon ICON_IN = Icons.getIcon("pinInput.gif");
-
-  private static final Icon ICON_OUT = Icons.getIcon("pinOutput.gif");
-
   private static final Font ICON_WIDTH_FONT = new Font("SansSerif", Font.BOLD, 9);
 
   private static final Font DEFAULT_FONT = new Font("monospaced", Font.PLAIN, 12);
@@ -720,14 +716,14 @@ public class Pin extends InstanceFactory implements DynamicValueProvider {
     boolean output = attrs.isOutput();
     Graphics g = painter.getGraphics();
     if (output) {
-      if (ICON_OUT != null) {
-        Icons.paintRotated(g, 2, 2, dir, ICON_OUT,
+      if (IconHolder.ICON_OUT != null) {
+        Icons.paintRotated(g, 2, 2, dir, IconHolder.ICON_OUT,
             painter.getDestination());
         return;
       }
     } else {
-      if (ICON_IN != null) {
-        Icons.paintRotated(g, 2, 2, dir, ICON_IN,
+      if (IconHolder.ICON_IN != null) {
+        Icons.paintRotated(g, 2, 2, dir, IconHolder.ICON_IN,
             painter.getDestination());
         return;
       }
@@ -916,4 +912,9 @@ public class Pin extends InstanceFactory implements DynamicValueProvider {
       return value;
   }
 
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon ICON_IN = Icons.getIcon("pinInput.gif");
+    static final Icon ICON_OUT = Icons.getIcon("pinOutput.gif");
+  }
 }
@@ -76,10 +76,6 @@ public class PullResistor extends InstanceFactory {
             new AttributeOption(Value.ERROR, "X", S.getter("pullErrorType")) });
   public static final PullResistor FACTORY = new PullResistor();
 
-  private static final Icon ICON_SHAPED = Icons.getIcon("pullshap.gif");
-
-  private static final Icon ICON_RECTANGULAR = Icons.getIcon("pullrect.gif");
-
   public PullResistor() {
     super("Pull Resistor", S.getter("pullComponent"));
     setAttributes(new Attribute[] { StdAttr.FACING, ATTR_PULL_TYPE },
@@ -179,9 +175,9 @@ public class PullResistor extends InstanceFactory {
   public void paintIcon(InstancePainter painter) {
     Icon icon;
     if (painter.getGateShape() == AppPreferences.SHAPE_SHAPED) {
-      icon = ICON_SHAPED;
+      icon = IconHolder.ICON_SHAPED;
     } else {
-      icon = ICON_RECTANGULAR;
+      icon = IconHolder.ICON_RECTANGULAR;
     }
     icon.paintIcon(painter.getDestination(), painter.getGraphics(), 2, 2);
   }
@@ -204,4 +200,10 @@ public class PullResistor extends InstanceFactory {
   public void propagate(InstanceState state) {
     ; // nothing to do - handled by CircuitWires
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon ICON_SHAPED = Icons.getIcon("pullshap.gif");
+    static final Icon ICON_RECTANGULAR = Icons.getIcon("pullrect.gif");
+  }
 }
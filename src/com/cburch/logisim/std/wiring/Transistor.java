@@ -76,9 +76,6 @@ public class Transistor extends InstanceFactory {
   static final int INPUT = 1;
   static final int GATE = 2;
 
-  private static final Icon ICON_N = Icons.getIcon("trans1.gif");
-  private static final Icon ICON_P = Icons.getIcon("trans0.gif");
-
   public Transistor() {
     super("Transistor", S.getter("transistorComponent"));
     setAttributes(new Attribute[] { ATTR_TYPE, StdAttr.FACING,
@@ -260,7 +257,7 @@ public class Transistor extends InstanceFactory {
   @Override
   public void paintIcon(InstancePainter painter) {
     Object type = painter.getAttributeValue(ATTR_TYPE);
-    Icon icon = type == TYPE_N ? ICON_N : ICON_P;
+    Icon icon = type == TYPE_N ? IconHolder.ICON_N : IconHolder.ICON_P;
     icon.paintIcon(painter.getDestination(), painter.getGraphics(), 2, 2);
   }
 
@@ -312,4 +309,10 @@ public class Transistor extends InstanceFactory {
     }
     instance.setPorts(ports);
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon ICON_N = Icons.getIcon("trans1.gif");
+    static final Icon ICON_P = Icons.getIcon("trans0.gif");
+  }
 }
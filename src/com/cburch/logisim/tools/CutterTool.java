@@ -74,8 +74,6 @@ public final class CutterTool extends Tool {
 
   private static final int IDLE = 0;
   private static final int RECT_SELECT = 1;
-  private static final Icon toolIcon = Icons.getIcon("cutter16.png");
-
   private static final Color COLOR_RECT_SELECT = new Color(192, 64, 0, 255);
   private static final Color BACKGROUND_RECT_SELECT = new Color(255, 128, 128, 192);
 
@@ -344,8 +342,8 @@ public final class CutterTool extends Tool {
   @Override
   public void paintIcon(ComponentDrawContext c, int x, int y) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     } else {
       int[] xp = { x + 5, x + 5, x + 9, x + 12, x + 14, x + 11, x + 16 };
       int[] yp = { y, y + 17, y + 12, y + 18, y + 18, y + 12, y + 12 };
@@ -361,4 +359,9 @@ public final class CutterTool extends Tool {
     state = new_state;
     proj.getFrame().getCanvas().setCursor(getCursor());
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("cutter16.png");
+  }
 }
@@ -412,13 +412,11 @@ public final class EditTool extends Tool {
     updateLocation(canvas, e);
   }
   
-  private static final Icon toolIcon = Icons.getIcon("select.gif");
-
   @Override
   public void paintIcon(ComponentDrawContext c, int x, int y) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     } else {
       int[] xp = { x + 5, x + 5, x + 9, x + 12, x + 14, x + 11, x + 16 };
       int[] yp = { y, y + 17, y + 12, y + 18, y + 18, y + 12, y + 12 };
@@ -520,4 +518,9 @@ public final class EditTool extends Tool {
   }
 
   public boolean isBuiltin() { return true; }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("select.gif");
+  }
 }
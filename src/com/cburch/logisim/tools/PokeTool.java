@@ -137,8 +137,6 @@ public final class PokeTool extends Tool {
     }
   }
 
-  private static final Icon toolIcon = Icons.getIcon("poke.gif");
-
   private static final Color caretColor = new Color(255, 255, 150);
 
   private static Cursor cursor = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
@@ -277,8 +275,8 @@ public final class PokeTool extends Tool {
   @Override
   public void paintIcon(ComponentDrawContext c, int x, int y) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     } else {
       g.setColor(Color.BLACK);
       g.drawLine(x + 4, y + 2, x + 4, y + 17);
@@ -319,4 +317,9 @@ public final class PokeTool extends Tool {
   public boolean isScrollable() {
     return pokeCaret != null && !(pokeCaret instanceof WireCaret);
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("poke.gif");
+  }
 }
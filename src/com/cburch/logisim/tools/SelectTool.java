@@ -106,6 +106,11 @@ public final class SelectTool extends Tool {
     public void requestSatisfied(MoveGesture gesture, int dx, int dy) {
       clearCanvasMessage(canvas, dx, dy);
     }
+
+    @Override
+    public void requestPreviewed(MoveGesture gesture, int dx, int dy) {
+      canvas.repaint();
+    }
   }
 
   private static void clearCanvasMessage(Canvas canvas, int dx, int dy) {
@@ -130,8 +135,6 @@ public final class SelectTool extends Tool {
     Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR)
   };
 
-  private static final Icon toolIcon = Icons.getIcon("move.gif");
-
   private static final Color COLOR_UNMATCHED = new Color(192, 0, 0);
 
   private static final Color COLOR_COMPUTING = new Color(96, 192, 96);
@@ -229,7 +232,7 @@ public final class SelectTool extends Tool {
 
       MoveGesture gesture = moveGesture;
       if (gesture != null && drawConnections && (dx != 0 || dy != 0)) {
-        MoveResult result = gesture.findResult(dx, dy);
+        MoveResult result = gesture.findPreviewResult(dx, dy);
         if (result != null) {
           Collection<Wire> wiresToAdd = result.getWiresToAdd();
           Graphics g = context.getGraphics();
@@ -318,7 +321,7 @@ public final class SelectTool extends Tool {
       Set<Component> sel = canvas.getSelection().getComponents();
       MoveGesture gesture = moveGesture;
       if (gesture != null && drawConnections) {
-        MoveResult result = gesture.findResult(dx, dy);
+        MoveResult result = gesture.findPreviewResult(dx, dy);
         if (result != null) {
           HashSet<Component> ret = new HashSet<Component>(sel);
           ret.addAll(result.getReplacementMap().getRemovals());
@@ -607,8 +610,8 @@ public final class SelectTool extends Tool {
   @Override
   public void paintIcon(ComponentDrawContext c, int x, int y) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     } else {
       int[] xp = { x + 5, x + 5, x + 9, x + 12, x + 14, x + 11, x + 16 };
       int[] yp = { y, y + 17, y + 12, y + 18, y + 18, y + 12, y + 12 };
@@ -698,4 +701,9 @@ public final class SelectTool extends Tool {
       return !dflt;
     }
   }
+
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("move.gif");
+  }
 }
@@ -60,8 +60,6 @@ import com.cburch.logisim.util.Icons;
 
 public final class WiringTool extends Tool {
   private static Cursor cursor = Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR);
-  private static final Icon toolIcon = Icons.getIcon("wiring.gif");
-
   private static final int AIMLESS = 0;
   private static final int HORIZONTAL = 1;
   private static final int VERTICAL = 2;
@@ -589,8 +587,8 @@ public final class WiringTool extends Tool {
   @Override
   public void paintIcon(ComponentDrawContext c, int x, int y) {
     Graphics g = c.getGraphics();
-    if (toolIcon != null) {
-      toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
+    if (IconHolder.toolIcon != null) {
+      IconHolder.toolIcon.paintIcon(c.getDestination(), g, x + 2, y + 2);
     } else {
       g.setColor(java.awt.Color.black);
       g.drawLine(x + 3, y + 13, x + 17, y + 7);
@@ -651,5 +649,8 @@ public final class WiringTool extends Tool {
       tip = null;
   }
 
-
+  // held apart so the images load on first paint, not with the class
+  private static class IconHolder {
+    static final Icon toolIcon = Icons.getIcon("wiring.gif");
+  }
 }
@@ -34,7 +34,6 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Set;
 
 import com.cburch.logisim.circuit.Wire;
@@ -44,22 +43,23 @@ import com.cburch.logisim.data.Location;
 
 class AvoidanceMap {
   static AvoidanceMap create(Collection<Component> elements, int dx, int dy) {
-    AvoidanceMap ret = new AvoidanceMap(new HashMap<Location, String>());
+    AvoidanceMap ret = new AvoidanceMap(new LocationTable());
     ret.markAll(elements, dx, dy);
     return ret;
   }
 
-  private final HashMap<Location, String> avoid;
+  private final LocationTable avoid;
 
-  private AvoidanceMap(HashMap<Location, String> map) {
+  private AvoidanceMap(LocationTable map) {
     avoid = map;
   }
 
   public AvoidanceMap cloneMap() {
-    return new AvoidanceMap(new HashMap<Location, String>(avoid));
+    return new AvoidanceMap(new LocationTable(avoid));
   }
 
-  public Object get(Location loc) {
+  // Returns one of the Connector.ALLOW_* values, or zero if loc is unrestricted.
+  public byte get(Location loc) {
     return avoid.get(loc);
   }
 
@@ -76,7 +76,7 @@ class AvoidanceMap {
   }
 
   public void markComponent(Component comp, int dx, int dy) {
-    HashMap<Location, String> avoid = this.avoid;
+    LocationTable avoid = this.avoid;
     boolean translated = dx != 0 || dy != 0;
     Bounds bds = comp.getNominalBounds();
     int x0 = bds.getX() + dx;
@@ -91,16 +91,12 @@ class AvoidanceMap {
         // loc is most likely in the component, so go ahead and
         // put it into the map as if it is - and in the rare event
         // that loc isn't in the component, we can remove it.
-        String prev = avoid.put(loc, Connector.ALLOW_NEITHER);
+        byte prev = avoid.put(loc, Connector.ALLOW_NEITHER);
         if (prev != Connector.ALLOW_NEITHER) {
           Location baseLoc = translated ? loc.translate(-dx, -dy)
               : loc;
           if (!comp.nominallyContains(baseLoc)) {
-            if (prev == null) {
-              avoid.remove(loc);
-            } else {
-              avoid.put(loc, prev);
-            }
+            avoid.put(loc, prev); // zero removes it again
           }
         }
       }
@@ -108,7 +104,7 @@ class AvoidanceMap {
   }
 
   public void markWire(Wire w, int dx, int dy) {
-    HashMap<Location, String> avoid = this.avoid;
+    LocationTable avoid = this.avoid;
     boolean translated = dx != 0 || dy != 0;
     Location loc0 = w.getEnd0();
     Location loc1 = w.getEnd1();
@@ -124,7 +120,7 @@ class AvoidanceMap {
     int y1 = loc1.getY();
     if (x0 == x1) { // vertical wire
       for (Location loc : Wire.create(loc0, loc1)) {
-        Object prev = avoid.put(loc, Connector.ALLOW_HORIZONTAL);
+        byte prev = avoid.put(loc, Connector.ALLOW_HORIZONTAL);
         if (prev == Connector.ALLOW_NEITHER
             || prev == Connector.ALLOW_VERTICAL) {
           avoid.put(loc, Connector.ALLOW_NEITHER);
@@ -132,7 +128,7 @@ class AvoidanceMap {
       }
     } else if (y0 == y1) { // horizontal wire
       for (Location loc : Wire.create(loc0, loc1)) {
-        Object prev = avoid.put(loc, Connector.ALLOW_VERTICAL);
+        byte prev = avoid.put(loc, Connector.ALLOW_VERTICAL);
         if (prev == Connector.ALLOW_NEITHER
             || prev == Connector.ALLOW_HORIZONTAL) {
           avoid.put(loc, Connector.ALLOW_NEITHER);
@@ -144,10 +140,11 @@ class AvoidanceMap {
   }
 
   public void print(PrintStream stream) {
-    ArrayList<Location> list = new ArrayList<Location>(avoid.keySet());
+    ArrayList<Location> list = avoid.locations();
     Collections.sort(list);
     for (int i = 0, n = list.size(); i < n; i++) {
-      stream.println(list.get(i) + ": " + avoid.get(list.get(i)));
+      stream.println(list.get(i) + ": "
+          + Connector.allowedToString(avoid.get(list.get(i))));
     }
   }
 
@@ -168,8 +165,8 @@ class AvoidanceMap {
     if (x0 == x1) { // vertical wire
       for (Location loc : w) {
         if (unmarkable == null || unmarkable.contains(deletedEnd)) {
-          Object prev = avoid.remove(loc);
-          if (prev != Connector.ALLOW_HORIZONTAL && prev != null) {
+          byte prev = avoid.remove(loc);
+          if (prev != Connector.ALLOW_HORIZONTAL && prev != 0) {
             avoid.put(loc, Connector.ALLOW_VERTICAL);
           }
         }
@@ -177,8 +174,8 @@ class AvoidanceMap {
     } else if (y0 == y1) { // horizontal wire
       for (Location loc : w) {
         if (unmarkable == null || unmarkable.contains(deletedEnd)) {
-          Object prev = avoid.remove(loc);
-          if (prev != Connector.ALLOW_VERTICAL && prev != null) {
+          byte prev = avoid.remove(loc);
+          if (prev != Connector.ALLOW_VERTICAL && prev != 0) {
             avoid.put(loc, Connector.ALLOW_HORIZONTAL);
           }
         }
@@ -39,11 +39,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.cburch.logisim.circuit.ReplacementMap;
 import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.util.UniquelyNamedThread;
 
 class Connector {
   static MoveResult computeWires(MoveRequest req) {
@@ -69,7 +76,6 @@ class Connector {
       initNodes.put(conn, connNodes);
     }
 
-    MoveResult bestResult = null;
     int tries;
     switch (baseConnects.size()) {
     case 0:
@@ -87,12 +93,21 @@ class Connector {
     default:
       tries = MAX_ORDERING_TRIES;
     }
-    long stopTime = System.currentTimeMillis() + MAX_SECONDS * 1000;
-    for (int tryNum = 0; tryNum < tries
-        && stopTime - System.currentTimeMillis() > 0; tryNum++) {
-      if (ConnectorThread.isOverrideRequested()) {
-        return null;
-      }
+    if (tries == 0) {
+      return new MoveResult(req, new ReplacementMap(), impossible, 0);
+    }
+
+    // The orderings are independent, so they are routed concurrently, each
+    // with its own copy of the avoidance map. Whenever a finished ordering
+    // beats the best so far, it is offered to the gesture as a preview while
+    // the rest are still being routed.
+    final long stopTime = System.currentTimeMillis() + MAX_SECONDS * 1000;
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+    ExecutorCompletionService<MoveResult> done
+        = new ExecutorCompletionService<>(POOL);
+    ArrayList<Future<MoveResult>> pending = new ArrayList<>();
+    HashMap<Future<MoveResult>, Integer> order = new HashMap<>();
+    for (int tryNum = 0; tryNum < tries; tryNum++) {
       ArrayList<ConnectionData> connects;
       connects = new ArrayList<ConnectionData>(baseConnects);
       if (tryNum < 2) {
@@ -103,38 +118,63 @@ class Connector {
       } else {
         Collections.shuffle(connects);
       }
+      Future<MoveResult> f = done.submit(() -> tryList(req, gesture,
+            connects, dx, dy, pathLocs, initNodes, impossible, stopTime,
+            aborted));
+      pending.add(f);
+      order.put(f, tryNum);
+    }
 
-      MoveResult candidate = tryList(req, gesture, connects, dx, dy,
-          pathLocs, initNodes, stopTime);
-      if (candidate == null) {
-        return null;
-      } else if (bestResult == null) {
-        bestResult = candidate;
-      } else {
-        int unsatisfied1 = bestResult.getUnsatisifiedConnections()
-            .size();
-        int unsatisfied2 = candidate.getUnsatisifiedConnections()
-            .size();
-        if (unsatisfied2 < unsatisfied1) {
+    MoveResult bestResult = null;
+    int bestTry = -1;
+    try {
+      for (int i = 0; i < tries; i++) {
+        Future<MoveResult> f = done.take();
+        MoveResult candidate = f.get();
+        if (candidate == null) { // aborted
+          return null;
+        }
+        int tryNum = order.get(f);
+        if (bestResult == null
+            || isBetter(candidate, tryNum, bestResult, bestTry)) {
           bestResult = candidate;
-        } else if (unsatisfied2 == unsatisfied1) {
-          int dist1 = bestResult.getTotalDistance();
-          int dist2 = candidate.getTotalDistance();
-          if (dist2 < dist1) {
-            bestResult = candidate;
+          bestTry = tryNum;
+          if (i < tries - 1) {
+            gesture.notifyPreview(req, bestResult);
           }
         }
       }
-    }
-    if (bestResult == null) { // should only happen for no connections
-      bestResult = new MoveResult(req, new ReplacementMap(), impossible,
-          0);
-    } else {
-      bestResult.addUnsatisfiedConnections(impossible);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      Throwable t = e.getCause();
+      if (t instanceof RuntimeException)
+        throw (RuntimeException) t;
+      throw new RuntimeException(t);
+    } finally {
+      aborted.set(true);
+      for (Future<MoveResult> f : pending)
+        f.cancel(false);
     }
     return bestResult;
   }
 
+  // Fewest unsatisfied connections wins, then shortest total distance. Ties
+  // go to the earlier ordering, as they did when orderings ran one by one.
+  private static boolean isBetter(MoveResult a, int aTry, MoveResult b,
+      int bTry) {
+    int unsatisfied1 = b.getUnsatisifiedConnections().size();
+    int unsatisfied2 = a.getUnsatisifiedConnections().size();
+    if (unsatisfied2 != unsatisfied1)
+      return unsatisfied2 < unsatisfied1;
+    int dist1 = b.getTotalDistance();
+    int dist2 = a.getTotalDistance();
+    if (dist2 != dist1)
+      return dist2 < dist1;
+    return aTry < bTry;
+  }
+
   private static ArrayList<Location> convertToPath(SearchNode last) {
     SearchNode next = last;
     SearchNode prev = last.getPrevious();
@@ -155,30 +195,34 @@ class Connector {
   }
 
   private static SearchNode findShortestPath(List<SearchNode> nodes,
-      Set<Location> pathLocs, AvoidanceMap avoid) {
+      Set<Location> pathLocs, AvoidanceMap avoid, AtomicBoolean aborted) {
     PriorityQueue<SearchNode> q = new PriorityQueue<SearchNode>(nodes);
-    HashSet<SearchNode> visited = new HashSet<SearchNode>();
+    // All nodes share one destination, so a node is identified by its
+    // location and direction: the table holds a bitmask of directions seen.
+    LocationTable visited = new LocationTable();
     int iters = 0;
     while (!q.isEmpty() && iters < MAX_SEARCH_ITERATIONS) {
       iters++;
       SearchNode n = q.remove();
-      if (iters % 64 == 0 && ConnectorThread.isOverrideRequested()
-          || n == null) {
+      if (iters % 64 == 0 && (aborted.get()
+            || ConnectorThread.isOverrideRequested()) || n == null) {
         return null;
       }
       if (n.isDestination()) {
         return n;
       }
-      boolean added = visited.add(n);
-      if (!added) {
+      Location loc = n.getLocation();
+      byte seen = visited.get(loc);
+      byte bit = directionBit(n.getDirection());
+      if ((seen & bit) != 0) {
         continue;
       }
-      Location loc = n.getLocation();
+      visited.put(loc, (byte) (seen | bit));
       Direction dir = n.getDirection();
       int neighbors = 3;
-      Object allowed = avoid.get(loc);
-      if (allowed != null && n.isStart() && pathLocs.contains(loc)) {
-        allowed = null;
+      byte allowed = avoid.get(loc);
+      if (allowed != 0 && n.isStart() && pathLocs.contains(loc)) {
+        allowed = 0;
       }
       if (allowed == ALLOW_NEITHER) {
         neighbors = 0;
@@ -223,8 +267,9 @@ class Connector {
         default: // must be 3
           oDir = dir.reverse();
         }
-        SearchNode o = n.next(oDir, allowed != null);
-        if (o != null && !visited.contains(o)) {
+        SearchNode o = n.next(oDir, allowed != 0);
+        if (o != null
+            && (visited.get(o.getLocation()) & directionBit(oDir)) == 0) {
           q.add(o);
         }
       }
@@ -232,12 +277,25 @@ class Connector {
     return null;
   }
 
+  private static byte directionBit(Direction dir) {
+    if (dir == Direction.NORTH)
+      return 1;
+    else if (dir == Direction.SOUTH)
+      return 2;
+    else if (dir == Direction.EAST)
+      return 4;
+    else if (dir == Direction.WEST)
+      return 8;
+    else
+      return 16; // null, only for start nodes
+  }
+
   private static void processConnection(ConnectionData conn, int dx, int dy,
       HashSet<Location> connLocs, ArrayList<SearchNode> connNodes,
       AvoidanceMap selAvoid) {
     Location cur = conn.getLocation();
     Location dest = cur.translate(dx, dy);
-    if (selAvoid.get(cur) == null) {
+    if (selAvoid.get(cur) == 0) {
       Direction preferred = conn.getDirection();
       if (preferred == null) {
         if (Math.abs(dx) > Math.abs(dy)) {
@@ -253,7 +311,7 @@ class Connector {
 
     for (Wire w : conn.getWirePath()) {
       for (Location loc : w) {
-        if (selAvoid.get(loc) == null || loc.equals(dest)) {
+        if (selAvoid.get(loc) == 0 || loc.equals(dest)) {
           boolean added = connLocs.add(loc);
           if (added) {
             Direction dir = null;
@@ -324,7 +382,7 @@ class Connector {
     for (Iterator<ConnectionData> it = connects.iterator(); it.hasNext();) {
       ConnectionData conn = it.next();
       Location dest = conn.getLocation().translate(dx, dy);
-      if (avoid.get(dest) != null) {
+      if (avoid.get(dest) != 0) {
         boolean isInPath = false;
         for (Wire w : pathWires) {
           if (w.nominallyContains(dest)) {
@@ -365,15 +423,17 @@ class Connector {
   private static MoveResult tryList(MoveRequest req, MoveGesture gesture,
       ArrayList<ConnectionData> connects, int dx, int dy,
       HashMap<ConnectionData, Set<Location>> pathLocs,
-      HashMap<ConnectionData, List<SearchNode>> initNodes, long stopTime) {
+      HashMap<ConnectionData, List<SearchNode>> initNodes,
+      ArrayList<ConnectionData> impossible, long stopTime,
+      AtomicBoolean aborted) {
     AvoidanceMap avoid = gesture.getFixedAvoidanceMap().cloneMap();
     avoid.markAll(gesture.getSelected(), dx, dy);
 
     ReplacementMap replacements = new ReplacementMap();
-    ArrayList<ConnectionData> unconnected = new ArrayList<ConnectionData>();
+    ArrayList<ConnectionData> unconnected = new ArrayList<ConnectionData>(impossible);
     int totalDistance = 0;
     for (ConnectionData conn : connects) {
-      if (ConnectorThread.isOverrideRequested()) {
+      if (aborted.get() || ConnectorThread.isOverrideRequested()) {
         return null;
       }
       if (System.currentTimeMillis() - stopTime > 0) {
@@ -382,12 +442,12 @@ class Connector {
       }
       List<SearchNode> connNodes = initNodes.get(conn);
       Set<Location> connPathLocs = pathLocs.get(conn);
-      SearchNode n = findShortestPath(connNodes, connPathLocs, avoid);
+      SearchNode n = findShortestPath(connNodes, connPathLocs, avoid, aborted);
       if (n != null) { // normal case - a path was found
         totalDistance += n.getDistance();
         ArrayList<Location> path = convertToPath(n);
         processPath(path, conn, avoid, replacements, connPathLocs);
-      } else if (ConnectorThread.isOverrideRequested()) {
+      } else if (aborted.get() || ConnectorThread.isOverrideRequested()) {
         return null; // search was aborted: return null to indicate this
       } else {
         unconnected.add(conn);
@@ -402,11 +462,33 @@ class Connector {
 
   private static final int MAX_SEARCH_ITERATIONS = 20000;
 
-  static final String ALLOW_NEITHER = "neither";
+  static final byte ALLOW_NEITHER = 1;
 
-  static final String ALLOW_VERTICAL = "vert";
+  static final byte ALLOW_VERTICAL = 2;
+
+  static final byte ALLOW_HORIZONTAL = 3;
+
+  static String allowedToString(byte allowed) {
+    switch (allowed) {
+    case ALLOW_NEITHER:
+      return "neither";
+    case ALLOW_VERTICAL:
+      return "vert";
+    case ALLOW_HORIZONTAL:
+      return "horz";
+    default:
+      return "null";
+    }
+  }
 
-  static final String ALLOW_HORIZONTAL = "horz";
+  // Routing threads are daemons, so an idle pool never holds up exit.
+  private static final ExecutorService POOL = Executors.newFixedThreadPool(
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+      r -> {
+        Thread t = new UniquelyNamedThread(r, "tools-move-Connector");
+        t.setDaemon(true);
+        return t;
+      });
 
   private Connector() {
   }
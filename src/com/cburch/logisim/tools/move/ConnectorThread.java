@@ -55,7 +55,7 @@ class ConnectorThread extends UniquelyNamedThread {
   }
 
   private Object lock;
-  private transient boolean overrideRequest;
+  private volatile boolean overrideRequest; // polled by routing threads
   private MoveRequest nextRequest;
   private MoveRequest processingRequest;
 
@@ -0,0 +1,157 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.tools.move;
+
+import java.util.ArrayList;
+
+import com.cburch.logisim.data.Location;
+
+/**
+ * A map from grid coordinates to small non-zero byte values, used for the
+ * avoidance map and the visited set of the wire router. Entries are stored
+ * in flat primitive arrays with linear probing, so copying the table for each
+ * routing attempt is a pair of array copies, and lookups neither allocate nor
+ * hash Location objects. A value of zero means "absent".
+ */
+class LocationTable {
+  private long[] keys;
+  private byte[] vals;
+  private int size;
+
+  LocationTable() {
+    keys = new long[64];
+    vals = new byte[64];
+  }
+
+  LocationTable(LocationTable src) {
+    keys = src.keys.clone();
+    vals = src.vals.clone();
+    size = src.size;
+  }
+
+  private static long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  private int slot(long k) {
+    long h = k * 0x9e3779b97f4a7c15L;
+    return (int) (h >>> 40) & (keys.length - 1);
+  }
+
+  byte get(int x, int y) {
+    long k = key(x, y);
+    int mask = keys.length - 1;
+    for (int i = slot(k); vals[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == k)
+        return vals[i];
+    }
+    return 0;
+  }
+
+  byte get(Location loc) {
+    return get(loc.getX(), loc.getY());
+  }
+
+  // Returns the previous value, or zero if there was none.
+  byte put(Location loc, byte val) {
+    if (val == 0)
+      return remove(loc);
+    long k = key(loc.getX(), loc.getY());
+    int mask = keys.length - 1;
+    int i = slot(k);
+    for (; vals[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == k) {
+        byte prev = vals[i];
+        vals[i] = val;
+        return prev;
+      }
+    }
+    keys[i] = k;
+    vals[i] = val;
+    if (++size * 2 > keys.length)
+      grow();
+    return 0;
+  }
+
+  // Returns the previous value, or zero if there was none.
+  byte remove(Location loc) {
+    long k = key(loc.getX(), loc.getY());
+    int mask = keys.length - 1;
+    int i = slot(k);
+    for (; vals[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == k)
+        break;
+    }
+    byte prev = vals[i];
+    if (prev == 0)
+      return 0;
+    // Shift later entries of the same probe run back into the hole, so
+    // lookups never need tombstones.
+    int hole = i;
+    for (int j = (i + 1) & mask; vals[j] != 0; j = (j + 1) & mask) {
+      int home = slot(keys[j]);
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        vals[hole] = vals[j];
+        hole = j;
+      }
+    }
+    vals[hole] = 0;
+    size--;
+    return prev;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    byte[] oldVals = vals;
+    keys = new long[oldKeys.length * 2];
+    vals = new byte[oldVals.length * 2];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldVals[j] == 0)
+        continue;
+      int i = slot(oldKeys[j]);
+      while (vals[i] != 0)
+        i = (i + 1) & mask;
+      keys[i] = oldKeys[j];
+      vals[i] = oldVals[j];
+    }
+  }
+
+  ArrayList<Location> locations() {
+    ArrayList<Location> ret = new ArrayList<>(size);
+    for (int i = 0; i < keys.length; i++) {
+      if (vals[i] != 0)
+        ret.add(Location.create((int) (keys[i] >> 32), (int) keys[i]));
+    }
+    return ret;
+  }
+}
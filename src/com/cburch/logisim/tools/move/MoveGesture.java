@@ -129,6 +129,7 @@ public class MoveGesture {
   private transient AvoidanceMap initAvoid;
 
   private HashMap<MoveRequest, MoveResult> cachedResults;
+  private HashMap<MoveRequest, MoveResult> previewResults; // protected by cachedResults
 
   public MoveGesture(MoveRequestListener listener, Circuit circuit,
       Collection<Component> selected) {
@@ -138,6 +139,7 @@ public class MoveGesture {
     this.connections = null;
     this.initAvoid = null;
     this.cachedResults = new HashMap<MoveRequest, MoveResult>();
+    this.previewResults = new HashMap<MoveRequest, MoveResult>();
   }
 
   public boolean enqueueRequest(int dx, int dy) {
@@ -160,6 +162,17 @@ public class MoveGesture {
     }
   }
 
+  // Returns the final result if there is one, otherwise the best result so
+  // far of a computation still in progress, or null if neither exists. This is
+  // only suitable for display: forceRequest() always waits for the final one.
+  public MoveResult findPreviewResult(int dx, int dy) {
+    MoveRequest request = new MoveRequest(this, dx, dy);
+    synchronized (cachedResults) {
+      MoveResult result = cachedResults.get(request);
+      return result != null ? result : previewResults.get(request);
+    }
+  }
+
   public MoveResult forceRequest(int dx, int dy) {
     MoveRequest request = new MoveRequest(this, dx, dy);
     ConnectorThread.enqueueRequest(request, true);
@@ -204,9 +217,22 @@ public class MoveGesture {
     return selected;
   }
 
+  void notifyPreview(MoveRequest request, MoveResult result) {
+    synchronized (cachedResults) {
+      if (cachedResults.containsKey(request))
+        return;
+      previewResults.put(request, result);
+    }
+    if (listener != null) {
+      listener.requestPreviewed(this, request.getDeltaX(),
+          request.getDeltaY());
+    }
+  }
+
   void notifyResult(MoveRequest request, MoveResult result) {
     synchronized (cachedResults) {
       cachedResults.put(request, result);
+      previewResults.remove(request);
       cachedResults.notifyAll();
     }
     if (listener != null) {
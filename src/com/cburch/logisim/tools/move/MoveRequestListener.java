@@ -32,4 +32,8 @@ package com.cburch.logisim.tools.move;
 
 public interface MoveRequestListener {
   public void requestSatisfied(MoveGesture gesture, int dx, int dy);
+
+  // Called when a better partial result is available, see
+  // MoveGesture.findPreviewResult().
+  default public void requestPreviewed(MoveGesture gesture, int dx, int dy) { }
 }
@@ -216,10 +216,16 @@ public class LocaleManager {
 
   private static ArrayList<LocaleManager> managers = new ArrayList<LocaleManager>();
 
-  private static String DATE_FORMAT = S.get("dateFormat");
+  // Created on first use: a SimpleDateFormat pulls in much of the JDK's
+  // locale data, which would otherwise slow down every startup.
+  private static class DateFormatHolder {
+    static final SimpleDateFormat parserSDF = new SimpleDateFormat(
+        S.get("dateFormat"));
+  }
 
-  public final static SimpleDateFormat parserSDF = new SimpleDateFormat(
-      LocaleManager.DATE_FORMAT);
+  public static SimpleDateFormat parserSDF() {
+    return DateFormatHolder.parserSDF;
+  }
 
   private static ArrayList<LocaleListener> listeners = new ArrayList<LocaleListener>();
 